@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.ReflectionUtils;
+
+import org.eclipse.keti.acs.attribute.readers.AttributeReaderFactory;
+import org.eclipse.keti.acs.attribute.readers.ResourceAttributeReader;
+import org.eclipse.keti.acs.attribute.readers.SubjectAttributeReader;
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.model.Condition;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.model.PolicySet;
+import org.eclipse.keti.acs.model.ResourceType;
+import org.eclipse.keti.acs.model.SubjectType;
+import org.eclipse.keti.acs.model.Target;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+
+/**
+ * Generated policy sets, attributes and hand-wired collaborators shared by the benchmarks, so that the services under
+ * measurement can run without a Spring context or a database.
+ *
+ * @author acs-engineers@ge.com
+ */
+@SuppressWarnings("nls")
+final class BenchmarkFixtures {
+
+    static final String ISSUER = "https://acs.attributes.int";
+
+    private static final String GROOVY_CONDITION = "subject.attributes('" + ISSUER
+            + "', 'role')*.split(':').any { sa -> sa.size() > 0 && sa[0] == 'manager' }";
+
+    private BenchmarkFixtures() {
+        // Prevents instantiation.
+    }
+
+    static ZoneEntity createZone() {
+        ZoneEntity zone = new ZoneEntity(1L, "benchmark-zone");
+        zone.setSubdomain("benchmark");
+        return zone;
+    }
+
+    /**
+     * Generates a policy set in the shape of a typical tenant: one policy per site, each with its own resource URI
+     * template, a required subject attribute and a condition, followed by a catch-all deny. Even policies have a
+     * condition that is compiled to Java; odd policies have a condition only Groovy can evaluate.
+     */
+    static PolicySet createPolicySet(final String name, final int policyCount) {
+        List<Policy> policies = new ArrayList<>(policyCount + 1);
+        for (int i = 0; i < policyCount; i++) {
+            ResourceType resource = new ResourceType();
+            resource.setUriTemplate("/sites/" + site(i) + "/assets/{asset_id}");
+            SubjectType subject = new SubjectType();
+            subject.setAttributes(Collections.singletonList(new Attribute(ISSUER, "site")));
+
+            Policy policy = new Policy();
+            policy.setName("policy-" + i);
+            policy.setTarget(new Target("policy-" + i, subject, "GET, PUT", resource));
+            String condition = i % 2 == 0
+                    ? "match.single(subject.attributes('" + ISSUER + "', 'site'), '" + site(i) + "')"
+                    : GROOVY_CONDITION;
+            policy.setConditions(Collections.singletonList(new Condition(condition)));
+            policy.setEffect(Effect.PERMIT);
+            policies.add(policy);
+        }
+        Policy denyAll = new Policy();
+        denyAll.setName("deny-all");
+        denyAll.setEffect(Effect.DENY);
+        policies.add(denyAll);
+
+        PolicySet policySet = new PolicySet(name);
+        policySet.setPolicies(policies);
+        return policySet;
+    }
+
+    static String site(final int i) {
+        return "site" + i;
+    }
+
+    static String resourceUri(final int site) {
+        return "/sites/" + site(site) + "/assets/pump-" + site;
+    }
+
+    /**
+     * @return the attributes of a subject that is a manager of the given site
+     */
+    static Set<Attribute> subjectAttributes(final int site) {
+        return new HashSet<>(Arrays.asList(new Attribute(ISSUER, "site", site(site)),
+                new Attribute(ISSUER, "role", "manager:" + site(site)), new Attribute(ISSUER, "group", "operators")));
+    }
+
+    /**
+     * @return an attribute reader factory that reads the given attributes for every subject and no attribute for any
+     *         resource
+     */
+    static AttributeReaderFactory createAttributeReaderFactory(final Set<Attribute> subjectAttributes) {
+        SubjectAttributeReader subjectReader = stub(SubjectAttributeReader.class,
+                Collections.singletonMap("getAttributesByScope", subjectAttributes));
+        ResourceAttributeReader resourceReader = identifier -> Collections.emptySet();
+        return new AttributeReaderFactory() {
+            @Override
+            public ResourceAttributeReader getResourceAttributeReader() {
+                return resourceReader;
+            }
+
+            @Override
+            public SubjectAttributeReader getSubjectAttributeReader() {
+                return subjectReader;
+            }
+        };
+    }
+
+    /**
+     * @return an implementation of the given interface whose methods return the value registered for their name, or
+     *         false or null when no value is registered
+     */
+    static <T> T stub(final Class<T> type, final Map<String, ?> returnValues) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    if (returnValues.containsKey(method.getName())) {
+                        return returnValues.get(method.getName());
+                    }
+                    if (method.getReturnType() == boolean.class) {
+                        return false;
+                    }
+                    if (method.getReturnType().isPrimitive() && method.getReturnType() != void.class) {
+                        throw new UnsupportedOperationException("No value registered for " + method);
+                    }
+                    return null;
+                }));
+    }
+
+    /**
+     * Sets a field normally injected by Spring.
+     */
+    static void inject(final Object target, final String fieldName, final Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (null == field) {
+            throw new IllegalArgumentException("No field '" + fieldName + "' in " + target.getClass());
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
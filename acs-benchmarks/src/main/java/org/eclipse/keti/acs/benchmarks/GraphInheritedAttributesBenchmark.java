@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.janusgraph.core.JanusGraphFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.keti.acs.config.GraphConfig;
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.privilege.management.dao.GraphResourceRepository;
+import org.eclipse.keti.acs.privilege.management.dao.ResourceEntity;
+import org.eclipse.keti.acs.rest.Parent;
+import org.eclipse.keti.acs.utils.JsonUtils;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+
+/**
+ * Reads a resource along with the attributes it inherits from a chain of ancestors of growing length, from the
+ * in-memory JanusGraph backend.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.xml")
+public class GraphInheritedAttributesBenchmark {
+
+    private static final JsonUtils JSON_UTILS = new JsonUtils();
+    private static final int ATTRIBUTES_PER_RESOURCE = 3;
+
+    @Param({ "1", "4", "16" })
+    private int depth;
+
+    private Graph graph;
+    private GraphResourceRepository resourceRepository;
+    private ZoneEntity zone;
+    private String resourceIdentifier;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        this.graph = JanusGraphFactory.build().set("storage.backend", "inmemory").open();
+        GraphConfig.createSchemaElements(this.graph);
+        this.resourceRepository = new GraphResourceRepository();
+        this.resourceRepository.setGraphTraversal(this.graph.traversal());
+        this.zone = BenchmarkFixtures.createZone();
+
+        String parentIdentifier = null;
+        for (int level = 0; level <= this.depth; level++) {
+            ResourceEntity resource = new ResourceEntity(this.zone, "/sites/site1/level" + level);
+            Set<Attribute> attributes = new HashSet<>();
+            for (int i = 0; i < ATTRIBUTES_PER_RESOURCE; i++) {
+                attributes.add(new Attribute(BenchmarkFixtures.ISSUER, "attribute" + i, "level" + level));
+            }
+            resource.setAttributes(attributes);
+            resource.setAttributesAsJson(JSON_UTILS.serialize(attributes));
+            if (null != parentIdentifier) {
+                resource.setParents(Collections.singleton(new Parent(parentIdentifier)));
+            }
+            this.resourceRepository.save(resource);
+            parentIdentifier = resource.getResourceIdentifier();
+        }
+        this.resourceIdentifier = parentIdentifier;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.graph.close();
+    }
+
+    @Benchmark
+    public ResourceEntity getEntityWithInheritedAttributes() {
+        return this.resourceRepository.getEntityWithInheritedAttributes(this.zone, this.resourceIdentifier,
+                Collections.emptySet());
+    }
+}
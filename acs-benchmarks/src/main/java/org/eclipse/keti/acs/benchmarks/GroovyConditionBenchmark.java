@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpression;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpressionCompiler;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionParsingException;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionScript;
+import org.eclipse.keti.acs.commons.policy.condition.ResourceHandler;
+import org.eclipse.keti.acs.commons.policy.condition.SubjectHandler;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.AttributeMatcher;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionShell;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.InMemoryGroovyConditionCache;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
+
+/**
+ * Executes a policy condition the ways policy evaluation has done it: with a new shell that compiles the condition on
+ * every execution, with a shell that caches compiled conditions, with a condition compiled once per policy set, and
+ * with the condition compiled into a Java predicate.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.xml")
+public class GroovyConditionBenchmark {
+
+    private static final String CONDITION = "match.single(subject.attributes('" + BenchmarkFixtures.ISSUER
+            + "', 'site'), resource.uriVariable('site_id'))";
+
+    private GroovyConditionShell cachingShell;
+    private ConditionScript compiledScript;
+    private ConditionExpression expression;
+    private SubjectHandler subject;
+    private ResourceHandler resource;
+    private Map<String, Object> bindings;
+
+    @Setup
+    public void setup() throws ConditionParsingException {
+        this.cachingShell = new GroovyConditionShell(new InMemoryGroovyConditionCache());
+        this.compiledScript = new GroovyConditionShell(new NonCachingGroovyConditionCache()).compile(CONDITION);
+        this.expression = ConditionExpressionCompiler.compile(CONDITION);
+
+        this.subject = new SubjectHandler(BenchmarkFixtures.subjectAttributes(1));
+        this.resource = new ResourceHandler(null, "/sites/" + BenchmarkFixtures.site(1), "/sites/{site_id}");
+        this.bindings = new HashMap<>();
+        this.bindings.put("subject", this.subject);
+        this.bindings.put("resource", this.resource);
+        this.bindings.put("match", new AttributeMatcher());
+    }
+
+    @Benchmark
+    public boolean newShellPerExecution() throws ConditionParsingException {
+        return new GroovyConditionShell(new NonCachingGroovyConditionCache()).execute(CONDITION, this.bindings);
+    }
+
+    @Benchmark
+    public boolean cachingShell() throws ConditionParsingException {
+        return this.cachingShell.execute(CONDITION, this.bindings);
+    }
+
+    @Benchmark
+    public boolean compiledScript() {
+        return this.compiledScript.execute(this.bindings);
+    }
+
+    @Benchmark
+    public boolean javaExpression() {
+        return this.expression.evaluate(this.subject, this.resource);
+    }
+}
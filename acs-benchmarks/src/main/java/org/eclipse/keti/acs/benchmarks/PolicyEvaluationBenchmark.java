@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.keti.acs.attribute.connector.management.AttributeConnectorService;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.policy.evaluation.cache.InMemoryPolicyEvaluationCache;
+import org.eclipse.keti.acs.policy.evaluation.cache.NonCachingPolicyEvaluationCache;
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
+import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
+import org.eclipse.keti.acs.service.policy.admin.PolicyManagementService;
+import org.eclipse.keti.acs.service.policy.evaluation.PolicyEvaluationServiceImpl;
+import org.eclipse.keti.acs.service.policy.matcher.PolicyMatcherImpl;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.eclipse.keti.acs.zone.resolver.ZoneResolver;
+
+/**
+ * Evaluates a policy evaluation request end to end, with the decision served from the decision cache and with the
+ * decision computed on every request.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.xml")
+public class PolicyEvaluationBenchmark {
+
+    @Param({ "10", "1000" })
+    private int policyCount;
+
+    private PolicyEvaluationServiceImpl cachingEvaluationService;
+    private PolicyEvaluationServiceImpl nonCachingEvaluationService;
+    private PolicyEvaluationRequestV1 request;
+
+    @Setup
+    public void setup() {
+        int site = this.policyCount / 2;
+        List<CompiledPolicySet> policySets = Collections.singletonList(
+                new CompiledPolicySet(BenchmarkFixtures.createPolicySet("benchmark", this.policyCount)));
+
+        InMemoryPolicyEvaluationCache cache = new InMemoryPolicyEvaluationCache();
+        BenchmarkFixtures.inject(cache, "connectorService",
+                BenchmarkFixtures.stub(AttributeConnectorService.class, Collections.emptyMap()));
+        this.cachingEvaluationService = createEvaluationService(policySets, site, cache);
+        this.nonCachingEvaluationService = createEvaluationService(policySets, site,
+                new NonCachingPolicyEvaluationCache());
+
+        this.request = new PolicyEvaluationRequestV1();
+        this.request.setAction("GET");
+        this.request.setResourceIdentifier(BenchmarkFixtures.resourceUri(site));
+        this.request.setSubjectIdentifier("subject");
+
+        // Both services must reach the same decision; this also puts the decision in the cache.
+        Effect effect = this.cachingEvaluationService.evalPolicy(this.request).getEffect();
+        if (Effect.PERMIT != effect || effect != this.nonCachingEvaluationService.evalPolicy(this.request)
+                .getEffect()) {
+            throw new IllegalStateException("Unexpected decision: " + effect);
+        }
+    }
+
+    private static PolicyEvaluationServiceImpl createEvaluationService(final List<CompiledPolicySet> policySets,
+            final int site, final PolicyEvaluationCache cache) {
+        ZoneEntity zone = BenchmarkFixtures.createZone();
+        PolicyMatcherImpl policyMatcher = new PolicyMatcherImpl();
+        BenchmarkFixtures.inject(policyMatcher, "attributeReaderFactory",
+                BenchmarkFixtures.createAttributeReaderFactory(BenchmarkFixtures.subjectAttributes(site)));
+
+        PolicyEvaluationServiceImpl evaluationService = new PolicyEvaluationServiceImpl();
+        BenchmarkFixtures.inject(evaluationService, "cache", cache);
+        BenchmarkFixtures.inject(evaluationService, "policyService", BenchmarkFixtures.stub(
+                PolicyManagementService.class, Collections.singletonMap("getAllCompiledPolicySets", policySets)));
+        BenchmarkFixtures.inject(evaluationService, "policyMatcher", policyMatcher);
+        BenchmarkFixtures.inject(evaluationService, "zoneResolver",
+                (ZoneResolver) () -> zone);
+        return evaluationService;
+    }
+
+    @Benchmark
+    public PolicyEvaluationResult evalPolicyCacheHit() {
+        return this.cachingEvaluationService.evalPolicy(this.request);
+    }
+
+    @Benchmark
+    public PolicyEvaluationResult evalPolicyCacheMiss() {
+        return this.nonCachingEvaluationService.evalPolicy(this.request);
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.keti.acs.attribute.connector.management.AttributeConnectorService;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.policy.evaluation.cache.InMemoryPolicyEvaluationCache;
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationRequestCacheKey;
+import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+
+/**
+ * Looks up a cached decision, including the validation of the decision against the timestamps of the policy sets,
+ * subject and resource it depends on, and looks up a decision that is not cached.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.xml")
+public class PolicyEvaluationCacheBenchmark {
+
+    private InMemoryPolicyEvaluationCache cache;
+    private PolicyEvaluationRequestCacheKey cachedKey;
+    private PolicyEvaluationRequestCacheKey uncachedKey;
+
+    @Setup
+    public void setup() {
+        this.cache = new InMemoryPolicyEvaluationCache();
+        BenchmarkFixtures.inject(this.cache, "connectorService",
+                BenchmarkFixtures.stub(AttributeConnectorService.class, Collections.emptyMap()));
+
+        String zoneName = BenchmarkFixtures.createZone().getName();
+        this.cachedKey = new PolicyEvaluationRequestCacheKey(createRequest(1), zoneName);
+        this.uncachedKey = new PolicyEvaluationRequestCacheKey(createRequest(2), zoneName);
+        this.cache.set(this.cachedKey, new PolicyEvaluationResult(Effect.PERMIT,
+                BenchmarkFixtures.subjectAttributes(1), Collections.emptyList(),
+                Collections.singleton(BenchmarkFixtures.resourceUri(1))));
+        if (null == this.cache.get(this.cachedKey)) {
+            throw new IllegalStateException("The decision was not cached.");
+        }
+    }
+
+    private static PolicyEvaluationRequestV1 createRequest(final int site) {
+        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
+        request.setAction("GET");
+        request.setResourceIdentifier(BenchmarkFixtures.resourceUri(site));
+        request.setSubjectIdentifier("subject-" + site);
+        request.setPolicySetsEvaluationOrder(new LinkedHashSet<>(Collections.singletonList("benchmark")));
+        return request;
+    }
+
+    @Benchmark
+    public PolicyEvaluationResult getCached() {
+        return this.cache.get(this.cachedKey);
+    }
+
+    @Benchmark
+    public PolicyEvaluationResult getUncached() {
+        return this.cache.get(this.uncachedKey);
+    }
+}
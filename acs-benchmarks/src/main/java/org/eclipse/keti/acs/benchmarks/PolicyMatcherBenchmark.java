@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
+import org.eclipse.keti.acs.service.policy.matcher.MatchResult;
+import org.eclipse.keti.acs.service.policy.matcher.PolicyMatchCandidate;
+import org.eclipse.keti.acs.service.policy.matcher.PolicyMatcherImpl;
+
+/**
+ * Matches a request against a policy set of growing size, for a request that one policy applies to and for a request
+ * whose resource URI no policy matches.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.xml")
+public class PolicyMatcherBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    private int policyCount;
+
+    private PolicyMatcherImpl policyMatcher;
+    private CompiledPolicySet policySet;
+    private PolicyMatchCandidate matchingCandidate;
+    private PolicyMatchCandidate unmatchedCandidate;
+
+    @Setup
+    public void setup() {
+        int site = this.policyCount / 2;
+        this.policyMatcher = new PolicyMatcherImpl();
+        BenchmarkFixtures.inject(this.policyMatcher, "attributeReaderFactory",
+                BenchmarkFixtures.createAttributeReaderFactory(BenchmarkFixtures.subjectAttributes(site)));
+        this.policySet = new CompiledPolicySet(BenchmarkFixtures.createPolicySet("benchmark", this.policyCount));
+        this.matchingCandidate = new PolicyMatchCandidate("GET", BenchmarkFixtures.resourceUri(site), "subject",
+                Collections.emptySet(), Collections.emptySet());
+        this.unmatchedCandidate = new PolicyMatchCandidate("GET", "/unknown/" + site, "subject",
+                Collections.emptySet(), Collections.emptySet());
+    }
+
+    @Benchmark
+    public MatchResult matchForResult() {
+        return this.policyMatcher.matchForResult(this.matchingCandidate, this.policySet);
+    }
+
+    @Benchmark
+    public MatchResult matchForResultNoMatchingUri() {
+        return this.policyMatcher.matchForResult(this.unmatchedCandidate, this.policySet);
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.util.UriTemplate;
+
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
+import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.model.ResourceType;
+import org.eclipse.keti.acs.model.Target;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicy;
+
+/**
+ * Matches a request URI against the resource URI templates of a policy set, parsing every template for every request
+ * as policy matching used to, against using cached templates and canonicalizing the request URI only once.
+ *
+ * @author acs-engineers@ge.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriTemplateMatchBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int policyCount;
+
+    private List<String> uriTemplates;
+    private List<CompiledPolicy> compiledPolicies;
+    private String resourceUri;
+
+    @Setup
+    public void setup() {
+        this.uriTemplates = new ArrayList<>(this.policyCount);
+        this.compiledPolicies = new ArrayList<>(this.policyCount);
+        for (int i = 0; i < this.policyCount; i++) {
+            String uriTemplate = "/sites/site" + i + "/assets/{asset_id}";
+            this.uriTemplates.add(uriTemplate);
+
+            ResourceType resource = new ResourceType();
+            resource.setUriTemplate(uriTemplate);
+            Policy policy = new Policy();
+            policy.setName("policy" + i);
+            policy.setTarget(new Target("policy" + i, null, "GET", resource));
+            this.compiledPolicies.add(new CompiledPolicy(policy));
+        }
+        this.resourceUri = "/sites/site" + (this.policyCount / 2) + "/assets/../assets/pump";
+    }
+
+    @Benchmark
+    public int parseTemplatePerMatch() {
+        int matches = 0;
+        for (String uriTemplate : this.uriTemplates) {
+            UriTemplate template = new UriTemplate(UriTemplateUtils.appendTrailingSlash(uriTemplate));
+            if (template.matches(UriTemplateUtils.canonicalize(this.resourceUri))) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int cachedTemplates() {
+        int matches = 0;
+        for (String uriTemplate : this.uriTemplates) {
+            if (UriTemplateUtils.isCanonicalMatch(uriTemplate, this.resourceUri)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiledPoliciesCanonicalizedOnce() {
+        int matches = 0;
+        String canonicalResourceUri = UriTemplateUtils.canonicalize(this.resourceUri);
+        for (CompiledPolicy policy : this.compiledPolicies) {
+            if (policy.isCanonicalResourceUriMatch(canonicalResourceUri)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.commons.policy.condition;
+
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Policy condition compiled into a plain Java predicate by {@link ConditionExpressionCompiler}. It evaluates to the
+ * same result as the Groovy script compiled from the same condition, without going through Groovy.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class ConditionExpression implements ConditionScript {
+
+    private final String condition;
+    private final BiPredicate<SubjectHandler, ResourceHandler> predicate;
+
+    ConditionExpression(final String condition, final BiPredicate<SubjectHandler, ResourceHandler> predicate) {
+        this.condition = condition;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Evaluates the condition against the given handlers, without requiring a map of bound variables.
+     *
+     * @param subject
+     *            the handler bound to 'subject' in the condition
+     * @param resource
+     *            the handler bound to 'resource' in the condition
+     * @return true or false
+     */
+    public boolean evaluate(final SubjectHandler subject, final ResourceHandler resource) {
+        return this.predicate.test(subject, resource);
+    }
+
+    @Override
+    public boolean execute(final Map<String, Object> boundVariables) {
+        return evaluate((SubjectHandler) boundVariables.get("subject"),
+                (ResourceHandler) boundVariables.get("resource"));
+    }
+
+    @Override
+    public String toString() {
+        return this.condition;
+    }
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.commons.policy.condition;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.eclipse.keti.acs.commons.policy.condition.groovy.AttributeMatcher;
+
+/**
+ * Compiles the most common shapes of policy conditions into plain Java predicates, so that they can be evaluated
+ * without going through Groovy. A supported condition combines, with '!', '&&', '||' and parentheses, any of:
+ * <ul>
+ * <li>match.single(SET, STRING)</li>
+ * <li>match.any(SET, SET)</li>
+ * <li>STRING == STRING, STRING != STRING and STRING.equals(STRING)</li>
+ * </ul>
+ * where SET is subject.attributes('issuer', 'name') or resource.attributes('issuer', 'name'), and STRING is a string
+ * literal or resource.uriVariable('name'). As in Groovy, '!' only negates the operand that follows it, so '!STRING' is
+ * true when STRING is null or empty, and '!STRING == STRING' compares that boolean with a string. Conditions of any
+ * other shape are left to Groovy.
+ *
+ * @author acs-engineers@ge.com
+ */
+@SuppressWarnings("nls")
+public final class ConditionExpressionCompiler {
+
+    private static final AttributeMatcher MATCHER = new AttributeMatcher();
+
+    private final String condition;
+    private int position;
+
+    private ConditionExpressionCompiler(final String condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * @param condition
+     *            the policy condition string
+     * @return the compiled condition, or null if the condition is not of a supported shape
+     */
+    public static ConditionExpression compile(final String condition) {
+        if (StringUtils.isBlank(condition)) {
+            return null;
+        }
+        ConditionExpressionCompiler compiler = new ConditionExpressionCompiler(condition);
+        try {
+            BiPredicate<SubjectHandler, ResourceHandler> predicate = compiler.or();
+            compiler.skipWhitespace();
+            if (!compiler.atEnd()) {
+                return null;
+            }
+            return new ConditionExpression(condition, predicate);
+        } catch (UnsupportedConditionException e) {
+            return null;
+        }
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> or() {
+        BiPredicate<SubjectHandler, ResourceHandler> predicate = and();
+        while (accept("||")) {
+            predicate = predicate.or(and());
+        }
+        return predicate;
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> and() {
+        BiPredicate<SubjectHandler, ResourceHandler> predicate = not();
+        while (accept("&&")) {
+            predicate = predicate.and(not());
+        }
+        return predicate;
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> not() {
+        if (!lookingAt("!=") && accept("!")) {
+            return negation();
+        }
+        if (accept("(")) {
+            BiPredicate<SubjectHandler, ResourceHandler> predicate = or();
+            expect(")");
+            return predicate;
+        }
+        return comparison();
+    }
+
+    /**
+     * '!' binds tighter than '==' and '!=' in Groovy, so in '!a == b' only a is negated, and the resulting boolean
+     * is compared with the string b, which it never equals.
+     */
+    private BiPredicate<SubjectHandler, ResourceHandler> negation() {
+        BiPredicate<SubjectHandler, ResourceHandler> operand = operand();
+        if (accept("==")) {
+            string();
+            return (s, r) -> false;
+        }
+        if (accept("!=")) {
+            string();
+            return (s, r) -> true;
+        }
+        return operand.negate();
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> operand() {
+        if (!lookingAt("!=") && accept("!")) {
+            return operand().negate();
+        }
+        if (accept("(")) {
+            BiPredicate<SubjectHandler, ResourceHandler> predicate = or();
+            expect(")");
+            return predicate;
+        }
+        int start = this.position;
+        if (lookingAt("match") && "match".equals(identifier())) {
+            return match();
+        }
+        this.position = start;
+        BiFunction<SubjectHandler, ResourceHandler, String> value = string();
+        if (lookingAt(".")) {
+            return equalsCall(value);
+        }
+        // The Groovy truth of a string is whether it is neither null nor empty.
+        return (s, r) -> StringUtils.isNotEmpty(value.apply(s, r));
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> comparison() {
+        int start = this.position;
+        if (lookingAt("match") && "match".equals(identifier())) {
+            return match();
+        }
+
+        this.position = start;
+        BiFunction<SubjectHandler, ResourceHandler, String> left = string();
+        if (accept("==")) {
+            BiFunction<SubjectHandler, ResourceHandler, String> right = string();
+            return (s, r) -> Objects.equals(left.apply(s, r), right.apply(s, r));
+        }
+        if (accept("!=")) {
+            BiFunction<SubjectHandler, ResourceHandler, String> right = string();
+            return (s, r) -> !Objects.equals(left.apply(s, r), right.apply(s, r));
+        }
+        return equalsCall(left);
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> match() {
+        expect(".");
+        String method = identifier();
+        expect("(");
+        BiFunction<SubjectHandler, ResourceHandler, Set<String>> source = attributes();
+        expect(",");
+        BiPredicate<SubjectHandler, ResourceHandler> predicate;
+        if ("single".equals(method)) {
+            BiFunction<SubjectHandler, ResourceHandler, String> value = string();
+            predicate = (s, r) -> MATCHER.single(source.apply(s, r), value.apply(s, r));
+        } else if ("any".equals(method)) {
+            BiFunction<SubjectHandler, ResourceHandler, Set<String>> target = attributes();
+            predicate = (s, r) -> MATCHER.any(source.apply(s, r), target.apply(s, r));
+        } else {
+            throw new UnsupportedConditionException();
+        }
+        expect(")");
+        return predicate;
+    }
+
+    private BiPredicate<SubjectHandler, ResourceHandler> equalsCall(
+            final BiFunction<SubjectHandler, ResourceHandler, String> left) {
+        expect(".");
+        if (!"equals".equals(identifier())) {
+            throw new UnsupportedConditionException();
+        }
+        expect("(");
+        BiFunction<SubjectHandler, ResourceHandler, String> right = string();
+        expect(")");
+        return (s, r) -> left.apply(s, r).equals(right.apply(s, r));
+    }
+
+    private BiFunction<SubjectHandler, ResourceHandler, Set<String>> attributes() {
+        String handler = identifier();
+        expect(".");
+        if (!"attributes".equals(identifier())) {
+            throw new UnsupportedConditionException();
+        }
+        expect("(");
+        String issuer = literal();
+        expect(",");
+        String name = literal();
+        expect(")");
+        if ("subject".equals(handler)) {
+            return (s, r) -> s.attributes(issuer, name);
+        }
+        if ("resource".equals(handler)) {
+            return (s, r) -> r.attributes(issuer, name);
+        }
+        throw new UnsupportedConditionException();
+    }
+
+    private BiFunction<SubjectHandler, ResourceHandler, String> string() {
+        skipWhitespace();
+        if (lookingAt("'") || lookingAt("\"")) {
+            String value = literal();
+            return (s, r) -> value;
+        }
+        if (!"resource".equals(identifier())) {
+            throw new UnsupportedConditionException();
+        }
+        expect(".");
+        if (!"uriVariable".equals(identifier())) {
+            throw new UnsupportedConditionException();
+        }
+        expect("(");
+        String variable = literal();
+        expect(")");
+        return (s, r) -> r.uriVariable(variable);
+    }
+
+    private String literal() {
+        skipWhitespace();
+        if (atEnd()) {
+            throw new UnsupportedConditionException();
+        }
+        char quote = this.condition.charAt(this.position);
+        if (quote != '\'' && quote != '"') {
+            throw new UnsupportedConditionException();
+        }
+        int end = this.condition.indexOf(quote, this.position + 1);
+        if (end < 0) {
+            throw new UnsupportedConditionException();
+        }
+        String value = this.condition.substring(this.position + 1, end);
+        // Escapes, interpolation and multi-line strings are left to Groovy.
+        if (StringUtils.containsAny(value, "\\\r\n") || (quote == '"' && value.indexOf('$') >= 0)) {
+            throw new UnsupportedConditionException();
+        }
+        this.position = end + 1;
+        return value;
+    }
+
+    private String identifier() {
+        skipWhitespace();
+        int start = this.position;
+        while (!atEnd() && (Character.isLetterOrDigit(this.condition.charAt(this.position))
+                || this.condition.charAt(this.position) == '_')) {
+            this.position++;
+        }
+        if (start == this.position) {
+            throw new UnsupportedConditionException();
+        }
+        return this.condition.substring(start, this.position);
+    }
+
+    private void expect(final String token) {
+        if (!accept(token)) {
+            throw new UnsupportedConditionException();
+        }
+    }
+
+    private boolean accept(final String token) {
+        if (lookingAt(token)) {
+            this.position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean lookingAt(final String token) {
+        skipWhitespace();
+        return this.condition.startsWith(token, this.position);
+    }
+
+    private void skipWhitespace() {
+        // Line breaks end statements in Groovy, so they are not skipped.
+        while (!atEnd() && (this.condition.charAt(this.position) == ' '
+                || this.condition.charAt(this.position) == '\t')) {
+            this.position++;
+        }
+    }
+
+    private boolean atEnd() {
+        return this.position >= this.condition.length();
+    }
+
+    private static final class UnsupportedConditionException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Set;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.UriTemplate;
 
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
 import org.eclipse.keti.acs.model.Attribute;
 
 /**
@@ -64,7 +65,7 @@ public class ResourceHandler extends AbstractHandler {
                 || StringUtils.isEmpty(pathVariable)) {
             return "";
         }
-        UriTemplate template = new UriTemplate(this.resourceURITemplate);
+        UriTemplate template = UriTemplateUtils.getUriTemplate(this.resourceURITemplate);
         Map<String, String> match = template.match(this.resourceURI);
         String pathVariableValue = match.get(pathVariable);
         return pathVariableValue != null ? pathVariableValue : "";
@@ -18,6 +18,8 @@
 
 package org.eclipse.keti.acs.commons.policy.condition.groovy;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -30,6 +32,8 @@ import groovy.lang.Binding;
 import groovy.lang.Script;
 
 /**
+ * Compiled policy condition script. The compiled script class is shared, but every execution runs on a new instance
+ * of it bound to the variables of that execution, so a script can be executed by many threads at once.
  *
  * @author acs-engineers@ge.com
  */
@@ -37,14 +41,18 @@ import groovy.lang.Script;
 public class GroovyConditionScript implements ConditionScript {
     private static final Logger LOGGER = LoggerFactory.getLogger(GroovyConditionScript.class);
 
-    private final Script script;
+    private final Constructor<? extends Script> scriptConstructor;
 
     /**
      * @param script
      *            the script object.
      */
     public GroovyConditionScript(final Script script) {
-        this.script = script;
+        try {
+            this.scriptConstructor = script.getClass().getConstructor(Binding.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Script class has no binding constructor: " + script.getClass(), e);
+        }
     }
 
     /*
@@ -63,9 +71,17 @@ public class GroovyConditionScript implements ConditionScript {
             LOGGER.debug(msgBuilder.toString());
         }
 
-        Binding binding = new Binding(boundVariables);
-        this.script.setBinding(binding);
-        return (boolean) this.script.run();
+        return (boolean) newScript(new Binding(boundVariables)).run();
+    }
+
+    private Script newScript(final Binding binding) {
+        try {
+            return this.scriptConstructor.newInstance(binding);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to instantiate the condition script.", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to instantiate the condition script.", e);
+        }
     }
 
 }
@@ -108,6 +108,29 @@ public class GroovyConditionShell {
         }
     }
 
+    /**
+     * Validates the script & generates condition script object meant to be executed many times, e.g. for as long as
+     * the policy set it belongs to is in use. Unlike {@link #parse(String)}, the classes loaded for the script are
+     * kept until {@link #release()} is called.
+     *
+     * @param script
+     *            the policy condition string
+     * @return a Script object instance capable of executing the policy condition.
+     * @throws ConditionParsingException
+     *             on validation error
+     */
+    public ConditionScript compile(final String script) throws ConditionParsingException {
+        return parse(script, false);
+    }
+
+    /**
+     * Unloads the classes of the scripts compiled by this shell so that they, along with the class loader of the
+     * shell, can be garbage collected once the scripts are no longer used.
+     */
+    public void release() {
+        removeLoadedClasses();
+    }
+
     /**
      * Validates & executes the policy condition script.
      *
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.commons.web;
+
+import org.springframework.web.util.UriTemplate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded, thread-safe cache of parsed URI templates. Parsing a {@link UriTemplate} compiles a regular expression, so
+ * templates that are matched over and over again, such as those of policies, should only be parsed once. Parsed
+ * templates are immutable and can be shared across threads.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class UriTemplateCache {
+
+    private final Cache<String, UriTemplate> uriTemplates;
+
+    /**
+     * @param maxSize
+     *            maximum number of parsed templates to keep; once reached, the least recently used templates are
+     *            evicted
+     */
+    public UriTemplateCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of the URI template cache must be positive.");
+        }
+        this.uriTemplates = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * @param uriTemplate
+     *            the URI template string
+     * @return the parsed URI template
+     * @throws IllegalArgumentException
+     *             if the URI template is malformed; malformed templates are not cached
+     */
+    public UriTemplate get(final String uriTemplate) {
+        UriTemplate parsedUriTemplate = this.uriTemplates.getIfPresent(uriTemplate);
+        if (null != parsedUriTemplate) {
+            return parsedUriTemplate;
+        }
+
+        parsedUriTemplate = new UriTemplate(uriTemplate);
+        UriTemplate cachedUriTemplate = this.uriTemplates.asMap().putIfAbsent(uriTemplate, parsedUriTemplate);
+        return null == cachedUriTemplate ? parsedUriTemplate : cachedUriTemplate;
+    }
+
+    public long size() {
+        return this.uriTemplates.size();
+    }
+}
@@ -30,6 +30,10 @@ import org.springframework.web.util.UriTemplate;
 @SuppressWarnings("nls")
 public final class UriTemplateUtils {
 
+    private static final int MAX_CACHED_URI_TEMPLATES = 4096;
+
+    private static final UriTemplateCache URI_TEMPLATES = new UriTemplateCache(MAX_CACHED_URI_TEMPLATES);
+
     private UriTemplateUtils() {
         // Prevents instantiation.
     }
@@ -46,7 +50,7 @@ public final class UriTemplateUtils {
      */
     public static URI expand(final String uriTemplate, final String... keyValues) {
 
-        UriTemplate template = new UriTemplate(uriTemplate);
+        UriTemplate template = getUriTemplate(uriTemplate);
         Map<String, String> uriVariables = new HashMap<>();
 
         for (String kv : keyValues) {
@@ -57,9 +61,30 @@ public final class UriTemplateUtils {
     }
 
     public static boolean isCanonicalMatch(final String uriTemplateDef, final String resourceUri) {
-        String canonicalResourceURI = URI.create(resourceUri).normalize().toString();
-        UriTemplate uriTemplate = new UriTemplate(appendTrailingSlash(uriTemplateDef));
-        return uriTemplate.matches(appendTrailingSlash(canonicalResourceURI));
+        String canonicalResourceURI = canonicalize(resourceUri);
+        return getCanonicalUriTemplate(uriTemplateDef).matches(canonicalResourceURI);
+    }
+
+    /**
+     * @return the normalized form of the resource URI with a trailing slash appended, as it is matched against
+     *         canonical URI templates
+     */
+    public static String canonicalize(final String resourceUri) {
+        return appendTrailingSlash(URI.create(resourceUri).normalize().toString());
+    }
+
+    /**
+     * @return the parsed URI template, shared with every other caller asking for the same template
+     */
+    public static UriTemplate getUriTemplate(final String uriTemplate) {
+        return URI_TEMPLATES.get(uriTemplate);
+    }
+
+    /**
+     * @return the parsed URI template with a trailing slash appended, as used to match canonical resource URIs
+     */
+    public static UriTemplate getCanonicalUriTemplate(final String uriTemplate) {
+        return URI_TEMPLATES.get(appendTrailingSlash(uriTemplate));
     }
 
     public static String appendTrailingSlash(final String s) {
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.commons.policy.condition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.commons.policy.condition.groovy.AttributeMatcher;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionShell;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
+import org.eclipse.keti.acs.model.Attribute;
+
+/**
+ * Differential tests checking that conditions compiled into Java predicates evaluate to the same result as the
+ * Groovy scripts compiled from the same conditions.
+ *
+ * @author acs-engineers@ge.com
+ */
+public class ConditionExpressionCompilerTest {
+    private static final String ISSUER = "https://acs.attributes.int";
+    private static final String SITE_TEMPLATE = "/sites/{site_id}";
+
+    private final GroovyConditionShell shell = new GroovyConditionShell(new NonCachingGroovyConditionCache());
+
+    @Test(dataProvider = "supportedConditions")
+    public void testCompiledConditionMatchesGroovy(final String condition) throws ConditionParsingException {
+        ConditionExpression expression = ConditionExpressionCompiler.compile(condition);
+        Assert.assertNotNull(expression, condition);
+
+        for (Object[] handlers : handlers()) {
+            SubjectHandler subject = (SubjectHandler) handlers[0];
+            ResourceHandler resource = (ResourceHandler) handlers[1];
+            boolean expected = this.shell.execute(condition, bindings(subject, resource));
+            Assert.assertEquals(expression.evaluate(subject, resource), expected,
+                    condition + " with " + subject + " and " + resource);
+            Assert.assertEquals(expression.execute(bindings(subject, resource)), expected, condition);
+        }
+    }
+
+    @Test(dataProvider = "unsupportedConditions")
+    public void testUnsupportedConditionIsLeftToGroovy(final String condition) {
+        Assert.assertNull(ConditionExpressionCompiler.compile(condition), condition);
+    }
+
+    @DataProvider
+    public Object[][] supportedConditions() {
+        return new Object[][] {
+                { "match.single(subject.attributes('" + ISSUER + "', 'site'), 'sanramon')" },
+                { "match.single(subject.attributes(\"" + ISSUER + "\", \"site\"), \"sanramon\")" },
+                { "match.single(resource.attributes('" + ISSUER + "', 'site'), 'sanramon')" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'site'), resource.uriVariable('site_id'))" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'unknown'), resource.uriVariable('site_id'))" },
+                { "match.any(subject.attributes('" + ISSUER + "', 'group'), resource.attributes('" + ISSUER
+                        + "', 'group'))" },
+                { "match.any(subject.attributes('" + ISSUER + "', 'name_id'), resource.attributes('" + ISSUER
+                        + "', 'owner'))" },
+                { "resource.uriVariable('site_id') == 'sanramon'" },
+                { "resource.uriVariable('site_id') != 'sanramon'" },
+                { "resource.uriVariable('unknown') == ''" },
+                { "resource.uriVariable('site_id').equals('sanramon')" },
+                { "'sanramon'.equals('ny')" },
+                { "'sanramon'.equals('sanramon')" },
+                { "!match.single(subject.attributes('" + ISSUER + "', 'site'), 'sanramon')" },
+                { "!(resource.uriVariable('site_id') == 'ny')" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'role'), 'admin') || "
+                        + "match.single(subject.attributes('" + ISSUER + "', 'site'), "
+                        + "resource.uriVariable('site_id'))" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'role'), 'admin') && "
+                        + "resource.uriVariable('site_id') == 'sanramon'" },
+                { "(match.single(subject.attributes('" + ISSUER + "', 'role'), 'admin') || 'a' == 'b') && "
+                        + "!('x' != 'x')" },
+                { "'a' == 'a' || 'a' == 'b' && 'b' == 'c'" },
+                { "!resource.uriVariable('site_id') == 'sanramon'" }, { "!'a' == 'b'" },
+                { "!resource.uriVariable('site_id') != 'x'" }, { "!!resource.uriVariable('site_id') == 'x'" },
+                { "!resource.uriVariable('site_id')" }, { "!'a'.equals('b')" },
+                { "!(resource.uriVariable('site_id') == 'ny') != 'x' && 'a' == 'a'" }, };
+    }
+
+    @DataProvider
+    public Object[][] unsupportedConditions() {
+        return new Object[][] { { "" }, { "   " }, { "true" },
+                { "subject.attributes('" + ISSUER + "', 'site') == 'sanramon'" },
+                { "subject.attributes('https://acs.apm.ge.com', 'role')*.split(':').any { sa -> sa.size() > 0 }" },
+                { "resource.and(subject).haveSame('" + ISSUER + "', 'group').result()" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'site'), resource.uri.placeHolder('site'))" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'site'), \"${'sanramon'}\")" },
+                { "match.single(subject.attributes('" + ISSUER + "', 'site'), 'san\\'ramon')" },
+                { "resource.uriVariable('site_id') == 'a'\n|| 'a' == 'a'" },
+                { "resource = null; resource == null;" }, { "'a' == 'a' & 'b' == 'b'" },
+                { "'a' == 'a' == true" }, { "System.exit(0)" }, { "match.none(subject.attributes('a', 'b'), 'c')" },
+                { "(resource.uriVariable('site_id')) == 'sanramon'" }, { "'a' == 'a' // comment" }, };
+    }
+
+    private static List<Object[]> handlers() {
+        List<Object[]> handlers = new ArrayList<>();
+        List<SubjectHandler> subjects = Arrays.asList(new SubjectHandler(new HashSet<>()),
+                new SubjectHandler(attributes("site", "sanramon", "group", "admin", "name_id", "bob")),
+                new SubjectHandler(attributes("site", "ny", "role", "admin", "group", "operator")));
+        List<String> resourceUris = Arrays.asList("/sites/sanramon", "/sites/ny", "");
+        for (SubjectHandler subject : subjects) {
+            for (String resourceUri : resourceUris) {
+                handlers.add(new Object[] { subject,
+                        new ResourceHandler(new HashSet<>(), resourceUri, SITE_TEMPLATE) });
+                handlers.add(new Object[] { subject, new ResourceHandler(
+                        attributes("site", "sanramon", "group", "admin", "owner", "bob"), resourceUri, null) });
+            }
+        }
+        return handlers;
+    }
+
+    private static HashSet<Attribute> attributes(final String... namesAndValues) {
+        HashSet<Attribute> attributes = new HashSet<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            attributes.add(new Attribute(ISSUER, namesAndValues[i], namesAndValues[i + 1]));
+        }
+        return attributes;
+    }
+
+    private static Map<String, Object> bindings(final SubjectHandler subject, final ResourceHandler resource) {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("subject", subject);
+        bindings.put("resource", resource);
+        bindings.put("match", new AttributeMatcher());
+        return bindings;
+    }
+}
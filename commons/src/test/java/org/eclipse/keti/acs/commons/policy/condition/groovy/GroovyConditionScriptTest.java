@@ -18,9 +18,16 @@
 
 package org.eclipse.keti.acs.commons.policy.condition.groovy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -152,4 +159,44 @@ public class GroovyConditionScriptTest {
         Assert.assertEquals(parsedScript.execute(parameter), true);
         Assert.assertNotNull(resourceHandler);
     }
+
+    /**
+     * Test the concurrent execution of the same policy condition by many threads, each with its own variable
+     * bindings.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentScriptExecutionWithDifferentBindings() throws Exception {
+        final ConditionScript parsedScript = this.shell.parse("resource.uriVariable(\"site_id\") == \"sanramon\"");
+        final int threads = 8;
+        final int executionsPerThread = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> mismatches = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String site = t % 2 == 0 ? "sanramon" : "boston";
+                mismatches.add(executor.submit((Callable<Integer>) () -> {
+                    Map<String, Object> parameter = new HashMap<>();
+                    parameter.put("resource", new ResourceHandler(new HashSet<Attribute>(), "/sites/" + site,
+                            "/sites/{site_id}"));
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < executionsPerThread; i++) {
+                        if (parsedScript.execute(parameter) != "sanramon".equals(site)) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> threadMismatches : mismatches) {
+                Assert.assertEquals(threadMismatches.get().intValue(), 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.commons.web;
+
+import org.springframework.web.util.UriTemplate;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@SuppressWarnings({ "javadoc", "nls" })
+public class UriTemplateCacheTest {
+
+    @Test
+    public void testParsedTemplateIsShared() {
+        UriTemplateCache cache = new UriTemplateCache(10);
+        UriTemplate uriTemplate = cache.get("/sites/{site_id}");
+
+        Assert.assertSame(cache.get("/sites/{site_id}"), uriTemplate);
+        Assert.assertTrue(uriTemplate.matches("/sites/sanramon"));
+        Assert.assertEquals(cache.size(), 1L);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        UriTemplateCache cache = new UriTemplateCache(3);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(cache.get("/sites/" + i + "/{asset_id}").matches("/sites/" + i + "/pump"));
+        }
+        Assert.assertEquals(cache.size(), 3L);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTemplateIsEvicted() {
+        UriTemplateCache cache = new UriTemplateCache(3);
+        UriTemplate hotUriTemplate = cache.get("/sites/{site_id}");
+        for (int i = 0; i < 10; i++) {
+            cache.get("/sites/" + i + "/{asset_id}");
+            Assert.assertSame(cache.get("/sites/{site_id}"), hotUriTemplate);
+        }
+        Assert.assertEquals(cache.size(), 3L);
+    }
+
+    @Test
+    public void testMalformedTemplateIsNotCached() {
+        UriTemplateCache cache = new UriTemplateCache(10);
+        try {
+            cache.get("/sites/{site_id:[}");
+            Assert.fail("Expected the malformed URI template to be rejected.");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMaximumSizeMustBePositive() {
+        new UriTemplateCache(0);
+    }
+}
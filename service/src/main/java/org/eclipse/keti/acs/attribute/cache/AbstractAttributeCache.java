@@ -18,13 +18,23 @@
 
 package org.eclipse.keti.acs.attribute.cache;
 
+import org.eclipse.keti.acs.config.RedisKeyScanner;
+
 public abstract class AbstractAttributeCache implements AttributeCache {
 
     static String resourceKey(final String zoneId, final String identifier) {
-        return zoneId + ":attr-res-id:" + Integer.toHexString(identifier.hashCode());
+        return resourceKeyPrefix(zoneId) + Integer.toHexString(identifier.hashCode());
     }
 
     static String subjectKey(final String zoneId, final String identifier) {
-        return zoneId + ":attr-sub-id:" + Integer.toHexString(identifier.hashCode());
+        return subjectKeyPrefix(zoneId) + Integer.toHexString(identifier.hashCode());
+    }
+
+    static String resourceKeyPrefix(final String zoneId) {
+        return RedisKeyScanner.zoneKeyPrefix(zoneId) + "attr-res-id:";
+    }
+
+    static String subjectKeyPrefix(final String zoneId) {
+        return RedisKeyScanner.zoneKeyPrefix(zoneId) + "attr-sub-id:";
     }
 }
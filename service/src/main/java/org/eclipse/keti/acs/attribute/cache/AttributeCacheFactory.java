@@ -19,6 +19,7 @@
 package org.eclipse.keti.acs.attribute.cache;
 
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
@@ -53,18 +54,21 @@ public class AttributeCacheFactory {
     public AttributeCache createResourceAttributeCache(final long maxCachedIntervalMinutes, final String zoneName,
             final RedisTemplate<String, String> resourceCacheRedisTemplate) {
         return createAttributeCache(AttributeCache.RESOURCE, maxCachedIntervalMinutes, zoneName,
-                resourceCacheRedisTemplate, AbstractAttributeCache::resourceKey, resourceCachingEnabled);
+                resourceCacheRedisTemplate, AbstractAttributeCache::resourceKey,
+                AbstractAttributeCache::resourceKeyPrefix, resourceCachingEnabled);
     }
 
     public AttributeCache createSubjectAttributeCache(final long maxCachedIntervalMinutes, final String zoneName,
             final RedisTemplate<String, String> subjectCacheRedisTemplate) {
         return createAttributeCache(AttributeCache.SUBJECT, maxCachedIntervalMinutes, zoneName,
-                subjectCacheRedisTemplate, AbstractAttributeCache::subjectKey, subjectCachingEnabled);
+                subjectCacheRedisTemplate, AbstractAttributeCache::subjectKey, AbstractAttributeCache::subjectKeyPrefix,
+                subjectCachingEnabled);
     }
 
     private AttributeCache createAttributeCache(final String cacheType, final long maxCachedIntervalMinutes,
             final String zoneName, final RedisTemplate<String, String> cacheRedisTemplate,
-            final BiFunction<String, String, String> getKey, final boolean enableAttributeCaching) {
+            final BiFunction<String, String, String> getKey, final Function<String, String> getKeyPrefix,
+            final boolean enableAttributeCaching) {
         String[] profiles = environment.getActiveProfiles();
 
         if (!enableAttributeCaching) {
@@ -73,7 +77,8 @@ public class AttributeCacheFactory {
         }
         if (ArrayUtils.contains(profiles, "redis") || ArrayUtils.contains(profiles, "cloud-redis")) {
             LOGGER.info("Redis caching enabled for {} attributes.", cacheType);
-            return new RedisAttributeCache(maxCachedIntervalMinutes, zoneName, getKey, cacheRedisTemplate);
+            return new RedisAttributeCache(maxCachedIntervalMinutes, zoneName, getKey, getKeyPrefix,
+                    cacheRedisTemplate);
         }
         LOGGER.info("In-memory caching enabled for {} attributes.", cacheType);
         return new InMemoryAttributeCache(maxCachedIntervalMinutes, zoneName, getKey);
@@ -21,6 +21,7 @@ package org.eclipse.keti.acs.attribute.cache;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -29,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 
 import org.eclipse.keti.acs.attribute.readers.CachedAttributes;
+import org.eclipse.keti.acs.config.RedisKeyScanner;
 
 public class RedisAttributeCache extends AbstractAttributeCache {
 
@@ -37,15 +39,17 @@ public class RedisAttributeCache extends AbstractAttributeCache {
 
     private String zoneName;
     private BiFunction<String, String, String> getKey;
+    private Function<String, String> getKeyPrefix;
     private RedisTemplate<String, String> resourceCacheRedisTemplate;
     private long maxCachedIntervalMinutes;
 
     RedisAttributeCache(final long maxCachedIntervalMinutes, final String zoneName,
-            final BiFunction<String, String, String> getKey,
+            final BiFunction<String, String, String> getKey, final Function<String, String> getKeyPrefix,
             final RedisTemplate<String, String> resourceCacheRedisTemplate) {
         this.maxCachedIntervalMinutes = maxCachedIntervalMinutes;
         this.zoneName = zoneName;
         this.getKey = getKey;
+        this.getKeyPrefix = getKeyPrefix;
         this.resourceCacheRedisTemplate = resourceCacheRedisTemplate;
     }
 
@@ -80,9 +84,14 @@ public class RedisAttributeCache extends AbstractAttributeCache {
         }
     }
 
+    /**
+     * Deletes only this zone's attributes of this cache's type; other zones share the Redis database.
+     */
     @Override
     public void flushAll() {
-        this.resourceCacheRedisTemplate.getConnectionFactory().getConnection().flushDb();
+        long deleted = RedisKeyScanner.delete(this.resourceCacheRedisTemplate,
+                RedisKeyScanner.prefixPattern(this.getKeyPrefix.apply(this.zoneName)), keys -> { });
+        LOGGER.trace("Deleted {} keys from attribute cache", deleted);
     }
 
 }
@@ -22,6 +22,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import javax.annotation.PostConstruct;
 
@@ -34,6 +37,7 @@ import org.eclipse.keti.acs.attribute.readers.AttributeReaderFactory;
 import org.eclipse.keti.acs.encryption.Encryptor;
 import org.eclipse.keti.acs.rest.AttributeAdapterConnection;
 import org.eclipse.keti.acs.rest.AttributeConnector;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
 import org.eclipse.keti.acs.zone.resolver.ZoneResolver;
@@ -48,6 +52,8 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
     @Autowired
     private ZoneRepository zoneRepository;
     @Autowired
+    private ZoneRegistry zoneRegistry;
+    @Autowired
     private ZoneResolver zoneResolver;
     @Autowired
     private AttributeReaderFactory attributeReaderFactory;
@@ -57,6 +63,11 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     private Encryptor encryptor;
 
+    // Connectors with decrypted adapter secrets, by zone id. Each entry is stamped with the persisted JSON it was
+    // resolved from, so that a connector changed through any ACS instance is resolved again.
+    private final ConcurrentMap<Long, ResolvedConnector> resourceConnectors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ResolvedConnector> subjectConnectors = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void postConstruct() {
         setEncryptionKey(this.encryptionKey);
@@ -69,7 +80,7 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public boolean upsertResourceConnector(final AttributeConnector connector) {
-        ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
+        ZoneEntity zoneEntity = getPersistedZoneEntityOrFail();
         validateConnectorConfigOrFail(connector);
 
         boolean isCreated = false;
@@ -79,6 +90,8 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
             connector.setAdapters(encryptAdapterClientSecrets(connector.getAdapters()));
             zoneEntity.setResourceAttributeConnector(connector);
             this.zoneRepository.save(zoneEntity);
+            this.zoneRegistry.update(zoneEntity);
+            this.resourceConnectors.remove(zoneEntity.getId());
             if (!isCreated) {
                 this.attributeReaderFactory.removeResourceReader(zoneEntity.getName());
             }
@@ -93,15 +106,20 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public AttributeConnector retrieveResourceConnector() {
+        AttributeConnector connector = getResourceAttributeConnector();
+        // Callers may modify the returned connector, e.g. to mask secrets, so never hand out the resolved one.
+        return null == connector ? null : AttributeConnector.newInstance(connector);
+    }
+
+    /**
+     * The connector returned is shared by all requests of the zone and must not be modified.
+     */
+    @Override
+    public AttributeConnector getResourceAttributeConnector() {
         ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
         try {
-            AttributeConnector connector = zoneEntity.getResourceAttributeConnector();
-            if (null != connector) {
-                // Deep copy the connector to prevent double-decryption of secrets
-                connector = AttributeConnector.newInstance(connector);
-                connector.setAdapters(decryptAdapterClientSecrets(connector.getAdapters()));
-            }
-            return connector;
+            return resolveConnector(zoneEntity.getId(), zoneEntity.getResourceConnectorJson(),
+                    zoneEntity::getResourceAttributeConnector, this.resourceConnectors);
         } catch (Exception e) {
             String message = String.format(
                     "Unable to retrieve connector configuration for resource attributes for zone '%s'",
@@ -112,13 +130,15 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public boolean deleteResourceConnector() {
-        ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
+        ZoneEntity zoneEntity = getPersistedZoneEntityOrFail();
         try {
             if (null == zoneEntity.getResourceAttributeConnector()) {
                 return false;
             }
             zoneEntity.setResourceAttributeConnector(null);
             this.zoneRepository.save(zoneEntity);
+            this.zoneRegistry.update(zoneEntity);
+            this.resourceConnectors.remove(zoneEntity.getId());
             this.attributeReaderFactory.removeResourceReader(zoneEntity.getName());
         } catch (Exception e) {
             String message = String.format(
@@ -131,7 +151,7 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public boolean upsertSubjectConnector(final AttributeConnector connector) {
-        ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
+        ZoneEntity zoneEntity = getPersistedZoneEntityOrFail();
         validateConnectorConfigOrFail(connector);
 
         boolean isCreated = false;
@@ -141,6 +161,8 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
             connector.setAdapters(encryptAdapterClientSecrets(connector.getAdapters()));
             zoneEntity.setSubjectAttributeConnector(connector);
             this.zoneRepository.save(zoneEntity);
+            this.zoneRegistry.update(zoneEntity);
+            this.subjectConnectors.remove(zoneEntity.getId());
             if (!isCreated) {
                 this.attributeReaderFactory.removeSubjectReader(zoneEntity.getName());
             }
@@ -155,15 +177,20 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public AttributeConnector retrieveSubjectConnector() {
+        AttributeConnector connector = getSubjectAttributeConnector();
+        // Callers may modify the returned connector, e.g. to mask secrets, so never hand out the resolved one.
+        return null == connector ? null : AttributeConnector.newInstance(connector);
+    }
+
+    /**
+     * The connector returned is shared by all requests of the zone and must not be modified.
+     */
+    @Override
+    public AttributeConnector getSubjectAttributeConnector() {
         ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
         try {
-            AttributeConnector connector = zoneEntity.getSubjectAttributeConnector();
-            if (null != connector) {
-                // Deep copy the connector to prevent double-decryption of secrets
-                connector = AttributeConnector.newInstance(connector);
-                connector.setAdapters(decryptAdapterClientSecrets(connector.getAdapters()));
-            }
-            return connector;
+            return resolveConnector(zoneEntity.getId(), zoneEntity.getSubjectConnectorJson(),
+                    zoneEntity::getSubjectAttributeConnector, this.subjectConnectors);
         } catch (Exception e) {
             String message = String.format(
                     "Unable to retrieve connector configuration for subject attributes for zone '%s'",
@@ -174,13 +201,15 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
 
     @Override
     public boolean deleteSubjectConnector() {
-        ZoneEntity zoneEntity = this.zoneResolver.getZoneEntityOrFail();
+        ZoneEntity zoneEntity = getPersistedZoneEntityOrFail();
         try {
             if (null == zoneEntity.getSubjectAttributeConnector()) {
                 return false;
             }
             zoneEntity.setSubjectAttributeConnector(null);
             this.zoneRepository.save(zoneEntity);
+            this.zoneRegistry.update(zoneEntity);
+            this.subjectConnectors.remove(zoneEntity.getId());
             this.attributeReaderFactory.removeSubjectReader(zoneEntity.getName());
         } catch (Exception e) {
             String message = String.format(
@@ -191,6 +220,17 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
         return true;
     }
 
+    // The zone resolved for the request is a copy without the subjects, resources and policy sets of the zone, which
+    // saving it would merge over; the zone to update is therefore read again.
+    private ZoneEntity getPersistedZoneEntityOrFail() {
+        String zoneName = this.zoneResolver.getZoneEntityOrFail().getName();
+        ZoneEntity zoneEntity = this.zoneRepository.getByName(zoneName);
+        if (null == zoneEntity) {
+            throw new AttributeConnectorException(String.format("Zone '%s' does not exist", zoneName));
+        }
+        return zoneEntity;
+    }
+
     private void validateAdapterEntityOrFail(final AttributeAdapterConnection adapter) {
         if (adapter == null) {
             throw new AttributeConnectorException("Attribute connector configuration requires at least one adapter");
@@ -252,24 +292,57 @@ public class AttributeConnectorServiceImpl implements AttributeConnectorService
         return adapters;
     }
 
-    @Override
-    public AttributeConnector getResourceAttributeConnector() {
-        return retrieveResourceConnector();
-    }
-
-    @Override
-    public AttributeConnector getSubjectAttributeConnector() {
-        return retrieveSubjectConnector();
+    /**
+     * Returns the connector of a zone with its adapter secrets decrypted. The decrypted connector is kept until the
+     * persisted connector changes, so that looking it up while evaluating policies requires neither JSON parsing nor
+     * decryption.
+     */
+    private AttributeConnector resolveConnector(final long zoneId, final String connectorJson,
+            final Supplier<AttributeConnector> storedConnector,
+            final ConcurrentMap<Long, ResolvedConnector> resolvedConnectors) {
+        if (null == connectorJson) {
+            resolvedConnectors.remove(zoneId);
+            return null;
+        }
+        ResolvedConnector resolvedConnector = resolvedConnectors.get(zoneId);
+        if (null == resolvedConnector || !connectorJson.equals(resolvedConnector.getConnectorJson())) {
+            // Deep copy the connector to prevent double-decryption of secrets
+            AttributeConnector connector = AttributeConnector.newInstance(storedConnector.get());
+            connector.setAdapters(decryptAdapterClientSecrets(connector.getAdapters()));
+            resolvedConnector = new ResolvedConnector(connectorJson, connector);
+            resolvedConnectors.put(zoneId, resolvedConnector);
+        }
+        return resolvedConnector.getConnector();
     }
 
     @Override
     public boolean isResourceAttributeConnectorConfigured() {
-        return this.getResourceAttributeConnector() != null && this.getResourceAttributeConnector().getIsActive();
+        AttributeConnector connector = this.getResourceAttributeConnector();
+        return connector != null && connector.getIsActive();
     }
 
     @Override
     public boolean isSubjectAttributeConnectorConfigured() {
-        return this.getSubjectAttributeConnector() != null && this.getSubjectAttributeConnector().getIsActive();
+        AttributeConnector connector = this.getSubjectAttributeConnector();
+        return connector != null && connector.getIsActive();
     }
 
+    private static final class ResolvedConnector {
+
+        private final String connectorJson;
+        private final AttributeConnector connector;
+
+        ResolvedConnector(final String connectorJson, final AttributeConnector connector) {
+            this.connectorJson = connectorJson;
+            this.connector = connector;
+        }
+
+        String getConnectorJson() {
+            return this.connectorJson;
+        }
+
+        AttributeConnector getConnector() {
+            return this.connector;
+        }
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.eclipse.keti.acs.config;
 
+import java.util.Collections;
+
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 
@@ -49,6 +51,18 @@ public class AcsConfigUtil {
         return em;
     }
 
+    /**
+     * @param batchLimit
+     *            the maximum number of statements sent to the database in one JDBC batch, e.g. when resources or
+     *            subjects are appended in bulk
+     */
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(final DataSource dataSource,
+            final int batchLimit) {
+        LocalContainerEntityManagerFactoryBean em = entityManagerFactory(dataSource);
+        em.setJpaPropertyMap(Collections.singletonMap("openjpa.jdbc.DBDictionary", "batchLimit=" + batchLimit));
+        return em;
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(final EntityManagerFactory emf) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
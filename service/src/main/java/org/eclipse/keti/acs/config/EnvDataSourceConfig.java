@@ -60,6 +60,8 @@ public class EnvDataSourceConfig {
     private int maxActive;
     @Value("${MAX_WAIT_TIME:30000}")
     private int maxWaitTime;
+    @Value("${DB_BATCH_LIMIT:100}")
+    private int batchLimit;
 
     @Bean
     public DataSource dataSource() {
@@ -77,7 +79,7 @@ public class EnvDataSourceConfig {
 
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
-        return this.acsConfigUtil.entityManagerFactory(this.dataSource());
+        return this.acsConfigUtil.entityManagerFactory(this.dataSource(), this.batchLimit);
     }
 
     @Bean
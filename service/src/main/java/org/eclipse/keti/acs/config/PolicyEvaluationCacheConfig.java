@@ -41,6 +41,15 @@ public class PolicyEvaluationCacheConfig {
     @Autowired
     private Environment environment;
 
+    @Value("${DECISION_CACHE_MAX_ENTRIES:100000}")
+    private long decisionCacheMaxEntries;
+
+    @Value("${DECISION_CACHE_MAX_BYTES:0}")
+    private long decisionCacheMaxBytes;
+
+    @Value("${DECISION_CACHE_TTL_SECONDS:3600}")
+    private long decisionCacheTtlSeconds;
+
     @Bean
     public PolicyEvaluationCache cache(@Value("${ENABLE_DECISION_CACHING:true}") final boolean cachingEnabled) {
         if (!cachingEnabled) {
@@ -53,6 +62,7 @@ public class PolicyEvaluationCacheConfig {
             return new RedisPolicyEvaluationCache();
         }
         LOGGER.info("In-memory caching enabled for policy evaluation.");
-        return new InMemoryPolicyEvaluationCache();
+        return new InMemoryPolicyEvaluationCache(this.decisionCacheMaxEntries, this.decisionCacheMaxBytes,
+                this.decisionCacheTtlSeconds);
     }
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+/**
+ * Finds and deletes keys with cursor-based SCAN instead of KEYS, FLUSHDB or FLUSHALL, which block the Redis server
+ * for as long as they take and, for the flushes, wipe the keys of every zone at once.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class RedisKeyScanner {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final String GLOB_SPECIAL_CHARACTERS = "*?[]\\";
+
+    private RedisKeyScanner() {
+        // Prevents instantiation.
+    }
+
+    /**
+     * @return the prefix of every key of the given zone: the zone ID, with its colons and percent signs escaped so
+     *         that the prefix of one zone never starts the keys of another, followed by a colon
+     */
+    public static String zoneKeyPrefix(final String zoneId) {
+        return zoneId.replace("%", "%25").replace(":", "%3A") + ":";
+    }
+
+    /**
+     * @return the pattern that matches every key starting with the given prefix, with any glob special characters in
+     *         the prefix escaped
+     */
+    public static String prefixPattern(final String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (GLOB_SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('*').toString();
+    }
+
+    public static Set<String> keys(final RedisTemplate<String, String> redisTemplate, final String pattern) {
+        Set<String> keys = new HashSet<>();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            scan(connection, pattern, batch -> keys.addAll(decode(batch)));
+            return null;
+        });
+        return keys;
+    }
+
+    /**
+     * Deletes the keys that match the given pattern, a batch at a time, so that other clients are served in between.
+     *
+     * @param onDeleted
+     *            called with each batch of deleted keys
+     * @return the number of deleted keys
+     */
+    public static long delete(final RedisTemplate<String, String> redisTemplate, final String pattern,
+            final Consumer<Collection<String>> onDeleted) {
+        long[] deleted = new long[1];
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            scan(connection, pattern, batch -> {
+                Long count = connection.del(batch.toArray(new byte[batch.size()][]));
+                deleted[0] += count == null ? 0 : count;
+                onDeleted.accept(decode(batch));
+            });
+            return null;
+        });
+        return deleted[0];
+    }
+
+    private static void scan(final RedisConnection connection, final String pattern,
+            final Consumer<List<byte[]>> onBatch) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(BATCH_SIZE).build();
+        try (Cursor<byte[]> cursor = connection.scan(options)) {
+            List<byte[]> batch = new ArrayList<>(BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == BATCH_SIZE) {
+                    onBatch.accept(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                onBatch.accept(batch);
+            }
+        } catch (IOException e) {
+            throw new RedisSystemException("Unable to close the scan cursor.", e);
+        }
+    }
+
+    private static List<String> decode(final List<byte[]> rawKeys) {
+        List<String> keys = new ArrayList<>(rawKeys.size());
+        for (byte[] rawKey : rawKeys) {
+            keys.add(new String(rawKey, StandardCharsets.UTF_8));
+        }
+        return keys;
+    }
+}
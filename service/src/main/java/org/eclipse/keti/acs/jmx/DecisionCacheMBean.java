@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.jmx;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import org.eclipse.keti.acs.policy.evaluation.cache.InMemoryPolicyEvaluationCache;
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
+
+@Profile({ "performance" })
+@ManagedResource(objectName = DecisionCacheMBean.OBJECTNAME,
+        description = "In-memory decision cache statistics")
+@Component
+public class DecisionCacheMBean {
+    public static final String OBJECTNAME = "org.eclipse.keti.acs.jmx:name=DecisionCacheMBean";
+
+    @Autowired
+    private PolicyEvaluationCache cache;
+
+    private InMemoryPolicyEvaluationCache inMemoryCache() {
+        if (this.cache instanceof InMemoryPolicyEvaluationCache) {
+            return (InMemoryPolicyEvaluationCache) this.cache;
+        }
+        return null;
+    }
+
+    @ManagedAttribute
+    public long getHits() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getDecisionStats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMisses() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getDecisionStats().missCount();
+    }
+
+    @ManagedAttribute
+    public double getHitRate() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getDecisionStats().hitRate();
+    }
+
+    @ManagedAttribute
+    public long getEvictions() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getDecisionStats().evictionCount();
+    }
+
+    @ManagedAttribute
+    public long getDecisions() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getDecisionCount();
+    }
+
+    @ManagedAttribute
+    public long getTimestamps() {
+        InMemoryPolicyEvaluationCache inMemoryCache = inMemoryCache();
+        return inMemoryCache == null ? 0 : inMemoryCache.getTimestampCount();
+    }
+}
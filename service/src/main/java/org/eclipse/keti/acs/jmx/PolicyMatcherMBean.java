@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.jmx;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import org.eclipse.keti.acs.service.policy.matcher.PolicyMatcherImpl;
+
+@Profile({ "performance" })
+@ManagedResource(objectName = PolicyMatcherMBean.OBJECTNAME,
+        description = "Policy matching statistics")
+@Component
+public class PolicyMatcherMBean {
+    public static final String OBJECTNAME = "org.eclipse.keti.acs.jmx:name=PolicyMatcherMBean";
+
+    @Autowired
+    private PolicyMatcherImpl policyMatcher;
+
+    @ManagedAttribute
+    public long getMatches() {
+        return this.policyMatcher.getStatistics().getMatches();
+    }
+
+    @ManagedAttribute
+    public long getPolicies() {
+        return this.policyMatcher.getStatistics().getPolicies();
+    }
+
+    @ManagedAttribute
+    public long getPrunedByIndex() {
+        return this.policyMatcher.getStatistics().getPrunedByIndex();
+    }
+
+    @ManagedAttribute
+    public long getRejectedStructurally() {
+        return this.policyMatcher.getStatistics().getRejectedStructurally();
+    }
+
+    @ManagedAttribute
+    public long getAttributeResolutions() {
+        return this.policyMatcher.getStatistics().getAttributeResolutions();
+    }
+
+    @ManagedAttribute
+    public long getAttributeResolutionsAvoided() {
+        return this.policyMatcher.getStatistics().getAttributeResolutionsAvoided();
+    }
+}
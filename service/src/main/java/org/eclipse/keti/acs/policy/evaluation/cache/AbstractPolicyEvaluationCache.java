@@ -18,7 +18,6 @@
 
 package org.eclipse.keti.acs.policy.evaluation.cache;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -29,8 +28,8 @@ import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
-import org.codehaus.jackson.map.ObjectMapper;
 import org.eclipse.keti.acs.attribute.connector.management.AttributeConnectorService;
+import org.eclipse.keti.acs.config.RedisKeyScanner;
 import org.eclipse.keti.acs.privilege.management.dao.ResourceEntity;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectEntity;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
@@ -67,7 +66,6 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
     private AttributeConnectorService connectorService;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractPolicyEvaluationCache.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     /**
      * This method will get the Policy Evaluation Result from the cache. It will check if any of the subject, policy
@@ -80,35 +78,72 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
      */
     @Override
     public PolicyEvaluationResult get(final PolicyEvaluationRequestCacheKey evalRequestkey) {
+        boolean attributeConnectorsConfigured = this.connectorService.isResourceAttributeConnectorConfigured()
+                || this.connectorService.isSubjectAttributeConnectorConfigured();
+
+        PolicyEvaluationResult cachedEvalResult = getIfEntitiesUnchanged(evalRequestkey,
+                !attributeConnectorsConfigured);
+        if (null == cachedEvalResult) {
+            return null;
+        }
+
+        if (!ImmutablePolicyEvaluationResult.isResultFor(cachedEvalResult, evalRequestkey.getIdentity())) {
+            LOGGER.debug("Cached decision for key '{}' was made for another request.", evalRequestkey.toDecisionKey());
+            return null;
+        }
+
+        if (attributeConnectorsConfigured && haveConnectorCacheIntervalsLapsed(this.connectorService,
+                timestampToDateUTC(cachedEvalResult.getTimestamp()))) {
+            delete(evalRequestkey.toDecisionKey());
+            LOGGER.debug("Cached decision for key '{}' is not valid.", evalRequestkey.toDecisionKey());
+            return null;
+        }
+
+        return cachedEvalResult;
+    }
+
+    /**
+     * Gets the cached decision for the given key, unless any of the policy sets it was made with has changed since it
+     * was cached. If checkAttributes is set, the same goes for the subject and the resolved resources whose
+     * attributes it was made with. A decision that is no longer valid is removed from the cache.
+     *
+     * @param evalRequestkey  The Policy Evaluation key to retrieve.
+     * @param checkAttributes Whether to also check the subject and resource timestamps.
+     * @return The Policy Evaluation Result if the key is in the cache and the result isn't invalidated, or null
+     */
+    PolicyEvaluationResult getIfEntitiesUnchanged(final PolicyEvaluationRequestCacheKey evalRequestkey,
+            final boolean checkAttributes) {
         //Get all result related entries
         DecisionCacheEntries cachedEntries = new DecisionCacheEntries(evalRequestkey);
 
-        String cachedEvalResultString = cachedEntries.getDecisionString();
-        if (null == cachedEvalResultString) {
+        PolicyEvaluationResult cachedEvalResult = cachedEntries.getDecision();
+        if (null == cachedEvalResult) {
             return null;
         }
-        PolicyEvaluationResult cachedEvalResult = toPolicyEvaluationResult(cachedEvalResultString);
-
-        List<String> attributeInvalidationTimeStamps = new ArrayList<>();
-        List<String> policyInvalidationTimeStamps = new ArrayList<>();
-        attributeInvalidationTimeStamps.add(cachedEntries.getSubjectLastModified());
-        policyInvalidationTimeStamps.addAll(cachedEntries.getPolicySetsLastModified());
-
-        Set<String> cachedResolvedResourceUris = cachedEvalResult.getResolvedResourceUris();
-
-        //is requested resource id same as resolved resource uri ?
-        if (cachedResolvedResourceUris.size() == 1 && cachedResolvedResourceUris.iterator().next()
-                .equals(evalRequestkey.getResourceId())) {
-            attributeInvalidationTimeStamps.add(cachedEntries.getRequestedResourceLastModified());
-        } else {
-            List<String> cacheResolvedResourceKeys = cachedResolvedResourceUris.stream()
-                    .map(resolvedResourceUri -> resourceKey(evalRequestkey.getZoneId(), resolvedResourceUri))
-                    .collect(Collectors.toList());
-            attributeInvalidationTimeStamps.addAll(multiGet(cacheResolvedResourceKeys));
+
+        boolean haveEntitiesChanged = haveEntitiesChanged(cachedEntries.getPolicySetsLastModified(),
+                cachedEvalResult.getTimestamp());
+
+        if (!haveEntitiesChanged && checkAttributes) {
+            List<Long> attributeInvalidationTimeStamps = new ArrayList<>();
+            attributeInvalidationTimeStamps.add(cachedEntries.getSubjectLastModified());
+
+            Set<String> cachedResolvedResourceUris = cachedEvalResult.getResolvedResourceUris();
+
+            //is requested resource id same as resolved resource uri ?
+            if (cachedResolvedResourceUris.size() == 1 && cachedResolvedResourceUris.iterator().next()
+                    .equals(evalRequestkey.getResourceId())) {
+                attributeInvalidationTimeStamps.add(cachedEntries.getRequestedResourceLastModified());
+            } else {
+                attributeInvalidationTimeStamps.addAll(multiGetTimestamps(
+                        resolvedResourceKeys(evalRequestkey.getZoneId(), cachedResolvedResourceUris)));
+            }
+
+            haveEntitiesChanged = haveEntitiesChanged(attributeInvalidationTimeStamps,
+                    cachedEvalResult.getTimestamp());
         }
 
-        if (isCachedRequestInvalid(attributeInvalidationTimeStamps, policyInvalidationTimeStamps,
-                timestampToDateUTC(cachedEvalResult.getTimestamp()))) {
+        if (haveEntitiesChanged) {
             delete(cachedEntries.getDecisionKey());
             LOGGER.debug("Cached decision for key '{}' is not valid.", cachedEntries.getDecisionKey());
             return null;
@@ -117,20 +152,18 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
         return cachedEvalResult;
     }
 
-    private PolicyEvaluationResult toPolicyEvaluationResult(final String cachedDecisionString) {
-        try {
-            return OBJECT_MAPPER.readValue(cachedDecisionString, PolicyEvaluationResult.class);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to read policy evaluation result as JSON.", e);
-        }
+    static List<String> resolvedResourceKeys(final String zoneId, final Set<String> resolvedResourceUris) {
+        return resolvedResourceUris.stream().map(resolvedResourceUri -> resourceKey(zoneId, resolvedResourceUri))
+                .collect(Collectors.toList());
     }
 
     private final class DecisionCacheEntries {
-        private final List<String> entryValues;
+        private final List<Long> entryValues;
         private final List<String> entryKeys;
-        private final List<String> policySetTimestamps = new ArrayList<>();
+        private final List<Long> policySetTimestamps = new ArrayList<>();
         private final int lastValueIndex;
         private final String decisionKey;
+        private final PolicyEvaluationResult decision;
 
         /**
          * Execute a multi-get operation on all entries related to a cached result,
@@ -140,10 +173,13 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
             //Get all values with a batch get
             this.decisionKey = evalRequestKey.toDecisionKey();
             this.entryKeys = prepareKeys(evalRequestKey);
-            this.entryValues = multiGet(this.entryKeys);
+            CachedEntries cachedEntries = multiGet(this.decisionKey, this.entryKeys);
+            this.entryValues = cachedEntries.getTimestamps();
+            this.decision = cachedEntries.getDecision();
             this.lastValueIndex = this.entryValues.size() - 1;
 
-            logCacheGetDebugMessages(evalRequestKey, this.decisionKey, this.entryKeys, this.entryValues);
+            logCacheGetDebugMessages(evalRequestKey, this.decisionKey, this.entryKeys, this.entryValues,
+                    this.decision);
 
             //create separate list of policySetTimes to prevent mutation on entryValues
             for (int i = 0; i < evalRequestKey.getPolicySetIds().size(); i++) {
@@ -165,38 +201,35 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
             //n+2
             keys.add(resourceKey(evalRequestKey.getZoneId(), evalRequestKey.getResourceId()));
 
-            //n+3
-            keys.add(this.decisionKey);
-
             return keys;
         }
 
         /**
          * (eval result, eval time, resolved resource uri(s)).
          */
-        String getDecisionString() {
-            return entryValues.get(this.lastValueIndex);
+        PolicyEvaluationResult getDecision() {
+            return this.decision;
         }
 
         String getDecisionKey() {
             return decisionKey;
         }
 
-        String getSubjectLastModified() {
-            return entryValues.get(lastValueIndex - 2);
+        Long getSubjectLastModified() {
+            return entryValues.get(lastValueIndex - 1);
         }
 
-        String getRequestedResourceLastModified() {
-            return entryValues.get(lastValueIndex - 1);
+        Long getRequestedResourceLastModified() {
+            return entryValues.get(lastValueIndex);
         }
 
-        List<String> getPolicySetsLastModified() {
+        List<Long> getPolicySetsLastModified() {
             return this.policySetTimestamps;
         }
     }
 
     private void logCacheGetDebugMessages(final PolicyEvaluationRequestCacheKey key, final String redisKey,
-            final List<String> keys, final List<String> values) {
+            final List<String> keys, final List<Long> values, final PolicyEvaluationResult decision) {
         LinkedHashSet<String> policySetIds = key.getPolicySetIds();
         int idx = 0;
         for (String policySetId : policySetIds) {
@@ -207,24 +240,20 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
                 keys.get(idx), values.get(idx++));
         LOGGER.debug("Getting timestamp for resource: '{}', key: '{}', timestamp:'{}'.", key.getResourceId(),
                 keys.get(idx), values.get(idx++));
-        LOGGER.debug("Getting policy evaluation from cache; key: '{}', value: '{}'.", redisKey, values.get(idx));
+        LOGGER.debug("Getting policy evaluation from cache; key: '{}', value: '{}'.", redisKey, decision);
     }
 
     // Set's the policy evaluation key to the policy evaluation result in the cache
     @Override
     public void set(final PolicyEvaluationRequestCacheKey key, final PolicyEvaluationResult result) {
-        try {
-            setEntityTimestamps(key, result);
-            result.setTimestamp(currentDateUTC().getMillis());
-            String value = OBJECT_MAPPER.writeValueAsString(result);
-            set(key.toDecisionKey(), value);
-            LOGGER.debug("Setting policy evaluation to cache; key: '{}', value: '{}'.", key.toDecisionKey(), value);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Failed to write policy evaluation result as JSON.", e);
-        }
+        long timestamp = System.currentTimeMillis();
+        result.setTimestamp(timestamp);
+        setDecisionAndTimestampsIfNotExist(key, result, entityTimestampKeys(key, result), timestamp);
+        LOGGER.debug("Setting policy evaluation to cache; key: '{}', value: '{}'.", key.toDecisionKey(), result);
     }
 
-    private void setEntityTimestamps(final PolicyEvaluationRequestCacheKey key, final PolicyEvaluationResult result) {
+    private static List<String> entityTimestampKeys(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationResult result) {
         // This ensures that if the timestamp for any entity involved in this decision is not in the cache at the time
         // of this evaluation, it will be put there so that in subsequent evaluations, we will use the cached
         // decision.
@@ -233,15 +262,13 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
         LOGGER.debug("Setting timestamp to now for entities if they do not exist in the cache");
 
         String zoneId = key.getZoneId();
-        setSubjectIfNotExists(zoneId, key.getSubjectId());
-
-        Set<String> resolvedResourceUris = result.getResolvedResourceUris();
-        for (String resolvedResourceUri : resolvedResourceUris) {
-            setResourceIfNotExists(zoneId, resolvedResourceUri);
+        List<String> keys = new ArrayList<>();
+        keys.add(subjectKey(zoneId, key.getSubjectId()));
+        keys.addAll(resolvedResourceKeys(zoneId, result.getResolvedResourceUris()));
+        for (String policySetId : key.getPolicySetIds()) {
+            keys.add(policySetKey(zoneId, policySetId));
         }
-
-        Set<String> policySetIds = key.getPolicySetIds();
-        policySetIds.forEach(policySetId -> setPolicySetIfNotExists(zoneId, policySetId));
+        return keys;
     }
 
     @Override
@@ -255,22 +282,22 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
         delete(keys);
     }
 
+    @Override
+    public void resetForZone(final String zoneId) {
+        LOGGER.debug("Removing all cached entries for zone '{}'", zoneId);
+        flushZone(zoneId);
+    }
+
     // Method which resets the timestamp for the given entity in the policy evaluation cache.
     private void resetForEntity(final String zoneId, final String entityId, final EntityType entityType,
             final BiFunction<String, String, String> getKey) {
         String key = getKey.apply(zoneId, entityId);
-        String timestamp = timestampUTC();
+        long timestamp = System.currentTimeMillis();
         logSetEntityTimestampsDebugMessage(timestamp, key, entityId, entityType);
-        set(key, timestamp);
+        setTimestamp(key, timestamp);
     }
 
-    private void setEntityIfNotExists(final String zoneId, final String entityId,
-            final BiFunction<String, String, String> getKey) {
-        String key = getKey.apply(zoneId, entityId);
-        setIfNotExists(key, timestampUTC());
-    }
-
-    private void logSetEntityTimestampsDebugMessage(final String timestamp, final String key, final String entityId,
+    private void logSetEntityTimestampsDebugMessage(final long timestamp, final String key, final String entityId,
             final EntityType entityType) {
         LOGGER.debug("Setting timestamp for {} '{}'; key: '{}', value: '{}'", entityType, entityId, key, timestamp);
     }
@@ -282,37 +309,29 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
                 AbstractPolicyEvaluationCache::policySetKey);
     }
 
-    private void setPolicySetIfNotExists(final String zoneId, final String policySetId) {
-        setEntityIfNotExists(zoneId, policySetId, AbstractPolicyEvaluationCache::policySetKey);
-    }
-
     @Override
     public void resetForResource(final String zoneId, final String resourceId) {
         resetForEntity(zoneId, resourceId, EntityType.RESOURCE, AbstractPolicyEvaluationCache::resourceKey);
     }
 
-    private void setResourceIfNotExists(final String zoneId, final String resourceId) {
-        setEntityIfNotExists(zoneId, resourceId, AbstractPolicyEvaluationCache::resourceKey);
-    }
-
     @Override
     public void resetForResourcesByIds(final String zoneId, final Set<String> resourceIds) {
-        Map<String, String> map = new HashMap<>();
+        Map<String, Long> map = new HashMap<>();
         for (String resourceId : resourceIds) {
             createMutliSetEntityMap(zoneId, map, resourceId, EntityType.RESOURCE,
                     AbstractPolicyEvaluationCache::resourceKey);
         }
-        multiSet(map);
+        multiSetTimestamps(map);
     }
 
     @Override
     public void resetForResources(final String zoneId, final List<ResourceEntity> resourceEntities) {
-        Map<String, String> map = new HashMap<>();
+        Map<String, Long> map = new HashMap<>();
         for (ResourceEntity resourceEntity : resourceEntities) {
             createMutliSetEntityMap(zoneId, map, resourceEntity.getResourceIdentifier(), EntityType.RESOURCE,
                     AbstractPolicyEvaluationCache::resourceKey);
         }
-        multiSet(map);
+        multiSetTimestamps(map);
     }
 
     @Override
@@ -320,70 +339,51 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
         resetForEntity(zoneId, subjectId, EntityType.SUBJECT, AbstractPolicyEvaluationCache::subjectKey);
     }
 
-    private void setSubjectIfNotExists(final String zoneId, final String subjectId) {
-        setEntityIfNotExists(zoneId, subjectId, AbstractPolicyEvaluationCache::subjectKey);
-    }
-
     @Override
     public void resetForSubjectsByIds(final String zoneId, final Set<String> subjectIds) {
-        Map<String, String> map = new HashMap<>();
+        Map<String, Long> map = new HashMap<>();
         for (String subjectId : subjectIds) {
             createMutliSetEntityMap(zoneId, map, subjectId, EntityType.SUBJECT,
                     AbstractPolicyEvaluationCache::subjectKey);
         }
-        multiSet(map);
+        multiSetTimestamps(map);
     }
 
     @Override
     public void resetForSubjects(final String zoneId, final List<SubjectEntity> subjectEntities) {
-        Map<String, String> map = new HashMap<>();
+        Map<String, Long> map = new HashMap<>();
         for (SubjectEntity subjectEntity : subjectEntities) {
             createMutliSetEntityMap(zoneId, map, subjectEntity.getSubjectIdentifier(), EntityType.SUBJECT,
                     AbstractPolicyEvaluationCache::subjectKey);
         }
-        multiSet(map);
+        multiSetTimestamps(map);
     }
 
-    private void createMutliSetEntityMap(final String zoneId, final Map<String, String> map, final String subjectId,
+    private void createMutliSetEntityMap(final String zoneId, final Map<String, Long> map, final String subjectId,
             final EntityType entityType, final BiFunction<String, String, String> getKey) {
         String key = getKey.apply(zoneId, subjectId);
-        String timestamp = timestampUTC();
-        logSetEntityTimestampsDebugMessage(key, timestamp, subjectId, entityType);
+        long timestamp = System.currentTimeMillis();
+        logSetEntityTimestampsDebugMessage(timestamp, key, subjectId, entityType);
         map.put(key, timestamp);
     }
 
-    private boolean isCachedRequestInvalid(final List<String> attributeInvalidationTimeStamps,
-            final List<String> policyInvalidationTimeStamps, final DateTime policyEvalTimestampUTC) {
-        if (haveEntitiesChanged(policyInvalidationTimeStamps, policyEvalTimestampUTC)) {
-            return true;
-        }
-
-        if (this.connectorService.isResourceAttributeConnectorConfigured() || this.connectorService
-                .isSubjectAttributeConnectorConfigured()) {
-            return haveConnectorCacheIntervalsLapsed(this.connectorService, policyEvalTimestampUTC);
-        } else {
-            return haveEntitiesChanged(attributeInvalidationTimeStamps, policyEvalTimestampUTC);
-        }
-    }
-
     /**
      * This method checks to see if any objects related to the policy evaluation have been changed since the Policy
      * Evaluation Result was cached.
      *
-     * @param values                 List of values which contain subject, policy sets and resolved resource URI's.
-     * @param policyEvalTimestampUTC The timestamp to compare against.
+     * @param values              List of values which contain subject, policy sets and resolved resource URI's.
+     * @param policyEvalTimestamp The timestamp in milliseconds since the epoch to compare against.
      * @return true or false depending on whether any of the objects in values has a timestamp after
-     * policyEvalTimestampUTC.
+     * policyEvalTimestamp.
      */
-    boolean haveEntitiesChanged(final List<String> values, final DateTime policyEvalTimestampUTC) {
-        for (String value : values) {
+    boolean haveEntitiesChanged(final List<Long> values, final long policyEvalTimestamp) {
+        for (Long value : values) {
             if (null == value) {
                 return true;
             }
-            DateTime invalidationTimestampUTC = timestampToDateUTC(value);
-            if (invalidationTimestampUTC.isAfter(policyEvalTimestampUTC)) {
+            if (value > policyEvalTimestamp) {
                 LOGGER.debug("Privilege service attributes have timestamp '{}' which is after "
-                        + "policy evaluation timestamp '{}'", invalidationTimestampUTC, policyEvalTimestampUTC);
+                        + "policy evaluation timestamp '{}'", value, policyEvalTimestamp);
                 return true;
             }
         }
@@ -408,15 +408,15 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
     }
 
     static String policySetKey(final String zoneId, final String policySetId) {
-        return zoneId + ":set-id:" + Integer.toHexString(policySetId.hashCode());
+        return zoneKeyPrefix(zoneId) + "set-id:" + PolicyEvaluationRequestCacheKey.hash(policySetId);
     }
 
     static String resourceKey(final String zoneId, final String resourceId) {
-        return zoneId + ":res-id:" + Integer.toHexString(resourceId.hashCode());
+        return zoneKeyPrefix(zoneId) + "res-id:" + PolicyEvaluationRequestCacheKey.hash(resourceId);
     }
 
     static String subjectKey(final String zoneId, final String subjectId) {
-        return zoneId + ":sub-id:" + Integer.toHexString(subjectId.hashCode());
+        return zoneKeyPrefix(zoneId) + "sub-id:" + PolicyEvaluationRequestCacheKey.hash(subjectId);
     }
 
     static boolean isPolicyEvalResultKey(final String key) {
@@ -439,35 +439,56 @@ public abstract class AbstractPolicyEvaluationCache implements PolicyEvaluationC
         return new DateTime().withZone(DateTimeZone.UTC);
     }
 
-    private static String timestampUTC() {
-        try {
-            return OBJECT_MAPPER.writeValueAsString(currentDateUTC().getMillis());
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to write timestamp as JSON.", e);
-        }
-    }
-
     private static DateTime timestampToDateUTC(final long timestamp) {
         return new DateTime(timestamp).withZone(DateTimeZone.UTC);
     }
 
-    private static DateTime timestampToDateUTC(final String timestamp) {
-        return new DateTime(Long.valueOf(timestamp)).withZone(DateTimeZone.UTC);
-    }
-
     abstract void delete(String key);
 
     abstract void delete(Collection<String> keys);
 
     abstract void flushAll();
 
+    /**
+     * Deletes every key of the given zone, i.e. every key starting with {@link #zoneKeyPrefix(String)}.
+     */
+    abstract void flushZone(String zoneId);
+
+    static String zoneKeyPrefix(final String zoneId) {
+        return RedisKeyScanner.zoneKeyPrefix(zoneId);
+    }
+
     abstract Set<String> keys(String key);
 
-    abstract List<String> multiGet(List<String> keys);
+    /**
+     * Fetches the decision cached under decisionKey together with the entity timestamps cached under timestampKeys,
+     * in a single round trip where the backend allows it.
+     */
+    abstract CachedEntries multiGet(String decisionKey, List<String> timestampKeys);
 
-    abstract void multiSet(Map<String, String> map);
+    /**
+     * @return the timestamps, in milliseconds since the epoch, cached under the given keys, with null for each key
+     *         that is not in the cache
+     */
+    abstract List<Long> multiGetTimestamps(List<String> keys);
+
+    abstract void multiSetTimestamps(Map<String, Long> timestamps);
+
+    abstract void setTimestamp(String key, long timestamp);
+
+    abstract void setTimestampIfNotExists(String key, long timestamp);
 
-    abstract void set(String key, String value);
+    /**
+     * Caches the decision and, for each of the given keys that is not in the cache yet, the given timestamp. Backends
+     * that can batch commands override this to do it all in a single round trip.
+     */
+    void setDecisionAndTimestampsIfNotExist(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationResult result, final List<String> timestampKeys, final long timestamp) {
+        for (String timestampKey : timestampKeys) {
+            setTimestampIfNotExists(timestampKey, timestamp);
+        }
+        setDecision(key, result);
+    }
 
-    abstract void setIfNotExists(String key, String value);
+    abstract void setDecision(PolicyEvaluationRequestCacheKey key, PolicyEvaluationResult result);
 }
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import java.util.List;
+
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+
+/**
+ * A cached decision and the entity timestamps it is validated against, as fetched together from the cache.
+ *
+ * @author acs-engineers@ge.com
+ */
+final class CachedEntries {
+
+    private final PolicyEvaluationResult decision;
+    private final List<Long> timestamps;
+
+    CachedEntries(final PolicyEvaluationResult decision, final List<Long> timestamps) {
+        this.decision = decision;
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * @return the cached decision, or null if it is not in the cache
+     */
+    PolicyEvaluationResult getDecision() {
+        return this.decision;
+    }
+
+    /**
+     * @return the cached timestamps in the order their keys were requested, with null for each key that is not in
+     *         the cache
+     */
+    List<Long> getTimestamps() {
+        return this.timestamps;
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A node-local copy of recently used decisions and entity timestamps from Redis. Every node publishes the keys it
+ * changes or deletes in Redis on the invalidation channel, and every node evicts the keys it receives on that channel
+ * from its own near cache. Redis does not guarantee delivery of published messages, so entries also expire a short
+ * time after they were copied, which bounds how long a node can serve a decision after a missed invalidation.
+ *
+ * @author acs-engineers@ge.com
+ */
+final class DecisionNearCache implements MessageListener {
+
+    static final String INVALIDATION_CHANNEL = "acs:decision-cache:invalidations";
+
+    private static final String ALL_KEYS = "*";
+    private static final String KEY_SEPARATOR = "\n";
+
+    private final Cache<String, PolicyEvaluationResult> decisions;
+    private final Cache<String, Long> timestamps;
+
+    // Incremented on every invalidation, before any key is evicted, so that values read from Redis before an
+    // invalidation are not kept in the near cache after it.
+    private final AtomicLong generation = new AtomicLong();
+
+    DecisionNearCache(final long maxEntries, final long ttlSeconds) {
+        this.decisions = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds,
+                TimeUnit.SECONDS).build();
+        this.timestamps = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds,
+                TimeUnit.SECONDS).build();
+    }
+
+    long generation() {
+        return this.generation.get();
+    }
+
+    /**
+     * @return the decision and timestamps if all of them are in the near cache, or null
+     */
+    CachedEntries get(final String decisionKey, final List<String> timestampKeys) {
+        PolicyEvaluationResult decision = this.decisions.getIfPresent(decisionKey);
+        if (decision == null) {
+            return null;
+        }
+        List<Long> cachedTimestamps = getTimestamps(timestampKeys);
+        if (cachedTimestamps == null) {
+            return null;
+        }
+        return new CachedEntries(decision, cachedTimestamps);
+    }
+
+    /**
+     * @return the timestamps if all of them are in the near cache, or null
+     */
+    List<Long> getTimestamps(final List<String> keys) {
+        List<Long> cachedTimestamps = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Long timestamp = this.timestamps.getIfPresent(key);
+            if (timestamp == null) {
+                return null;
+            }
+            cachedTimestamps.add(timestamp);
+        }
+        return cachedTimestamps;
+    }
+
+    void put(final String decisionKey, final CachedEntries entries, final List<String> timestampKeys,
+            final long readGeneration) {
+        if (entries.getDecision() != null) {
+            this.decisions.put(decisionKey, ImmutablePolicyEvaluationResult.copyOf(entries.getDecision()));
+        }
+        putTimestamps(timestampKeys, entries.getTimestamps(), readGeneration);
+        if (readGeneration != this.generation.get()) {
+            this.decisions.invalidate(decisionKey);
+        }
+    }
+
+    void putTimestamps(final List<String> keys, final List<Long> values, final long readGeneration) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (values.get(i) != null) {
+                this.timestamps.put(keys.get(i), values.get(i));
+            }
+        }
+        // An invalidation may have been received since the values were read from Redis, in which case it may have
+        // been applied before they were put here.
+        if (readGeneration != this.generation.get()) {
+            this.timestamps.invalidateAll(keys);
+        }
+    }
+
+    void putDecision(final String key, final PolicyEvaluationResult decision, final String requestIdentity) {
+        this.decisions.put(key, ImmutablePolicyEvaluationResult.copyOf(decision, requestIdentity));
+    }
+
+    void invalidate(final Collection<String> keys) {
+        this.generation.incrementAndGet();
+        this.decisions.invalidateAll(keys);
+        this.timestamps.invalidateAll(keys);
+    }
+
+    void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.decisions.invalidateAll();
+        this.timestamps.invalidateAll();
+    }
+
+    static byte[] invalidationMessage(final Collection<String> keys) {
+        return String.join(KEY_SEPARATOR, keys).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] invalidateAllMessage() {
+        return ALL_KEYS.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onMessage(final Message message, final byte[] pattern) {
+        String keys = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (ALL_KEYS.equals(keys)) {
+            invalidateAll();
+        } else {
+            invalidate(Arrays.asList(keys.split(KEY_SEPARATOR)));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+
+/**
+ * A snapshot of a policy evaluation result that cannot be modified, so that the in-memory cache can hand out the
+ * instance it holds to every request without copying it. It also records the identity of the request it was made
+ * for, so that a cached decision can be checked against the request asking for it.
+ *
+ * @author acs-engineers@ge.com
+ */
+final class ImmutablePolicyEvaluationResult extends PolicyEvaluationResult {
+
+    private final String requestIdentity;
+
+    private ImmutablePolicyEvaluationResult(final PolicyEvaluationResult result, final String requestIdentity) {
+        super(result.getEffect(), unmodifiableCopy(result.getSubjectAttributes()),
+                unmodifiableCopy(result.getResourceAttributes()), unmodifiableCopy(result.getResolvedResourceUris()));
+        super.setTimestamp(result.getTimestamp());
+        super.setMessage(result.getMessage());
+        this.requestIdentity = requestIdentity;
+    }
+
+    /**
+     * @return an immutable copy of the given result that keeps its request identity, if it has one
+     */
+    static PolicyEvaluationResult copyOf(final PolicyEvaluationResult result) {
+        if (result instanceof ImmutablePolicyEvaluationResult) {
+            return result;
+        }
+        return new ImmutablePolicyEvaluationResult(result, null);
+    }
+
+    static PolicyEvaluationResult copyOf(final PolicyEvaluationResult result, final String requestIdentity) {
+        if (result instanceof ImmutablePolicyEvaluationResult && Objects.equals(requestIdentity,
+                ((ImmutablePolicyEvaluationResult) result).requestIdentity)) {
+            return result;
+        }
+        return new ImmutablePolicyEvaluationResult(result, requestIdentity);
+    }
+
+    /**
+     * @return true if the given cached result was made for the request with the given identity
+     */
+    static boolean isResultFor(final PolicyEvaluationResult result, final String requestIdentity) {
+        return result instanceof ImmutablePolicyEvaluationResult && requestIdentity != null
+                && requestIdentity.equals(((ImmutablePolicyEvaluationResult) result).requestIdentity);
+    }
+
+    String getRequestIdentity() {
+        return this.requestIdentity;
+    }
+
+    private static <T> Set<T> unmodifiableCopy(final Set<T> set) {
+        if (set == null) {
+            return null;
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(set));
+    }
+
+    private static <T> List<T> unmodifiableCopy(final List<T> list) {
+        if (list == null) {
+            return null;
+        }
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    @Override
+    public void setEffect(final Effect effect) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+
+    @Override
+    public void setSubjectAttributes(final Set<Attribute> subjectAttributes) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+
+    @Override
+    public void setResourceAttributes(final List<Attribute> resourceAttributes) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+
+    @Override
+    public void setResolvedResourceUris(final Set<String> resolvedResourceUris) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+
+    @Override
+    public void setTimestamp(final long timestamp) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+
+    @Override
+    public void setMessage(final String message) {
+        throw new UnsupportedOperationException("Cached policy evaluation results cannot be modified.");
+    }
+}
@@ -20,24 +20,117 @@ package org.eclipse.keti.acs.policy.evaluation.cache;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ConcurrentReferenceHashMap;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Keeps cached decisions, as immutable result objects, and the entity timestamps they are validated against, as
+ * longs, in two separate tiers. The decision tier is bounded by either an entry count or an approximate size in bytes,
+ * and its entries expire a fixed time after they were written. The timestamp tier is not bounded by size; its entries
+ * expire only once they have not been read or written for that same time. Since every timestamp a decision depends on
+ * is touched when the decision is cached, a timestamp can never be dropped before the decisions that depend on it.
+ *
+ * @author acs-engineers@ge.com
+ */
 @Component
 @Profile({ "simple-cache" })
 public class InMemoryPolicyEvaluationCache extends AbstractPolicyEvaluationCache {
 
-    private final Map<String, String> evalCache = new ConcurrentReferenceHashMap<String, String>();
+    static final long DEFAULT_MAX_ENTRIES = 100000;
+    static final long DEFAULT_TTL_SECONDS = 3600;
+
+    private final Cache<String, PolicyEvaluationResult> decisions;
+    private final Cache<String, Long> timestamps;
+
+    public InMemoryPolicyEvaluationCache() {
+        this(DEFAULT_MAX_ENTRIES, 0, DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximum number of cached decisions, ignored if maxBytes is set
+     * @param maxBytes
+     *            the maximum approximate size in bytes of the cached decisions, or 0 to bound them by count instead
+     * @param ttlSeconds
+     *            the number of seconds after which a cached decision expires
+     */
+    @Autowired
+    public InMemoryPolicyEvaluationCache(@Value("${DECISION_CACHE_MAX_ENTRIES:100000}") final long maxEntries,
+            @Value("${DECISION_CACHE_MAX_BYTES:0}") final long maxBytes,
+            @Value("${DECISION_CACHE_TTL_SECONDS:3600}") final long ttlSeconds) {
+        this(maxEntries, maxBytes, ttlSeconds, Ticker.systemTicker());
+    }
+
+    InMemoryPolicyEvaluationCache(final long maxEntries, final long maxBytes, final long ttlSeconds,
+            final Ticker ticker) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("The decision cache TTL must be positive.");
+        }
+        CacheBuilder<Object, Object> decisionsBuilder = CacheBuilder.newBuilder().ticker(ticker)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats();
+        if (maxBytes > 0) {
+            this.decisions = decisionsBuilder.maximumWeight(maxBytes)
+                    .weigher(InMemoryPolicyEvaluationCache::approximateSizeInBytes).build();
+        } else {
+            this.decisions = decisionsBuilder.maximumSize(maxEntries).build();
+        }
+        this.timestamps = CacheBuilder.newBuilder().ticker(ticker).expireAfterAccess(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static int approximateSizeInBytes(final String key, final PolicyEvaluationResult result) {
+        int chars = key.length() + length(result.getMessage());
+        if (result instanceof ImmutablePolicyEvaluationResult) {
+            chars += length(((ImmutablePolicyEvaluationResult) result).getRequestIdentity());
+        }
+        if (result.getResolvedResourceUris() != null) {
+            for (String resolvedResourceUri : result.getResolvedResourceUris()) {
+                chars += length(resolvedResourceUri);
+            }
+        }
+        return 2 * (chars + length(result.getSubjectAttributes()) + length(result.getResourceAttributes()));
+    }
+
+    private static int length(final Collection<Attribute> attributes) {
+        int chars = 0;
+        if (attributes != null) {
+            for (Attribute attribute : attributes) {
+                chars += length(attribute.getIssuer()) + length(attribute.getName()) + length(attribute.getValue());
+            }
+        }
+        return chars;
+    }
+
+    private static int length(final String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    private static void checkTimestampKey(final String key) {
+        if (!isPolicySetChangedKey(key) && !isResourceChangedKey(key) && !isSubjectChangedKey(key)) {
+            throw new IllegalArgumentException("Unsupported key format.");
+        }
+    }
 
     @Override
     void delete(final String key) {
-        this.evalCache.remove(key);
+        this.decisions.invalidate(key);
+        this.timestamps.invalidate(key);
     }
 
     @Override
@@ -49,44 +142,83 @@ public class InMemoryPolicyEvaluationCache extends AbstractPolicyEvaluationCache
 
     @Override
     void flushAll() {
-        this.evalCache.clear();
+        this.decisions.invalidateAll();
+        this.timestamps.invalidateAll();
+    }
+
+    @Override
+    void flushZone(final String zoneId) {
+        String prefix = zoneKeyPrefix(zoneId);
+        this.decisions.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        this.timestamps.asMap().keySet().removeIf(key -> key.startsWith(prefix));
     }
 
     @Override
     Set<String> keys(final String key) {
-        return this.evalCache.keySet();
+        return new HashSet<>(this.decisions.asMap().keySet());
     }
 
     @Override
-    List<String> multiGet(final List<String> keys) {
-        List<String> results = new ArrayList<>();
+    CachedEntries multiGet(final String decisionKey, final List<String> timestampKeys) {
+        return new CachedEntries(this.decisions.getIfPresent(decisionKey), multiGetTimestamps(timestampKeys));
+    }
+
+    @Override
+    List<Long> multiGetTimestamps(final List<String> keys) {
+        List<Long> results = new ArrayList<>(keys.size());
         for (String key : keys) {
-            results.add(this.evalCache.get(key));
+            results.add(this.timestamps.getIfPresent(key));
         }
         return results;
     }
 
     @Override
-    void multiSet(final Map<String, String> map) {
-        for (Entry<String, String> entry : map.entrySet()) {
-            set(entry.getKey(), entry.getValue());
+    void multiSetTimestamps(final Map<String, Long> map) {
+        for (Entry<String, Long> entry : map.entrySet()) {
+            setTimestamp(entry.getKey(), entry.getValue());
         }
     }
 
     @Override
-    void set(final String key, final String value) {
-        if (isPolicySetChangedKey(key) || isResourceChangedKey(key) || isSubjectChangedKey(key)
-                || isPolicyEvalResultKey(key)) {
-            this.evalCache.put(key, value);
-        } else {
-            throw new IllegalArgumentException("Unsupported key format.");
-        }
+    void setTimestamp(final String key, final long timestamp) {
+        checkTimestampKey(key);
+        this.timestamps.put(key, timestamp);
     }
 
     @Override
-    void setIfNotExists(final String key, final String value) {
-        if (!this.evalCache.containsKey(key)) {
-            this.evalCache.put(key, value);
+    void setTimestampIfNotExists(final String key, final long timestamp) {
+        checkTimestampKey(key);
+        // Reading the existing entry counts as an access, which keeps a timestamp alive for as long as any decision
+        // depending on it.
+        if (this.timestamps.getIfPresent(key) == null) {
+            this.timestamps.asMap().putIfAbsent(key, timestamp);
         }
     }
+
+    @Override
+    void setDecision(final PolicyEvaluationRequestCacheKey key, final PolicyEvaluationResult result) {
+        this.decisions.put(key.toDecisionKey(), ImmutablePolicyEvaluationResult.copyOf(result,
+                key.getIdentity()));
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of the decision tier
+     */
+    public CacheStats getDecisionStats() {
+        return this.decisions.stats();
+    }
+
+    /**
+     * @return the number of cached decisions
+     */
+    public long getDecisionCount() {
+        return this.decisions.size();
+    }
+
+    /**
+     * @return the number of cached entity timestamps
+     */
+    public long getTimestampCount() {
+        return this.timestamps.size();
+    }
 }
@@ -47,6 +47,11 @@ public class NonCachingPolicyEvaluationCache implements PolicyEvaluationCache {
         // Purposely empty since it's required by the PolicyEvaluationCache interface but unused here
     }
 
+    @Override
+    public void resetForZone(final String zoneId) {
+        // Purposely empty since it's required by the PolicyEvaluationCache interface but unused here
+    }
+
     @Override
     public void resetForPolicySet(final String zoneId, final String policySetId) {
         // Purposely empty since it's required by the PolicyEvaluationCache interface but unused here
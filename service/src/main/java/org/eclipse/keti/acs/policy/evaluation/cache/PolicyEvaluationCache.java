@@ -37,6 +37,11 @@ public interface PolicyEvaluationCache {
 
     void reset(PolicyEvaluationRequestCacheKey key);
 
+    /**
+     * Removes the decisions and timestamps cached for the given zone, leaving the other zones' entries alone.
+     */
+    void resetForZone(String zoneId);
+
     void resetForPolicySet(String zoneId, String policySetId);
 
     void resetForResource(String zoneId, String resourceId);
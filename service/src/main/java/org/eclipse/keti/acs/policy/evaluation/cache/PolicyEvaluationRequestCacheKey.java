@@ -18,23 +18,44 @@
 
 package org.eclipse.keti.acs.policy.evaluation.cache;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Identifies a cached decision. Cache keys are built from 128-bit hashes, so that distinct requests and entities do
+ * not share cache slots in practice; the canonical identity of the request is also cached with the decision and
+ * checked on read, so that a collision can only ever cause a cache miss.
+ */
 public class PolicyEvaluationRequestCacheKey {
     public static final String ANY_POLICY_SET_KEY = "any-policy-set-1f9c788b-e25d-4075-8fad-73bedcd67c2b";
     public static final LinkedHashSet<String> EVALUATION_ORDER_ANY_POLICY_SET_KEY = new LinkedHashSet<>(
             Collections.singleton(ANY_POLICY_SET_KEY));
 
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final Comparator<Attribute> ATTRIBUTE_ORDER = Comparator
+            .comparing(Attribute::getIssuer, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Attribute::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Attribute::getValue, Comparator.nullsFirst(Comparator.naturalOrder()));
+
     private final PolicyEvaluationRequestV1 request;
     private final LinkedHashSet<String> policySetIds;
     private final String resourceId;
     private final String subjectId;
     private final String zoneId;
+    private String identity;
+    private String decisionKey;
 
     public PolicyEvaluationRequestCacheKey(final PolicyEvaluationRequestV1 request, final String zoneId) {
         this.request = request;
@@ -54,33 +75,88 @@ public class PolicyEvaluationRequestCacheKey {
     }
 
     public String toDecisionKey() {
+        if (null == this.decisionKey) {
+            this.decisionKey = buildDecisionKey();
+        }
+        return this.decisionKey;
+    }
+
+    private String buildDecisionKey() {
         StringBuilder keyBuilder = new StringBuilder();
         if (null == this.zoneId) {
             keyBuilder.append("*:");
         } else {
-            keyBuilder.append(this.zoneId);
-            keyBuilder.append(":");
+            keyBuilder.append(AbstractPolicyEvaluationCache.zoneKeyPrefix(this.zoneId));
         }
         if (null == this.subjectId) {
             keyBuilder.append("*:");
         } else {
-            keyBuilder.append(Integer.toHexString(this.subjectId.hashCode()));
+            keyBuilder.append(hash(this.subjectId));
             keyBuilder.append(":");
         }
         if (null == this.resourceId) {
             keyBuilder.append("*:");
         } else {
-            keyBuilder.append(Integer.toHexString(this.resourceId.hashCode()));
+            keyBuilder.append(hash(this.resourceId));
             keyBuilder.append(":");
         }
         if (null == this.request) {
             keyBuilder.append("*");
         } else {
-            keyBuilder.append(Integer.toHexString(this.request.hashCode()));
+            keyBuilder.append(hash(getIdentity()));
         }
         return keyBuilder.toString();
     }
 
+    /**
+     * @return the canonical form of the zone, the action, the subject, the resource, the policy sets in evaluation
+     *         order and the supplemental subject attributes, in a fixed order. The supplemental resource attributes are
+     *         not part of it, just as the request's equals and hashCode ignore them, so requests differing only in
+     *         those share a cached decision.
+     */
+    String getIdentity() {
+        if (null == this.identity && null != this.request) {
+            StringBuilder identityBuilder = new StringBuilder();
+            appendField(identityBuilder, this.zoneId);
+            appendField(identityBuilder, this.request.getAction());
+            appendField(identityBuilder, this.subjectId);
+            appendField(identityBuilder, this.resourceId);
+            identityBuilder.append(this.policySetIds.size()).append('|');
+            for (String policySetId : this.policySetIds) {
+                appendField(identityBuilder, policySetId);
+            }
+            List<Attribute> subjectAttributes = new ArrayList<>();
+            if (null != this.request.getSubjectAttributes()) {
+                subjectAttributes.addAll(this.request.getSubjectAttributes());
+                subjectAttributes.sort(ATTRIBUTE_ORDER);
+            }
+            identityBuilder.append(subjectAttributes.size()).append('|');
+            for (Attribute attribute : subjectAttributes) {
+                appendField(identityBuilder, attribute.getIssuer());
+                appendField(identityBuilder, attribute.getName());
+                appendField(identityBuilder, attribute.getValue());
+            }
+            this.identity = identityBuilder.toString();
+        }
+        return this.identity;
+    }
+
+    // Length-prefixes each field so that no two different requests have the same identity.
+    private static void appendField(final StringBuilder identityBuilder, final String field) {
+        if (null == field) {
+            identityBuilder.append("-1|");
+        } else {
+            identityBuilder.append(field.length()).append('|').append(field);
+        }
+    }
+
+    /**
+     * @return the 128-bit murmur3 hash of the given string, in hexadecimal
+     */
+    static String hash(final String value) {
+        return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).toString();
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder().append(this.request).append(this.zoneId).toHashCode();
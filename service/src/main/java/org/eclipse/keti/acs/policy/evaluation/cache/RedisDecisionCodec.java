@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary encoding of the decisions and entity timestamps stored in Redis. Every value starts with a format
+ * version byte; values that do not, such as JSON written by an older version of this service, are read as absent.
+ * Decisions read as absent are cache misses; timestamps read as absent count as changed, so the cache replaces them.
+ *
+ * @author acs-engineers@ge.com
+ */
+final class RedisDecisionCodec {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisDecisionCodec.class);
+
+    private static final byte VERSION = 3;
+    private static final int TIMESTAMP_LENGTH = 1 + Long.BYTES;
+    private static final Effect[] EFFECTS = Effect.values();
+
+    private RedisDecisionCodec() {
+        // Prevents instantiation.
+    }
+
+    static byte[] encodeKey(final String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] encodeTimestamp(final long timestamp) {
+        byte[] bytes = new byte[TIMESTAMP_LENGTH];
+        bytes[0] = VERSION;
+        for (int i = TIMESTAMP_LENGTH - 1; i > 0; i--) {
+            bytes[i] = (byte) (timestamp >>> (Byte.SIZE * (TIMESTAMP_LENGTH - 1 - i)));
+        }
+        return bytes;
+    }
+
+    static Long decodeTimestamp(final byte[] bytes) {
+        if (bytes == null || bytes.length != TIMESTAMP_LENGTH || bytes[0] != VERSION) {
+            return null;
+        }
+        long timestamp = 0;
+        for (int i = 1; i < TIMESTAMP_LENGTH; i++) {
+            timestamp = (timestamp << Byte.SIZE) | (bytes[i] & 0xFF);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Encodes a decision, preceded by its timestamp and the keys of the resource timestamps it depends on, in the
+     * layout read by get-decision-if-valid.lua, and followed by the identity of the request it was made for.
+     */
+    static byte[] encodeDecision(final PolicyEvaluationResult result, final List<String> resourceKeys,
+            final String requestIdentity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(result.getTimestamp());
+            writeStrings(out, resourceKeys);
+            writeString(out, requestIdentity);
+            out.writeByte(result.getEffect().ordinal());
+            writeString(out, result.getMessage());
+            writeStrings(out, result.getResolvedResourceUris());
+            writeAttributes(out, result.getSubjectAttributes());
+            writeAttributes(out, result.getResourceAttributes());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to encode policy evaluation result.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static PolicyEvaluationResult decodeDecision(final byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != VERSION) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            long timestamp = in.readLong();
+            readStrings(in);
+            String requestIdentity = readString(in);
+            Effect effect = EFFECTS[in.readUnsignedByte()];
+            String message = readString(in);
+            Set<String> resolvedResourceUris = new LinkedHashSet<>(readStrings(in));
+            Set<Attribute> subjectAttributes = new LinkedHashSet<>(readAttributes(in));
+            List<Attribute> resourceAttributes = readAttributes(in);
+            PolicyEvaluationResult result = new PolicyEvaluationResult(effect, subjectAttributes, resourceAttributes,
+                    resolvedResourceUris);
+            result.setTimestamp(timestamp);
+            result.setMessage(message);
+            return ImmutablePolicyEvaluationResult.copyOf(result, requestIdentity);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            LOGGER.debug("Ignoring cached policy evaluation result that could not be decoded.", e);
+            return null;
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> strings)
+            throws IOException {
+        if (strings == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static List<String> readStrings(final DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeAttributes(final DataOutputStream out, final Collection<Attribute> attributes)
+            throws IOException {
+        if (attributes == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            writeString(out, attribute.getIssuer());
+            writeString(out, attribute.getName());
+            writeString(out, attribute.getValue());
+        }
+    }
+
+    private static List<Attribute> readAttributes(final DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            attributes.add(new Attribute(readString(in), readString(in), readString(in)));
+        }
+        return attributes;
+    }
+}
@@ -18,28 +18,89 @@
 
 package org.eclipse.keti.acs.policy.evaluation.cache;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.keti.acs.config.RedisKeyScanner;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+/**
+ * Caches decisions in Redis, optionally behind a {@link DecisionNearCache} on each node that is kept consistent
+ * through Redis pub/sub. Without the near cache, cached decisions are validated in Redis by a Lua script. Decision
+ * and timestamp keys expire after configurable TTLs, and the number of decisions each zone caches can be bounded.
+ *
+ * @author acs-engineers@ge.com
+ */
 @Component
 @Profile({ "cloud-redis", "redis" })
-public class RedisPolicyEvaluationCache extends AbstractPolicyEvaluationCache implements InitializingBean {
+public class RedisPolicyEvaluationCache extends AbstractPolicyEvaluationCache
+        implements InitializingBean, DisposableBean {
     private static final Logger LOGGER = LoggerFactory.getLogger(RedisPolicyEvaluationCache.class);
 
+    private static final String GET_DECISION_IF_VALID_LOCATION = "redis/get-decision-if-valid.lua";
+    private static final DefaultRedisScript<byte[]> GET_DECISION_IF_VALID = createGetDecisionIfValidScript();
+    private static final long DEFAULT_BUDGET_WINDOW_SECONDS = 3600;
+
     @Autowired
     private RedisTemplate<String, String> decisionCacheRedisTemplate;
 
+    @Value("${DECISION_CACHE_TTL_SECONDS:3600}")
+    private long decisionTtlSeconds;
+
+    @Value("${DECISION_CACHE_TIMESTAMP_TTL_SECONDS:7200}")
+    private long timestampTtlSeconds;
+
+    @Value("${DECISION_CACHE_MAX_DECISIONS_PER_ZONE:0}")
+    private long maxDecisionsPerZone;
+
+    @Value("${DECISION_CACHE_SCRIPTED_VALIDATION_ENABLED:true}")
+    private boolean scriptedValidationEnabled;
+
+    @Value("${DECISION_CACHE_NEAR_CACHE_ENABLED:false}")
+    private boolean nearCacheEnabled;
+
+    @Value("${DECISION_CACHE_NEAR_CACHE_MAX_ENTRIES:10000}")
+    private long nearCacheMaxEntries;
+
+    @Value("${DECISION_CACHE_NEAR_CACHE_TTL_SECONDS:60}")
+    private long nearCacheTtlSeconds;
+
+    private DecisionNearCache nearCache;
+
+    private RedisMessageListenerContainer invalidationListenerContainer;
+
+    // Zones that have used up their decision budget for the current window, with the end of that window.
+    private final Map<String, Long> zonesOverBudget = new ConcurrentHashMap<>();
+
     @Override
     public void afterPropertiesSet() {
         LOGGER.info("Starting Redis policy evaluation cache.");
@@ -49,45 +110,352 @@ public class RedisPolicyEvaluationCache extends AbstractPolicyEvaluationCache im
         } catch (RedisConnectionFailureException ex) {
             LOGGER.error("Redis server ping failed.", ex);
         }
+        if (this.nearCacheEnabled) {
+            enableNearCache(this.nearCacheMaxEntries, this.nearCacheTtlSeconds);
+            this.invalidationListenerContainer = new RedisMessageListenerContainer();
+            this.invalidationListenerContainer.setConnectionFactory(
+                    this.decisionCacheRedisTemplate.getConnectionFactory());
+            this.invalidationListenerContainer.addMessageListener(this.nearCache,
+                    new ChannelTopic(DecisionNearCache.INVALIDATION_CHANNEL));
+            this.invalidationListenerContainer.afterPropertiesSet();
+            this.invalidationListenerContainer.start();
+            LOGGER.info("Near cache enabled for Redis policy evaluation cache.");
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.invalidationListenerContainer != null) {
+            this.invalidationListenerContainer.destroy();
+        }
+    }
+
+    void enableNearCache(final long maxEntries, final long ttlSeconds) {
+        this.nearCache = new DecisionNearCache(maxEntries, ttlSeconds);
+    }
+
+    /**
+     * @return the listener to subscribe to the invalidation channel, or null if the near cache is not enabled
+     */
+    MessageListener getInvalidationListener() {
+        return this.nearCache;
     }
 
     @Override
     void delete(final String key) {
         this.decisionCacheRedisTemplate.delete(key);
+        publishInvalidation(Collections.singleton(key));
     }
 
     @Override
     void delete(final Collection<String> keys) {
         this.decisionCacheRedisTemplate.delete(keys);
+        publishInvalidation(keys);
     }
 
     @Override
     void flushAll() {
-        this.decisionCacheRedisTemplate.getConnectionFactory().getConnection().flushAll();
+        RedisKeyScanner.delete(this.decisionCacheRedisTemplate, "*", keys -> { });
+        if (this.nearCache != null) {
+            this.nearCache.invalidateAll();
+            publish(DecisionNearCache.invalidateAllMessage());
+        }
+    }
+
+    @Override
+    void flushZone(final String zoneId) {
+        long deleted = RedisKeyScanner.delete(this.decisionCacheRedisTemplate,
+                RedisKeyScanner.prefixPattern(zoneKeyPrefix(zoneId)), this::publishInvalidation);
+        LOGGER.debug("Deleted {} cached entries for zone '{}'", deleted, zoneId);
     }
 
     @Override
     Set<String> keys(final String key) {
-        return this.decisionCacheRedisTemplate.keys(key);
+        return RedisKeyScanner.keys(this.decisionCacheRedisTemplate, key);
     }
 
+    /**
+     * Unless the near cache is enabled, validates the cached decision with a Lua script, which fetches it and all the
+     * timestamps it depends on and deletes it if it is no longer valid in a single round trip to Redis.
+     */
     @Override
-    List<String> multiGet(final List<String> keys) {
-        return this.decisionCacheRedisTemplate.opsForValue().multiGet(keys);
+    PolicyEvaluationResult getIfEntitiesUnchanged(final PolicyEvaluationRequestCacheKey evalRequestKey,
+            final boolean checkAttributes) {
+        if (this.nearCache != null || !this.scriptedValidationEnabled) {
+            return super.getIfEntitiesUnchanged(evalRequestKey, checkAttributes);
+        }
+
+        String zoneId = evalRequestKey.getZoneId();
+        List<byte[]> keysAndArgs = new ArrayList<>();
+        keysAndArgs.add(RedisDecisionCodec.encodeKey(evalRequestKey.toDecisionKey()));
+        keysAndArgs.add(RedisDecisionCodec.encodeKey(subjectKey(zoneId, evalRequestKey.getSubjectId())));
+        for (String policySetId : evalRequestKey.getPolicySetIds()) {
+            keysAndArgs.add(RedisDecisionCodec.encodeKey(policySetKey(zoneId, policySetId)));
+        }
+        int numKeys = keysAndArgs.size();
+        keysAndArgs.add((checkAttributes ? "1" : "0").getBytes(StandardCharsets.UTF_8));
+
+        byte[] decision = this.decisionCacheRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                getDecisionIfValid(connection, numKeys, keysAndArgs.toArray(new byte[keysAndArgs.size()][])));
+        return RedisDecisionCodec.decodeDecision(decision);
+    }
+
+    private static byte[] getDecisionIfValid(final RedisConnection connection, final int numKeys,
+            final byte[][] keysAndArgs) {
+        try {
+            return connection.evalSha(GET_DECISION_IF_VALID.getSha1(), ReturnType.VALUE, numKeys, keysAndArgs);
+        } catch (DataAccessException e) {
+            if (!isNoScriptError(e)) {
+                throw e;
+            }
+            LOGGER.debug("Loading script '{}' into Redis.", GET_DECISION_IF_VALID_LOCATION);
+            return connection.eval(GET_DECISION_IF_VALID.getScriptAsString().getBytes(StandardCharsets.UTF_8),
+                    ReturnType.VALUE, numKeys, keysAndArgs);
+        }
+    }
+
+    private static boolean isNoScriptError(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DefaultRedisScript<byte[]> createGetDecisionIfValidScript() {
+        DefaultRedisScript<byte[]> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(GET_DECISION_IF_VALID_LOCATION));
+        script.setResultType(byte[].class);
+        return script;
     }
 
     @Override
-    void multiSet(final Map<String, String> map) {
-        this.decisionCacheRedisTemplate.opsForValue().multiSet(map);
+    CachedEntries multiGet(final String decisionKey, final List<String> timestampKeys) {
+        long generation = 0;
+        if (this.nearCache != null) {
+            generation = this.nearCache.generation();
+            CachedEntries nearCachedEntries = this.nearCache.get(decisionKey, timestampKeys);
+            if (nearCachedEntries != null) {
+                return nearCachedEntries;
+            }
+        }
+
+        List<String> keys = new ArrayList<>(timestampKeys);
+        keys.add(decisionKey);
+        List<byte[]> values = multiGetRaw(keys);
+        List<Long> timestamps = decodeTimestamps(timestampKeys, values);
+        CachedEntries entries = new CachedEntries(
+                RedisDecisionCodec.decodeDecision(values.get(timestampKeys.size())), timestamps);
+
+        if (this.nearCache != null) {
+            this.nearCache.put(decisionKey, entries, timestampKeys, generation);
+        }
+        return entries;
     }
 
     @Override
-    void set(final String key, final String value) {
-        this.decisionCacheRedisTemplate.opsForValue().set(key, value);
+    List<Long> multiGetTimestamps(final List<String> keys) {
+        long generation = 0;
+        if (this.nearCache != null) {
+            generation = this.nearCache.generation();
+            List<Long> nearCachedTimestamps = this.nearCache.getTimestamps(keys);
+            if (nearCachedTimestamps != null) {
+                return nearCachedTimestamps;
+            }
+        }
+
+        List<Long> timestamps = decodeTimestamps(keys, multiGetRaw(keys));
+
+        if (this.nearCache != null) {
+            this.nearCache.putTimestamps(keys, timestamps, generation);
+        }
+        return timestamps;
     }
 
+    /**
+     * Timestamps that cannot be decoded, such as those an older version of this service wrote without a TTL, read as
+     * changed. SETNX would never replace them, so they are replaced by the current time; that only ever invalidates
+     * decisions, so it is safe even if the entity changes meanwhile.
+     */
+    private List<Long> decodeTimestamps(final List<String> keys, final List<byte[]> values) {
+        List<Long> timestamps = new ArrayList<>(keys.size());
+        Map<String, Long> replacedTimestamps = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Long timestamp = RedisDecisionCodec.decodeTimestamp(values.get(i));
+            if (timestamp == null && values.get(i) != null) {
+                replacedTimestamps.put(keys.get(i), System.currentTimeMillis());
+            }
+            timestamps.add(timestamp);
+        }
+        if (!replacedTimestamps.isEmpty()) {
+            LOGGER.debug("Replacing timestamps that could not be decoded: {}", replacedTimestamps.keySet());
+            multiSetTimestamps(replacedTimestamps);
+        }
+        return timestamps;
+    }
+
+    private List<byte[]> multiGetRaw(final List<String> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = RedisDecisionCodec.encodeKey(keys.get(i));
+        }
+        return this.decisionCacheRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection
+                .mGet(rawKeys));
+    }
+
+    @Override
+    void multiSetTimestamps(final Map<String, Long> timestamps) {
+        this.decisionCacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Entry<String, Long> entry : timestamps.entrySet()) {
+                set(connection, RedisDecisionCodec.encodeKey(entry.getKey()),
+                        RedisDecisionCodec.encodeTimestamp(entry.getValue()), this.timestampTtlSeconds,
+                        SetOption.UPSERT);
+            }
+            return null;
+        });
+        publishInvalidation(timestamps.keySet());
+    }
+
+    @Override
+    void setTimestamp(final String key, final long timestamp) {
+        set(key, RedisDecisionCodec.encodeTimestamp(timestamp), this.timestampTtlSeconds, SetOption.UPSERT);
+        publishInvalidation(Collections.singleton(key));
+    }
+
+    @Override
+    void setTimestampIfNotExists(final String key, final long timestamp) {
+        // Only sets a timestamp that no node can have cached, so there is nothing to invalidate.
+        set(key, RedisDecisionCodec.encodeTimestamp(timestamp), this.timestampTtlSeconds, SetOption.SET_IF_ABSENT);
+    }
+
+    @Override
+    void setDecision(final PolicyEvaluationRequestCacheKey key, final PolicyEvaluationResult result) {
+        if (isOverBudget(key.getZoneId())) {
+            return;
+        }
+        set(key.toDecisionKey(), encodeDecision(key, result), this.decisionTtlSeconds, SetOption.UPSERT);
+        if (this.nearCache != null) {
+            this.nearCache.putDecision(key.toDecisionKey(), result, key.getIdentity());
+        }
+    }
+
+    /**
+     * Pipelines the SETNX of every timestamp and the SET of the decision, so that caching a decision takes a single
+     * round trip to Redis however many resources it depends on. If a decision budget is set, the zone's decision
+     * count for the current window is incremented in the same round trip.
+     */
     @Override
-    void setIfNotExists(final String key, final String value) {
-        this.decisionCacheRedisTemplate.boundValueOps(key).setIfAbsent(value);
+    void setDecisionAndTimestampsIfNotExist(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationResult result, final List<String> timestampKeys, final long timestamp) {
+        String zoneId = key.getZoneId();
+        if (isOverBudget(zoneId)) {
+            LOGGER.debug("Not caching decision for key '{}'; zone '{}' is over its decision budget.",
+                    key.toDecisionKey(), zoneId);
+            return;
+        }
+
+        byte[] rawTimestamp = RedisDecisionCodec.encodeTimestamp(timestamp);
+        byte[] rawDecisionKey = RedisDecisionCodec.encodeKey(key.toDecisionKey());
+        byte[] rawDecision = encodeDecision(key, result);
+        long window = budgetWindow();
+        byte[] rawBudgetKey = RedisDecisionCodec.encodeKey(decisionBudgetKey(zoneId, window));
+        List<Object> results = this.decisionCacheRedisTemplate.executePipelined(
+                (RedisCallback<Object>) connection -> {
+                    if (this.maxDecisionsPerZone > 0) {
+                        // Must stay the first command, so that its count is the first result.
+                        connection.incr(rawBudgetKey);
+                        connection.expire(rawBudgetKey, 2 * budgetWindowSeconds());
+                    }
+                    for (String timestampKey : timestampKeys) {
+                        set(connection, RedisDecisionCodec.encodeKey(timestampKey), rawTimestamp,
+                                this.timestampTtlSeconds, SetOption.SET_IF_ABSENT);
+                    }
+                    set(connection, rawDecisionKey, rawDecision, this.decisionTtlSeconds, SetOption.UPSERT);
+                    return null;
+                });
+
+        if (this.maxDecisionsPerZone > 0 && !results.isEmpty() && results.get(0) instanceof Long
+                && (Long) results.get(0) > this.maxDecisionsPerZone) {
+            LOGGER.info("Zone '{}' has used up its budget of {} decisions for the current window.", zoneId,
+                    this.maxDecisionsPerZone);
+            this.zonesOverBudget.put(zoneId, (window + 1) * budgetWindowSeconds() * 1000);
+            this.decisionCacheRedisTemplate.delete(key.toDecisionKey());
+            return;
+        }
+        if (this.nearCache != null) {
+            this.nearCache.putDecision(key.toDecisionKey(), result, key.getIdentity());
+        }
+    }
+
+    /**
+     * Decisions are counted per zone over fixed windows as long as the decision TTL. As each decision expires within
+     * a TTL, a zone never has more than twice its budget of decisions in Redis at once.
+     */
+    private boolean isOverBudget(final String zoneId) {
+        if (this.maxDecisionsPerZone <= 0) {
+            return false;
+        }
+        Long windowEnd = this.zonesOverBudget.get(zoneId);
+        if (windowEnd == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() >= windowEnd) {
+            this.zonesOverBudget.remove(zoneId, windowEnd);
+            return false;
+        }
+        return true;
+    }
+
+    private long budgetWindowSeconds() {
+        return this.decisionTtlSeconds > 0 ? this.decisionTtlSeconds : DEFAULT_BUDGET_WINDOW_SECONDS;
+    }
+
+    private long budgetWindow() {
+        return System.currentTimeMillis() / 1000 / budgetWindowSeconds();
+    }
+
+    static String decisionBudgetKey(final String zoneId, final long window) {
+        return zoneKeyPrefix(zoneId) + "decision-budget:" + window;
+    }
+
+    private static byte[] encodeDecision(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationResult result) {
+        return RedisDecisionCodec.encodeDecision(result,
+                resolvedResourceKeys(key.getZoneId(), result.getResolvedResourceUris()), key.getIdentity());
+    }
+
+    private void set(final String key, final byte[] value, final long ttlSeconds, final SetOption option) {
+        this.decisionCacheRedisTemplate.execute((RedisCallback<Void>) connection -> {
+            set(connection, RedisDecisionCodec.encodeKey(key), value, ttlSeconds, option);
+            return null;
+        });
+    }
+
+    /**
+     * Sets the value, expiring it after the given number of seconds unless that number is not positive.
+     */
+    private static void set(final RedisConnection connection, final byte[] key, final byte[] value,
+            final long ttlSeconds, final SetOption option) {
+        if (ttlSeconds > 0) {
+            connection.set(key, value, Expiration.seconds(ttlSeconds), option);
+        } else if (option == SetOption.SET_IF_ABSENT) {
+            connection.setNX(key, value);
+        } else {
+            connection.set(key, value);
+        }
+    }
+
+    private void publishInvalidation(final Collection<String> keys) {
+        if (this.nearCache == null || keys.isEmpty()) {
+            return;
+        }
+        this.nearCache.invalidate(keys);
+        publish(DecisionNearCache.invalidationMessage(keys));
+    }
+
+    private void publish(final byte[] message) {
+        this.decisionCacheRedisTemplate.execute((RedisCallback<Long>) connection -> connection
+                .publish(RedisDecisionCodec.encodeKey(DecisionNearCache.INVALIDATION_CHANNEL), message));
     }
 }
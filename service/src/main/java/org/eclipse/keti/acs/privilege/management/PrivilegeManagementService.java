@@ -24,6 +24,7 @@ import org.eclipse.keti.acs.rest.BaseSubject;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * CRUD interface operations for privilege management.
@@ -36,6 +37,17 @@ public interface PrivilegeManagementService {
 
     List<BaseResource> getResources();
 
+    /**
+     * @param cursor
+     *            the cursor returned with the previous page, or null for the first page
+     */
+    CursorPage<BaseResource> getResources(String cursor, int pageSize);
+
+    /**
+     * Passes every resource of the zone to the consumer, reading them a page at a time.
+     */
+    void forEachResource(Consumer<BaseResource> consumer);
+
     BaseResource getByResourceIdentifier(String resourceIdentifier);
 
     BaseResource getByResourceIdentifierWithInheritedAttributes(String resourceIdentifier);
@@ -48,6 +60,17 @@ public interface PrivilegeManagementService {
 
     List<BaseSubject> getSubjects();
 
+    /**
+     * @param cursor
+     *            the cursor returned with the previous page, or null for the first page
+     */
+    CursorPage<BaseSubject> getSubjects(String cursor, int pageSize);
+
+    /**
+     * Passes every subject of the zone to the consumer, reading them a page at a time.
+     */
+    void forEachSubject(Consumer<BaseSubject> consumer);
+
     BaseSubject getBySubjectIdentifier(String subjectIdentifier);
 
     BaseSubject getBySubjectIdentifierWithInheritedAttributes(String subjectIdentifier);
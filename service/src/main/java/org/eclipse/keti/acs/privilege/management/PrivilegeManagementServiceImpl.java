@@ -20,14 +20,20 @@ package org.eclipse.keti.acs.privilege.management;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,14 +43,22 @@ import org.eclipse.keti.acs.privilege.management.dao.ResourceEntity;
 import org.eclipse.keti.acs.privilege.management.dao.ResourceRepositoryProxy;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectEntity;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectRepositoryProxy;
+import org.eclipse.keti.acs.privilege.management.dao.ZonableEntity;
 import org.eclipse.keti.acs.rest.BaseResource;
 import org.eclipse.keti.acs.rest.BaseSubject;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import org.eclipse.keti.acs.zone.resolver.ZoneResolver;
+import com.google.common.collect.Lists;
 
 /**
  * The implementation of privilege management.
  *
+ * Resources and subjects are appended in chunks of PRIVILEGE_BULK_CHUNK_SIZE, each of which is looked up, saved and
+ * committed at once, so that large lists can be loaded without one lookup per item or one huge transaction. When a
+ * chunk fails to save, the chunks before it remain committed. Iterating over every resource or subject of a zone
+ * reads them in pages of the same size without starting a transaction, so that unless the caller has one, each page
+ * is loaded in its own persistence context and is no longer managed while the next ones are read.
+ *
  * @author acs-engineers@ge.com
  */
 @Component
@@ -65,6 +79,9 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
     @Autowired
     private ZoneResolver zoneResolver;
 
+    @Value("${PRIVILEGE_BULK_CHUNK_SIZE:1000}")
+    private int bulkChunkSize = 1000;
+
     private final PrivilegeConverter privilegeConverter = new PrivilegeConverter();
 
     @Override
@@ -84,32 +101,45 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
     @Transactional
     private void appendResourcesInTransaction(final List<BaseResource> resources, final ZoneEntity zone,
             final List<ResourceEntity> entities) {
-        for (BaseResource resource : resources) {
-            ResourceEntity persistedResource = this.resourceRepository
-                    .getByZoneAndResourceIdentifier(zone, resource.getResourceIdentifier());
+        for (List<BaseResource> chunk : Lists.partition(resources, this.bulkChunkSize)) {
+            List<ResourceEntity> chunkEntities = toResourceEntities(chunk, zone);
+            try {
+                this.cache.resetForResources(zone.getName(), chunkEntities);
+                this.resourceRepository.save(chunkEntities);
+            } catch (Exception e) {
+
+                String message = String.format(
+                        "Unable to persist Resource(s) for zone = %s.", zone.toString());
+                if (constrainViolation(e)) {
+                    message = String.format("Duplicate Resource(s) identified by zone = %s.", zone.toString());
+                }
+                message += persistedChunksMessage("Resource(s)", entities.size(), resources.size());
+                LOGGER.error(message, e);
+                throw new PrivilegeManagementException(message, e);
+            }
+            entities.addAll(chunkEntities);
+            logProgress("resources", entities.size(), resources.size(), zone);
+        }
+    }
 
+    private List<ResourceEntity> toResourceEntities(final List<BaseResource> resources, final ZoneEntity zone) {
+        Map<String, Long> persistedIds = new HashMap<>();
+        this.resourceRepository.findByZoneAndResourceIdentifierIn(zone,
+                resources.stream().map(BaseResource::getResourceIdentifier).collect(Collectors.toSet()))
+                .forEach(persisted -> persistedIds.put(persisted.getResourceIdentifier(), persisted.getId()));
+
+        List<ResourceEntity> entities = new ArrayList<>(resources.size());
+        for (BaseResource resource : resources) {
             ResourceEntity entity = this.privilegeConverter.toResourceEntity(zone, resource);
-            if (persistedResource != null) {
+            Long persistedId = persistedIds.get(resource.getResourceIdentifier());
+            if (persistedId != null) {
                 LOGGER.debug("Found an existing resource with resourceIdentifier = {}, zone = {}. Upserting the same.",
                         resource.getResourceIdentifier(), zone);
-                entity.setId(persistedResource.getId());
+                entity.setId(persistedId);
             }
             entities.add(entity);
         }
-
-        try {
-            this.cache.resetForResources(zone.getName(), entities);
-            this.resourceRepository.save(entities);
-        } catch (Exception e) {
-
-            String message = String.format("Unable to persist Resource(s) for zone = %s. Transaction was rolled back.",
-                    zone.toString());
-            if (constrainViolation(e)) {
-                message = String.format("Duplicate Resource(s) identified by zone = %s.", zone.toString());
-            }
-            LOGGER.error(message, e);
-            throw new PrivilegeManagementException(message, e);
-        }
+        return entities;
     }
 
     @Override
@@ -128,6 +158,43 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
         return resources;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BaseResource> getResources(final String cursor, final int pageSize) {
+        ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
+        List<ResourceEntity> resourceEntities = this.resourceRepository.findPageByZone(zone, parseCursor(cursor),
+                new PageRequest(0, pageSize));
+        return new CursorPage<>(
+                resourceEntities.stream().map(this.privilegeConverter::toResource).collect(Collectors.toList()),
+                nextCursor(resourceEntities, pageSize));
+    }
+
+    @Override
+    public void forEachResource(final Consumer<BaseResource> consumer) {
+        ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
+        this.resourceRepository.forEachByZone(zone, this.bulkChunkSize,
+                entity -> consumer.accept(this.privilegeConverter.toResource(entity)));
+    }
+
+    private static long parseCursor(final String cursor) {
+        if (null == cursor) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new PrivilegeManagementException(String.format("Invalid cursor: '%s'.", cursor), e);
+        }
+    }
+
+    // The cursor is the id of the last entity of a full page, as the entities of a page are in id order.
+    private static String nextCursor(final List<? extends ZonableEntity> entities, final int pageSize) {
+        if (entities.size() < pageSize) {
+            return null;
+        }
+        return String.valueOf(entities.get(entities.size() - 1).getId());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BaseResource getByResourceIdentifier(final String resourceIdentifier) {
@@ -248,26 +315,52 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
     @Transactional
     private void appendSubjectsInTransaction(final List<BaseSubject> subjects, final ZoneEntity zone,
             final List<SubjectEntity> subjectEntities) {
+        for (List<BaseSubject> chunk : Lists.partition(subjects, this.bulkChunkSize)) {
+            List<SubjectEntity> chunkEntities = toSubjectEntities(chunk, zone);
+            try {
+                this.cache.resetForSubjects(zone.getName(), chunkEntities);
+                this.subjectRepository.save(chunkEntities);
+            } catch (Exception e) {
+                String message = String.format(
+                        "Unable to persist Subject(s) for zone = %s.", zone.toString());
+                if (constrainViolation(e)) {
+                    message = String.format("Duplicate Subject(s) identified by zone = %s.", zone.toString());
+                }
+                message += persistedChunksMessage("Subject(s)", subjectEntities.size(), subjects.size());
+                LOGGER.error(message, e);
+                throw new PrivilegeManagementException(message, e);
+            }
+            subjectEntities.addAll(chunkEntities);
+            logProgress("subjects", subjectEntities.size(), subjects.size(), zone);
+        }
+    }
+
+    private List<SubjectEntity> toSubjectEntities(final List<BaseSubject> subjects, final ZoneEntity zone) {
+        Map<String, Long> persistedIds = new HashMap<>();
+        this.subjectRepository.findByZoneAndSubjectIdentifierIn(zone,
+                subjects.stream().map(BaseSubject::getSubjectIdentifier).collect(Collectors.toSet()))
+                .forEach(persisted -> persistedIds.put(persisted.getSubjectIdentifier(), persisted.getId()));
+
+        List<SubjectEntity> entities = new ArrayList<>(subjects.size());
         for (BaseSubject subject : subjects) {
-            SubjectEntity persistedSubject = this.subjectRepository
-                    .getByZoneAndSubjectIdentifier(zone, subject.getSubjectIdentifier());
             SubjectEntity entity = this.privilegeConverter.toSubjectEntity(zone, subject);
-            if (persistedSubject != null) {
-                entity.setId(persistedSubject.getId());
+            Long persistedId = persistedIds.get(subject.getSubjectIdentifier());
+            if (persistedId != null) {
+                entity.setId(persistedId);
             }
-            subjectEntities.add(entity);
+            entities.add(entity);
         }
-        try {
-            this.cache.resetForSubjects(zone.getName(), subjectEntities);
-            this.subjectRepository.save(subjectEntities);
-        } catch (Exception e) {
-            String message = String.format("Unable to persist Subject(s) for zone = %s. Transaction was rolled back.",
-                    zone.toString());
-            if (constrainViolation(e)) {
-                message = String.format("Duplicate Subject(s) identified by zone = %s", zone.toString());
-            }
-            LOGGER.error(message, e);
-            throw new PrivilegeManagementException(message, e);
+        return entities;
+    }
+
+    private static String persistedChunksMessage(final String kind, final int persisted, final int total) {
+        return String.format(" Only the failing chunk was rolled back; %d of %d %s remain persisted.", persisted,
+                total, kind);
+    }
+
+    private void logProgress(final String kind, final int appended, final int total, final ZoneEntity zone) {
+        if (total > this.bulkChunkSize) {
+            LOGGER.info("Appended {} of {} {} to zone = {}.", appended, total, kind, zone.getName());
         }
     }
 
@@ -286,6 +379,24 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
         return subjects;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BaseSubject> getSubjects(final String cursor, final int pageSize) {
+        ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
+        List<SubjectEntity> subjectEntities = this.subjectRepository.findPageByZone(zone, parseCursor(cursor),
+                new PageRequest(0, pageSize));
+        return new CursorPage<>(
+                subjectEntities.stream().map(this.privilegeConverter::toSubject).collect(Collectors.toList()),
+                nextCursor(subjectEntities, pageSize));
+    }
+
+    @Override
+    public void forEachSubject(final Consumer<BaseSubject> consumer) {
+        ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
+        this.subjectRepository.forEachByZone(zone, this.bulkChunkSize,
+                entity -> consumer.accept(this.privilegeConverter.toSubject(entity)));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BaseSubject getBySubjectIdentifier(final String subjectIdentifier) {
@@ -425,6 +536,10 @@ public class PrivilegeManagementServiceImpl implements PrivilegeManagementServic
         }
     }
 
+    void setBulkChunkSize(final int bulkChunkSize) {
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
     public void setCache(final PolicyEvaluationCache cache) {
         this.cache = cache;
     }
@@ -18,6 +18,24 @@
 
 package org.eclipse.keti.acs.privilege.management;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.keti.acs.commons.web.RestApiException;
+
 public final class PrivilegeManagementUtility {
 
     private PrivilegeManagementUtility() {
@@ -27,4 +45,60 @@ public final class PrivilegeManagementUtility {
     public static final String INHERITED_ATTRIBUTES_REQUEST_PARAMETER = "includeInheritedAttributes";
     public static final String INCORRECT_PARAMETER_TYPE_ERROR = "error";
     public static final String INCORRECT_PARAMETER_TYPE_MESSAGE = "message";
+    public static final String PAGE_SIZE_REQUEST_PARAMETER = "pageSize";
+    public static final String CURSOR_REQUEST_PARAMETER = "cursor";
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String NDJSON_MEDIA_TYPE_VALUE = "application/x-ndjson";
+    public static final MediaType NDJSON_MEDIA_TYPE = MediaType.valueOf(NDJSON_MEDIA_TYPE_VALUE);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static boolean acceptsNdjson(final String accept) {
+        // Only an explicit request for NDJSON streams, so that wildcards keep getting the JSON array.
+        return null != accept && MediaType.parseMediaTypes(accept).stream().anyMatch(
+                mediaType -> !mediaType.isWildcardSubtype() && mediaType.isCompatibleWith(NDJSON_MEDIA_TYPE));
+    }
+
+    static int validPageSize(final int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RestApiException(HttpStatus.BAD_REQUEST,
+                    String.format("%s must be between 1 and %d.", PAGE_SIZE_REQUEST_PARAMETER, MAX_PAGE_SIZE));
+        }
+        return pageSize;
+    }
+
+    /**
+     * @return the items of the page, with a Link header to the next page unless this is the last page
+     */
+    static <T> ResponseEntity<List<T>> pageResponse(final CursorPage<T> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (null != page.getNextCursor()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam(CURSOR_REQUEST_PARAMETER, page.getNextCursor()).build().toUriString();
+            headers.add(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next));
+        }
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Writes every item passed by the producer to the response as newline-delimited JSON, as soon as it is produced.
+     */
+    static <T> void writeNdjson(final HttpServletResponse response, final Consumer<Consumer<T>> producer)
+            throws IOException {
+        response.setContentType(NDJSON_MEDIA_TYPE_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            producer.accept(item -> {
+                try {
+                    generator.writeObject(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
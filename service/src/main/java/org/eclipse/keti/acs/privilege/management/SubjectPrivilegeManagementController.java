@@ -25,24 +25,36 @@ import static org.eclipse.keti.acs.commons.web.ResponseEntityBuilder.created;
 import static org.eclipse.keti.acs.commons.web.ResponseEntityBuilder.noContent;
 import static org.eclipse.keti.acs.commons.web.ResponseEntityBuilder.notFound;
 import static org.eclipse.keti.acs.commons.web.ResponseEntityBuilder.ok;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.CURSOR_REQUEST_PARAMETER;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.NDJSON_MEDIA_TYPE_VALUE;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.PAGE_SIZE_REQUEST_PARAMETER;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.acceptsNdjson;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.pageResponse;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.validPageSize;
+import static org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility.writeNdjson;
 import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
 import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -102,11 +114,30 @@ public class SubjectPrivilegeManagementController extends BaseRestApi {
         }
     }
 
-    @ApiOperation(value = "Retrieves the list of subjects for the given zone.", tags = { "Attribute Management" })
-    @RequestMapping(method = GET, value = { V1 + SUBJECTS_URL }, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<BaseSubject>> getSubjects() {
-        List<BaseSubject> subjects = this.service.getSubjects();
-        return ok(subjects);
+    @ApiOperation(value = "Retrieves the list of subjects for the given zone."
+            + " When pageSize is given, only the page following the given cursor is returned, with a Link header to"
+            + " the next page unless it is the last one. With Accept: " + NDJSON_MEDIA_TYPE_VALUE
+            + ", all subjects are streamed as newline-delimited JSON.",
+            tags = { "Attribute Management" })
+    @RequestMapping(method = GET, value = { V1 + SUBJECTS_URL },
+            produces = { MediaType.APPLICATION_JSON_VALUE, NDJSON_MEDIA_TYPE_VALUE })
+    public ResponseEntity<List<BaseSubject>> getSubjects(
+            @RequestParam(name = PAGE_SIZE_REQUEST_PARAMETER, required = false) final Integer pageSize,
+            @RequestParam(name = CURSOR_REQUEST_PARAMETER, required = false) final String cursor,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) final String accept,
+            final HttpServletResponse response) throws IOException {
+        if (acceptsNdjson(accept)) {
+            writeNdjson(response, this.service::forEachSubject);
+            return null;
+        }
+        if (null == pageSize) {
+            return ok(this.service.getSubjects());
+        }
+        try {
+            return pageResponse(this.service.getSubjects(cursor, validPageSize(pageSize)));
+        } catch (PrivilegeManagementException e) {
+            throw new RestApiException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
     @ApiOperation(value = "Retrieves the subject for the given zone. The subjectIdentifier must be URL encoded in "
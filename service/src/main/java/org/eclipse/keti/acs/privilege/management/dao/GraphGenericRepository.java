@@ -21,19 +21,33 @@ package org.eclipse.keti.acs.privilege.management.dao;
 import static org.eclipse.keti.acs.privilege.management.dao.AttributePredicate.elementOf;
 import static org.apache.tinkerpop.gremlin.process.traversal.P.eq;
 import static org.apache.tinkerpop.gremlin.process.traversal.P.test;
+import static org.apache.tinkerpop.gremlin.process.traversal.P.within;
 import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.in;
+import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.out;
 import static org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__.outE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.T;
@@ -43,6 +57,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -53,14 +69,31 @@ import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.rest.Parent;
 import org.eclipse.keti.acs.utils.JsonUtils;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import org.janusgraph.core.SchemaViolationException;
 
+/**
+ * Stores entities and their parent relationships in the graph.
+ *
+ * When GRAPH_MATERIALIZE_INHERITED_ATTRIBUTES is true, the attributes every entity inherits from its ancestors are
+ * also materialized on its vertex, so that reading them does not traverse and deserialize every ancestor. The
+ * materialized attributes of an entity and of all its descendants are recomputed whenever the entity is saved or
+ * deleted, and those of all entities are rebuilt in the background on startup, since they are not maintained while
+ * materialization is disabled; until the rebuild completes, inherited attributes are read by traversing the graph.
+ *
+ * The attributes of up to GRAPH_PARSED_ATTRIBUTES_CACHE_SIZE vertices are kept parsed in memory, so that the
+ * attributes of popular ancestors are only parsed again when the attributes stored on their vertex change.
+ *
+ * @author acs-engineers@ge.com
+ */
 public abstract class GraphGenericRepository<E extends ZonableEntity> implements JpaRepository<E, Long> {
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphGenericRepository.class);
     private static final JsonUtils JSON_UTILS = new JsonUtils();
 
     public static final String ATTRIBUTES_PROPERTY_KEY = "attributes";
+    public static final String INHERITED_ATTRIBUTES_PROPERTY_KEY = "inheritedAttributes";
     public static final String PARENT_EDGE_LABEL = "parent";
     public static final String SCOPE_PROPERTY_KEY = "scope";
     public static final String ZONE_NAME_PROPERTY_KEY = "zoneName";
@@ -74,6 +107,18 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
     @Value("${GRAPH_TRAVERSAL_LIMIT:256}")
     private long traversalLimit = 256;
 
+    @Value("${GRAPH_MATERIALIZE_INHERITED_ATTRIBUTES:false}")
+    private boolean inheritedAttributesMaterialized;
+
+    private volatile boolean materializedInheritedAttributesReady;
+
+    private ExecutorService rebuildExecutor;
+
+    @Value("${GRAPH_PARSED_ATTRIBUTES_CACHE_SIZE:10000}")
+    private long parsedAttributesCacheSize = 10000;
+
+    private volatile Cache<Object, ParsedAttributes> parsedAttributesCache;
+
     @Override
     public void deleteAllInBatch() {
         deleteAll();
@@ -128,7 +173,9 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
     @Override
     public <S extends E> List<S> save(final Iterable<S> entities) {
         List<S> savedEntities = new ArrayList<>();
-        this.commitTransaction(() -> entities.forEach(item -> savedEntities.add(saveCommon(item))));
+        // Parents saved or looked up earlier in the batch are resolved from here instead of being looked up again.
+        Map<List<String>, Vertex> batchVertices = new HashMap<>();
+        this.commitTransaction(() -> entities.forEach(item -> savedEntities.add(saveCommon(item, batchVertices))));
         return savedEntities;
     }
 
@@ -153,19 +200,37 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
 
     @Override
     public void delete(final Long id) {
-        this.commitTransaction(() -> this.graphTraversal.V(id).drop().iterate());
+        this.commitTransaction(() -> dropVertices(id));
     }
 
     @Override
     public void delete(final E entity) {
-        this.commitTransaction(() -> this.graphTraversal.V(entity.getId()).drop().iterate());
+        this.commitTransaction(() -> dropVertices(entity.getId()));
     }
 
     @Override
     public void delete(final Iterable<? extends E> entities) {
         List<Long> ids = new ArrayList<>();
         entities.forEach(item -> ids.add(item.getId()));
-        this.commitTransaction(() -> this.graphTraversal.V(ids.toArray()).drop().iterate());
+        this.commitTransaction(() -> dropVertices(ids.toArray()));
+    }
+
+    private void dropVertices(final Object... ids) {
+        if (!this.inheritedAttributesMaterialized) {
+            this.graphTraversal.V(ids).drop().iterate();
+            return;
+        }
+        Set<Object> descendantIds = new HashSet<>();
+        for (Object id : ids) {
+            descendants(id).id().forEachRemaining(descendantIds::add);
+        }
+        this.graphTraversal.V(ids).drop().iterate();
+        for (Object id : ids) {
+            descendantIds.remove(id);
+        }
+        if (!descendantIds.isEmpty()) {
+            this.graphTraversal.V(descendantIds.toArray()).toList().forEach(this::materializeInheritedAttributes);
+        }
     }
 
     @Override
@@ -201,7 +266,7 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
     public <S extends E> S save(final S entity) {
         S saveCommon;
         try {
-            saveCommon = saveCommon(entity);
+            saveCommon = saveCommon(entity, new HashMap<>());
             this.graphTraversal.tx().commit();
         } catch (Exception e) {
             this.graphTraversal.tx().rollback();
@@ -210,7 +275,7 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
         return saveCommon;
     }
 
-    private <S extends E> S saveCommon(final S entity) {
+    private <S extends E> S saveCommon(final S entity, final Map<List<String>, Vertex> batchVertices) {
         // Create the entity if the id is null otherwise update an existing entity.
         if ((null == entity.getId()) || (0 == entity.getId())) {
             verifyEntityNotSelfReferencing(entity);
@@ -222,14 +287,22 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
                     .property(ZONE_ID_KEY, zoneId).property(getEntityIdKey(), entityId).next();
 
             updateVertexProperties(entity, entityVertex);
-            saveParentRelationships(entity, entityVertex, false);
+            saveParentRelationships(entity, entityVertex, false, batchVertices);
             entity.setId((Long) entityVertex.id());
+            batchVertices.put(Arrays.asList(zoneId, entityId), entityVertex);
+            if (this.inheritedAttributesMaterialized) {
+                materializeInheritedAttributes(entityVertex);
+            }
         } else {
             verifyEntityReferencesNotCyclic(entity);
             GraphTraversal<Vertex, Vertex> traversal = this.graphTraversal.V(entity.getId());
             Vertex entityVertex = traversal.next();
             updateVertexProperties(entity, entityVertex);
-            saveParentRelationships(entity, entityVertex, true);
+            saveParentRelationships(entity, entityVertex, true, batchVertices);
+            if (this.inheritedAttributesMaterialized) {
+                // Whatever the descendants of this entity inherit through it may have changed as well.
+                descendants(entityVertex.id()).toList().forEach(this::materializeInheritedAttributes);
+            }
         }
         return entity;
     }
@@ -256,14 +329,23 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
         });
     }
 
-    void saveParentRelationships(final E entity, final Vertex vertex, final boolean update) {
+    void saveParentRelationships(final E entity, final Vertex vertex, final boolean update,
+            final Map<List<String>, Vertex> batchVertices) {
         if (update) { // If this is an update remove all existing edges.
             vertex.edges(Direction.OUT, PARENT_EDGE_LABEL).forEachRemaining(Edge::remove);
         }
-        entity.getParents().forEach(parent -> saveParentRelationship(entity, vertex, parent));
+        entity.getParents().forEach(parent -> saveParentRelationship(entity, vertex, parent, batchVertices));
+    }
+
+    private void saveParentRelationship(final E entity, final Vertex vertex, final Parent parent,
+            final Map<List<String>, Vertex> batchVertices) {
+        Vertex parentVertex = batchVertices.computeIfAbsent(Arrays.asList(entity.getZone().getName(),
+                parent.getIdentifier()), key -> getParentVertex(entity, parent));
+        Edge parentEdge = vertex.addEdge(PARENT_EDGE_LABEL, parentVertex);
+        parent.getScopes().forEach(scope -> parentEdge.property(SCOPE_PROPERTY_KEY, JSON_UTILS.serialize(scope)));
     }
 
-    private void saveParentRelationship(final E entity, final Vertex vertex, final Parent parent) {
+    private Vertex getParentVertex(final E entity, final Parent parent) {
         GraphTraversal<Vertex, Vertex> traversal = this.graphTraversal.V().has(ZONE_ID_KEY, entity.getZone().getName())
                 .has(getEntityIdKey(), parent.getIdentifier());
         if (!traversal.hasNext()) {
@@ -271,8 +353,7 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
                     String.format("No parent exists in zone '%s' with '%s' value of '%s'.", entity.getZone().getName(),
                             getEntityIdKey(), parent.getIdentifier()));
         }
-        Edge parentEdge = vertex.addEdge(PARENT_EDGE_LABEL, traversal.next());
-        parent.getScopes().forEach(scope -> parentEdge.property(SCOPE_PROPERTY_KEY, JSON_UTILS.serialize(scope)));
+        return traversal.next();
     }
 
     Set<ParentEntity> getParentEntities(final E entity) {
@@ -314,9 +395,7 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
 
     public List<E> findByZone(final ZoneEntity zoneEntity) {
         try {
-            String zoneName = zoneEntity.getName();
-            GraphTraversal<Vertex, Vertex> traversal = this.graphTraversal.V()
-                    .has(getEntityLabel(), ZONE_ID_KEY, zoneName).has(getEntityIdKey());
+            GraphTraversal<Vertex, Vertex> traversal = zoneVertices(zoneEntity);
             List<E> entities = new ArrayList<>();
             while (traversal.hasNext()) {
                 entities.add(vertexToEntity(traversal.next()));
@@ -327,6 +406,46 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
         }
     }
 
+    /**
+     * Reads every vertex of the zone to find the page, as the composite indexes of the graph can neither range-query
+     * nor order vertex ids and the cursor cannot be pushed into the traversal. Only the vertices of the page are kept
+     * in memory, but each page costs as much as reading the whole zone, so paging through a zone reads its vertices
+     * once per page; use {@link #stream(ZoneEntity)} to read all of them.
+     *
+     * @return the first pageSize entities of the zone whose ids are greater than afterId, in id order
+     */
+    public List<E> getPage(final ZoneEntity zoneEntity, final long afterId, final int pageSize) {
+        Comparator<Vertex> byId = Comparator.comparingLong(vertex -> (Long) vertex.id());
+        try {
+            // Holds the smallest ids read so far, with the greatest of them at the head.
+            PriorityQueue<Vertex> page = new PriorityQueue<>(pageSize + 1, byId.reversed());
+            zoneVertices(zoneEntity).forEachRemaining(vertex -> {
+                if ((Long) vertex.id() > afterId) {
+                    page.add(vertex);
+                    if (page.size() > pageSize) {
+                        page.poll();
+                    }
+                }
+            });
+            return page.stream().sorted(byId).map(this::vertexToEntity).collect(Collectors.toList());
+        } finally {
+            this.graphTraversal.tx().commit();
+        }
+    }
+
+    /**
+     * @return the entities of the zone, read from the graph as the stream is consumed; closing the stream commits the
+     *         transaction of the calling thread
+     */
+    public Stream<E> stream(final ZoneEntity zoneEntity) {
+        return zoneVertices(zoneEntity).toStream().map(this::vertexToEntity)
+                .onClose(() -> this.graphTraversal.tx().commit());
+    }
+
+    private GraphTraversal<Vertex, Vertex> zoneVertices(final ZoneEntity zoneEntity) {
+        return this.graphTraversal.V().has(getEntityLabel(), ZONE_ID_KEY, zoneEntity.getName()).has(getEntityIdKey());
+    }
+
     public static String getPropertyOrEmptyString(final Vertex vertex, final String propertyKey) {
         VertexProperty<String> property = vertex.property(propertyKey);
         if (property.isPresent()) {
@@ -375,6 +494,23 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
         }
     }
 
+    /**
+     * @return the entities of the given zone whose identifiers are among the given identifiers, looked up in a single
+     *         transaction
+     */
+    public List<E> getEntities(final ZoneEntity zone, final Collection<String> identifiers) {
+        if (identifiers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return this.graphTraversal.V().has(ZONE_ID_KEY, zone.getName())
+                    .has(getEntityIdKey(), within(identifiers)).toList().stream().map(this::vertexToEntity)
+                    .collect(Collectors.toList());
+        } finally {
+            this.graphTraversal.tx().commit();
+        }
+    }
+
     public E getEntityWithInheritedAttributes(final ZoneEntity zone, final String identifier,
             final Set<Attribute> scopes) {
         try {
@@ -396,37 +532,191 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
         }
     }
 
-    @SuppressWarnings("unchecked")
     private void searchAttributesWithScopes(final E entity, final Vertex vertex, final Set<Attribute> scopes) {
-        Set<Attribute> attributes = new HashSet<>();
-
-        // First add all attributes inherited from non-scoped relationships.
-        this.graphTraversal.V(vertex.id()).has(ATTRIBUTES_PROPERTY_KEY).emit()
-                .repeat(outE().hasNot(SCOPE_PROPERTY_KEY).otherV().simplePath().has(ATTRIBUTES_PROPERTY_KEY))
-                .until(eq(null)).limit(this.traversalLimit + 1).values(ATTRIBUTES_PROPERTY_KEY).toStream()
-                .forEach(it -> {
-                    Set<Attribute> deserializedAttributes = JSON_UTILS
-                            .deserialize((String) it, Set.class, Attribute.class);
-                    if (deserializedAttributes != null) {
-                        attributes.addAll(deserializedAttributes);
-                        // This enforces the limit on the count of attributes returned from the traversal, instead of
-                        // number of vertices traversed. To do the latter will require traversing the graph twice.
-                        checkTraversalLimitOrFail(entity, attributes);
-                    }
-                });
+        InheritedAttributes inheritedAttributes = null;
+        if (this.inheritedAttributesMaterialized && this.materializedInheritedAttributesReady) {
+            inheritedAttributes = getMaterializedInheritedAttributes(vertex);
+        }
 
-        this.graphTraversal.V(vertex.id()).has(ATTRIBUTES_PROPERTY_KEY).emit()
-                .repeat(outE().has(SCOPE_PROPERTY_KEY, test(elementOf(), scopes)).otherV().simplePath()
-                        .has(ATTRIBUTES_PROPERTY_KEY)).until(eq(null)).limit(this.traversalLimit + 1)
-                .values(ATTRIBUTES_PROPERTY_KEY).toStream().forEach(it -> {
-            Set<Attribute> deserializedAttributes = JSON_UTILS.deserialize((String) it, Set.class, Attribute.class);
+        Set<Attribute> attributes;
+        if (null == inheritedAttributes) {
+            attributes = new HashSet<>();
+            collectInheritedAttributesForScopes(vertex, scopes, attributes,
+                    () -> checkTraversalLimitOrFail(entity, attributes));
+        } else {
+            attributes = new HashSet<>(inheritedAttributes.getAttributes());
+            List<String> requestedScopes = inheritedAttributes.getScopedAttributes().keySet().stream()
+                    .filter(scope -> elementOf().test(scope, scopes)).collect(Collectors.toList());
+            if (requestedScopes.size() == 1) {
+                // Only relationships with this scope can be followed, so the materialized attributes inherited
+                // through it are exactly the ones the traversal would find.
+                attributes.addAll(inheritedAttributes.getScopedAttributes().get(requestedScopes.get(0)));
+            } else if (requestedScopes.size() > 1) {
+                collectInheritedAttributes(vertex, outE().has(SCOPE_PROPERTY_KEY, test(elementOf(), scopes)).otherV(),
+                        attributes, () -> checkTraversalLimitOrFail(entity, attributes));
+            }
+            checkTraversalLimitOrFail(entity, attributes);
+        }
+        entity.setAttributes(attributes);
+        entity.setAttributesAsJson(JSON_UTILS.serialize(attributes));
+    }
+
+    /**
+     * Adds the attributes of the given vertex, of every ancestor reachable through unscoped parent relationships and
+     * of every ancestor reachable through parent relationships with one of the given scopes to the given attributes,
+     * running the limit check after every vertex. Both kinds of ancestors are found in a single traversal that visits
+     * every vertex at most once.
+     */
+    private void collectInheritedAttributesForScopes(final Vertex vertex, final Set<Attribute> scopes,
+            final Set<Attribute> attributes, final Runnable limitCheck) {
+        addAttributes(this.graphTraversal.V(vertex.id()).has(ATTRIBUTES_PROPERTY_KEY)
+                .union(__.<Vertex>emit().repeat(outE().hasNot(SCOPE_PROPERTY_KEY).otherV().simplePath()
+                                .has(ATTRIBUTES_PROPERTY_KEY)),
+                        __.<Vertex>emit().repeat(outE().has(SCOPE_PROPERTY_KEY, test(elementOf(), scopes)).otherV()
+                                .simplePath().has(ATTRIBUTES_PROPERTY_KEY)))
+                .dedup().limit(this.traversalLimit + 1), attributes, limitCheck);
+    }
+
+    /**
+     * Adds the attributes of the given vertex and of every ancestor reachable through the given parent step to the
+     * given attributes, running the limit check after every vertex.
+     */
+    private void collectInheritedAttributes(final Vertex vertex, final GraphTraversal<?, Vertex> parentStep,
+            final Set<Attribute> attributes, final Runnable limitCheck) {
+        addAttributes(this.graphTraversal.V(vertex.id()).has(ATTRIBUTES_PROPERTY_KEY).emit()
+                .repeat(parentStep.simplePath().has(ATTRIBUTES_PROPERTY_KEY)).until(eq(null))
+                .limit(this.traversalLimit + 1), attributes, limitCheck);
+    }
+
+    private void addAttributes(final GraphTraversal<?, Vertex> vertices, final Set<Attribute> attributes,
+            final Runnable limitCheck) {
+        vertices.toStream().forEach(vertex -> {
+            Set<Attribute> deserializedAttributes = getParsedAttributes(vertex.id(),
+                    getPropertyOrEmptyString(vertex, ATTRIBUTES_PROPERTY_KEY));
             if (deserializedAttributes != null) {
                 attributes.addAll(deserializedAttributes);
-                checkTraversalLimitOrFail(entity, attributes);
+                // This enforces the limit on the count of attributes returned from the traversal, instead of
+                // number of vertices traversed. To do the latter will require traversing the graph twice.
+                limitCheck.run();
             }
         });
-        entity.setAttributes(attributes);
-        entity.setAttributesAsJson(JSON_UTILS.serialize(attributes));
+    }
+
+    /**
+     * @return a copy of the given attributes of the given vertex, parsed from JSON, or null if they cannot be parsed
+     */
+    Set<Attribute> parseAttributes(final Vertex vertex, final String attributesJson) {
+        Set<Attribute> attributes = getParsedAttributes(vertex.id(), attributesJson);
+        return null == attributes ? null : new HashSet<>(attributes);
+    }
+
+    /**
+     * @return the given attributes of the vertex with the given id, parsed from JSON, or null if they cannot be
+     *         parsed; the parsed attributes are shared with other readers and must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Attribute> getParsedAttributes(final Object vertexId, final String attributesJson) {
+        Cache<Object, ParsedAttributes> cache = getParsedAttributesCache();
+        ParsedAttributes parsedAttributes = null == cache ? null : cache.getIfPresent(vertexId);
+        // The attributes JSON stored on the vertex versions the parsed attributes, so that a change made by any node
+        // is parsed again the next time the vertex is read.
+        if (null == parsedAttributes || !parsedAttributes.getJson().equals(attributesJson)) {
+            parsedAttributes = new ParsedAttributes(attributesJson,
+                    JSON_UTILS.deserialize(attributesJson, Set.class, Attribute.class));
+            if (null != cache) {
+                cache.put(vertexId, parsedAttributes);
+            }
+        }
+        return parsedAttributes.getAttributes();
+    }
+
+    private Cache<Object, ParsedAttributes> getParsedAttributesCache() {
+        if (null == this.parsedAttributesCache && this.parsedAttributesCacheSize > 0) {
+            synchronized (this) {
+                if (null == this.parsedAttributesCache) {
+                    this.parsedAttributesCache = CacheBuilder.newBuilder().maximumSize(this.parsedAttributesCacheSize)
+                            .build();
+                }
+            }
+        }
+        return this.parsedAttributesCache;
+    }
+
+    private InheritedAttributes getMaterializedInheritedAttributes(final Vertex vertex) {
+        String inheritedAttributesJson = getPropertyOrNull(vertex, INHERITED_ATTRIBUTES_PROPERTY_KEY);
+        if (null == inheritedAttributesJson) {
+            return null;
+        }
+        return JSON_UTILS.deserialize(inheritedAttributesJson, InheritedAttributes.class);
+    }
+
+    /**
+     * Computes the attributes the entity of the given vertex inherits, through unscoped parent relationships and
+     * through the parent relationships of every reachable scope, and stores them on the vertex. The traversal limit
+     * is only enforced when they are read.
+     */
+    private void materializeInheritedAttributes(final Vertex vertex) {
+        InheritedAttributes inheritedAttributes = new InheritedAttributes();
+        collectInheritedAttributes(vertex, outE().hasNot(SCOPE_PROPERTY_KEY).otherV(),
+                inheritedAttributes.getAttributes(), () -> { });
+        this.graphTraversal.V(vertex.id()).emit().repeat(out(PARENT_EDGE_LABEL).simplePath()).until(eq(null))
+                .limit(this.traversalLimit + 1).outE(PARENT_EDGE_LABEL).has(SCOPE_PROPERTY_KEY)
+                .values(SCOPE_PROPERTY_KEY).dedup().toList().forEach(scope -> {
+                    Set<Attribute> scopedAttributes = new HashSet<>();
+                    collectInheritedAttributes(vertex, outE().has(SCOPE_PROPERTY_KEY, scope).otherV(),
+                            scopedAttributes, () -> { });
+                    inheritedAttributes.getScopedAttributes().put((String) scope, scopedAttributes);
+                });
+        vertex.property(INHERITED_ATTRIBUTES_PROPERTY_KEY, JSON_UTILS.serialize(inheritedAttributes));
+    }
+
+    /**
+     * Rebuilds the materialized inherited attributes of every entity in the background, since they are not
+     * maintained while materialization is disabled, and only reads them once the rebuild completes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildMaterializedInheritedAttributes() {
+        if (!this.inheritedAttributesMaterialized) {
+            return;
+        }
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inherited-attributes-rebuild-" + getEntityLabel());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rebuildExecutor.execute(() -> {
+            try {
+                LOGGER.info("Rebuilding materialized inherited attributes of every {}.", getEntityLabel());
+                materializeAllInheritedAttributes();
+                LOGGER.info("Rebuilt materialized inherited attributes of every {}.", getEntityLabel());
+            } catch (Exception e) {
+                LOGGER.error(String.format("Unable to rebuild materialized inherited attributes of every %s; they "
+                        + "are read by traversing the graph instead.", getEntityLabel()), e);
+            }
+        });
+        // The rebuild runs once, so its thread is released as soon as it completes.
+        this.rebuildExecutor.shutdown();
+    }
+
+    @PreDestroy
+    public void stopRebuildingMaterializedInheritedAttributes() {
+        if (null != this.rebuildExecutor) {
+            this.rebuildExecutor.shutdownNow();
+        }
+    }
+
+    void materializeAllInheritedAttributes() {
+        List<Object> ids;
+        try {
+            ids = this.graphTraversal.V().has(ZONE_ID_KEY).has(getEntityIdKey()).id().toList();
+        } finally {
+            this.graphTraversal.tx().commit();
+        }
+        for (Object id : ids) {
+            this.commitTransaction(() -> this.graphTraversal.V(id).forEachRemaining(
+                    this::materializeInheritedAttributes));
+        }
+        this.materializedInheritedAttributesReady = true;
     }
 
     private void checkTraversalLimitOrFail(final E e, final Set<Attribute> attributes) {
@@ -463,8 +753,16 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
             return Collections.emptySet();
         }
 
-        return this.graphTraversal.V(entity.getId()).has(getEntityIdKey()).emit().repeat(in().has(getEntityIdKey()))
-                .until(eq(null)).values(getEntityIdKey()).toStream().map(Object::toString).collect(Collectors.toSet());
+        return descendants(entity.getId()).values(getEntityIdKey()).toStream().map(Object::toString)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return a traversal of the vertex with the given id and of the vertices of all its descendants
+     */
+    private GraphTraversal<Vertex, Vertex> descendants(final Object id) {
+        return this.graphTraversal.V(id).has(getEntityIdKey()).emit().repeat(in().has(getEntityIdKey()))
+                .until(eq(null)).dedup();
     }
 
     abstract String getEntityId(E entity);
@@ -494,6 +792,11 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
     public void setTraversalLimit(final long traversalLimit) {
         this.traversalLimit = traversalLimit;
     }
+
+    void setInheritedAttributesMaterialized(final boolean inheritedAttributesMaterialized) {
+        this.inheritedAttributesMaterialized = inheritedAttributesMaterialized;
+    }
+
     private void commitTransaction(final Runnable graphQuery) {
         try {
             graphQuery.run();
@@ -503,4 +806,22 @@ public abstract class GraphGenericRepository<E extends ZonableEntity> implements
             throw e;
         }
     }
+
+    private static final class ParsedAttributes {
+        private final String json;
+        private final Set<Attribute> attributes;
+
+        ParsedAttributes(final String json, final Set<Attribute> attributes) {
+            this.json = json;
+            this.attributes = null == attributes ? null : Collections.unmodifiableSet(attributes);
+        }
+
+        String getJson() {
+            return this.json;
+        }
+
+        Set<Attribute> getAttributes() {
+            return this.attributes;
+        }
+    }
 }
@@ -18,6 +18,7 @@
 
 package org.eclipse.keti.acs.privilege.management.dao;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -29,16 +30,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
-import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.rest.Parent;
-import org.eclipse.keti.acs.utils.JsonUtils;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 
 public class GraphResourceRepository extends GraphGenericRepository<ResourceEntity>
         implements ResourceRepository, ResourceHierarchicalRepository {
 
-    private static final JsonUtils JSON_UTILS = new JsonUtils();
-
     private static final String EMPTY_ATTRIBUTES = "{}";
     private static final String HAS_RESOURCE_RELATIONSHIP_KEY = "hasResource";
 
@@ -51,6 +48,17 @@ public class GraphResourceRepository extends GraphGenericRepository<ResourceEnti
         return getEntity(zone, resourceIdentifier);
     }
 
+    @Override
+    public List<ResourceEntity> findPageByZone(final ZoneEntity zone, final long afterId, final Pageable pageable) {
+        return getPage(zone, afterId, pageable.getPageSize());
+    }
+
+    @Override
+    public List<ResourceEntity> findByZoneAndResourceIdentifierIn(final ZoneEntity zone,
+            final Collection<String> resourceIdentifiers) {
+        return getEntities(zone, resourceIdentifiers);
+    }
+
     @Override
     public ResourceEntity getResourceWithInheritedAttributes(final ZoneEntity zone, final String resourceIdentifier) {
         return getEntityWithInheritedAttributes(zone, resourceIdentifier, Collections.emptySet());
@@ -85,7 +93,6 @@ public class GraphResourceRepository extends GraphGenericRepository<ResourceEnti
         vertex.property(ATTRIBUTES_PROPERTY_KEY, resourceAttributesJson);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     ResourceEntity vertexToEntity(final Vertex vertex) {
         String resourceIdentifier = getPropertyOrFail(vertex, RESOURCE_ID_KEY);
@@ -96,7 +103,7 @@ public class GraphResourceRepository extends GraphGenericRepository<ResourceEnti
         resourceEntity.setId((Long) vertex.id());
         String attributesAsJson = getPropertyOrEmptyString(vertex, ATTRIBUTES_PROPERTY_KEY);
         resourceEntity.setAttributesAsJson(attributesAsJson);
-        resourceEntity.setAttributes(JSON_UTILS.deserialize(attributesAsJson, Set.class, Attribute.class));
+        resourceEntity.setAttributes(parseAttributes(vertex, attributesAsJson));
         Set<Parent> parentSet = getParents(vertex, RESOURCE_ID_KEY);
         resourceEntity.setParents(parentSet);
         return resourceEntity;
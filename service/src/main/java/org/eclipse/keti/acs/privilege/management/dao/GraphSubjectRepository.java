@@ -18,6 +18,7 @@
 
 package org.eclipse.keti.acs.privilege.management.dao;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -31,12 +32,10 @@ import org.springframework.data.domain.Sort;
 
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.rest.Parent;
-import org.eclipse.keti.acs.utils.JsonUtils;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 
 public class GraphSubjectRepository extends GraphGenericRepository<SubjectEntity>
         implements SubjectRepository, SubjectHierarchicalRepository {
-    private static final JsonUtils JSON_UTILS = new JsonUtils();
 
     private static final String EMPTY_ATTRIBUTES = "{}";
     private static final String HAS_SUBJECT_RELATIONSHIP_KEY = "hasSubject";
@@ -50,6 +49,17 @@ public class GraphSubjectRepository extends GraphGenericRepository<SubjectEntity
         return getEntity(zone, subjectIdentifier);
     }
 
+    @Override
+    public List<SubjectEntity> findPageByZone(final ZoneEntity zone, final long afterId, final Pageable pageable) {
+        return getPage(zone, afterId, pageable.getPageSize());
+    }
+
+    @Override
+    public List<SubjectEntity> findByZoneAndSubjectIdentifierIn(final ZoneEntity zone,
+            final Collection<String> subjectIdentifiers) {
+        return getEntities(zone, subjectIdentifiers);
+    }
+
     @Override
     public SubjectEntity getSubjectWithInheritedAttributes(final ZoneEntity zone, final String subjectIdentifier) {
         return getEntityWithInheritedAttributes(zone, subjectIdentifier, Collections.emptySet());
@@ -90,7 +100,6 @@ public class GraphSubjectRepository extends GraphGenericRepository<SubjectEntity
         vertex.property(ATTRIBUTES_PROPERTY_KEY, subjectAttributesJson);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     SubjectEntity vertexToEntity(final Vertex vertex) {
         String subjectIdentifier = getPropertyOrFail(vertex, SUBJECT_ID_KEY);
@@ -101,7 +110,7 @@ public class GraphSubjectRepository extends GraphGenericRepository<SubjectEntity
         subjectEntity.setId((long) vertex.id());
         String attributesAsJson = getPropertyOrEmptyString(vertex, ATTRIBUTES_PROPERTY_KEY);
         subjectEntity.setAttributesAsJson(attributesAsJson);
-        subjectEntity.setAttributes(JSON_UTILS.deserialize(attributesAsJson, Set.class, Attribute.class));
+        subjectEntity.setAttributes(parseAttributes(vertex, attributesAsJson));
         Set<Parent> parentSet = getParents(vertex, SUBJECT_ID_KEY);
         subjectEntity.setParents(parentSet);
         return subjectEntity;
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.privilege.management.dao;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.keti.acs.model.Attribute;
+
+/**
+ * The attributes an entity inherits from its ancestors, as materialized on the vertex of the entity: the attributes
+ * of the entity and of every ancestor it reaches through parent relationships without a scope, and for every scope of
+ * a parent relationship reachable from the entity, the attributes of the entity and of every ancestor it reaches
+ * through parent relationships with that scope.
+ *
+ * @author acs-engineers@ge.com
+ */
+public class InheritedAttributes {
+
+    private Set<Attribute> attributes = new HashSet<>();
+    private Map<String, Set<Attribute>> scopedAttributes = new HashMap<>();
+
+    public Set<Attribute> getAttributes() {
+        return this.attributes;
+    }
+
+    public void setAttributes(final Set<Attribute> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * @return the inherited attributes by scope, keyed by the scope as stored on parent relationships
+     */
+    public Map<String, Set<Attribute>> getScopedAttributes() {
+        return this.scopedAttributes;
+    }
+
+    public void setScopedAttributes(final Map<String, Set<Attribute>> scopedAttributes) {
+        this.scopedAttributes = scopedAttributes;
+    }
+}
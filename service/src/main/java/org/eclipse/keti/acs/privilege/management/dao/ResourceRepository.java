@@ -19,14 +19,30 @@
 package org.eclipse.keti.acs.privilege.management.dao;
 
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ResourceRepository extends JpaRepository<ResourceEntity, Long> {
 
     List<ResourceEntity> findByZone(ZoneEntity zone);
 
+    /**
+     * @return the first page of the resources of the zone whose ids are greater than the given id, in id order
+     */
+    @Query("select e from ResourceEntity e where e.zone = :zone and e.id > :afterId order by e.id")
+    List<ResourceEntity> findPageByZone(@Param("zone") ZoneEntity zone, @Param("afterId") long afterId,
+            Pageable pageable);
+
     ResourceEntity getByZoneAndResourceIdentifier(ZoneEntity zone, String resourceIdentifier);
 
+    // An explicit query, since OpenJPA does not bind the collection parameter of the derived IN query.
+    @Query("select e from ResourceEntity e where e.zone = :zone and e.resourceIdentifier in :resourceIdentifiers")
+    List<ResourceEntity> findByZoneAndResourceIdentifierIn(@Param("zone") ZoneEntity zone,
+            @Param("resourceIdentifiers") Collection<String> resourceIdentifiers);
+
 }
@@ -19,9 +19,12 @@
 package org.eclipse.keti.acs.privilege.management.dao;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +34,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
@@ -207,6 +211,40 @@ public class ResourceRepositoryProxy implements ResourceRepository, ResourceHier
         return this.activeRepository.getByZoneAndResourceIdentifier(zone, resourceIdentifier);
     }
 
+    @Override
+    public List<ResourceEntity> findPageByZone(final ZoneEntity zone, final long afterId, final Pageable pageable) {
+        return this.activeRepository.findPageByZone(zone, afterId, pageable);
+    }
+
+    /**
+     * Passes every resource of the zone to the consumer. The graph is traversed once, since it cannot be read in keyset
+     * pages cheaply; otherwise the resources are read in keyset pages of the given size, so that only one page is held
+     * in memory when no transaction spans the call.
+     */
+    public void forEachByZone(final ZoneEntity zone, final int pageSize, final Consumer<ResourceEntity> consumer) {
+        if (this.activeRepository == this.graphRepository) { // i.e. graph is enabled
+            try (Stream<ResourceEntity> entities = this.graphRepository.stream(zone)) {
+                entities.forEach(consumer);
+            }
+            return;
+        }
+        long afterId = 0;
+        List<ResourceEntity> page;
+        do {
+            page = this.nonGraphRepository.findPageByZone(zone, afterId, new PageRequest(0, pageSize));
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    @Override
+    public List<ResourceEntity> findByZoneAndResourceIdentifierIn(final ZoneEntity zone,
+            final Collection<String> resourceIdentifiers) {
+        return this.activeRepository.findByZoneAndResourceIdentifierIn(zone, resourceIdentifiers);
+    }
+
     @Override
     public Set<String> getResourceEntityAndDescendantsIds(final ResourceEntity entity) {
         if (this.activeRepository == this.graphRepository) { // i.e. graph is enabled
@@ -19,13 +19,29 @@
 package org.eclipse.keti.acs.privilege.management.dao;
 
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface SubjectRepository extends JpaRepository<SubjectEntity, Long> {
 
     List<SubjectEntity> findByZone(ZoneEntity zone);
 
+    /**
+     * @return the first page of the subjects of the zone whose ids are greater than the given id, in id order
+     */
+    @Query("select e from SubjectEntity e where e.zone = :zone and e.id > :afterId order by e.id")
+    List<SubjectEntity> findPageByZone(@Param("zone") ZoneEntity zone, @Param("afterId") long afterId,
+            Pageable pageable);
+
     SubjectEntity getByZoneAndSubjectIdentifier(ZoneEntity zone, String subjectIdentifier);
+
+    // An explicit query, since OpenJPA does not bind the collection parameter of the derived IN query.
+    @Query("select e from SubjectEntity e where e.zone = :zone and e.subjectIdentifier in :subjectIdentifiers")
+    List<SubjectEntity> findByZoneAndSubjectIdentifierIn(@Param("zone") ZoneEntity zone,
+            @Param("subjectIdentifiers") Collection<String> subjectIdentifiers);
 }
@@ -21,6 +21,7 @@ package org.eclipse.keti.acs.request.context;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,7 +32,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import org.eclipse.keti.acs.request.context.AcsRequestContext.ACSRequestContextAttribute;
-import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import com.ge.predix.uaa.token.lib.ZoneOAuth2Authentication;
 
 /**
@@ -60,6 +62,24 @@ public final class AcsRequestContextHolder implements ApplicationContextAware {
         ACS_REQUEST_CONTEXT_STORE.remove();
     }
 
+    /**
+     * Runs a task outside of any request, e.g. in a background thread, with a request context for the given zone, and
+     * restores the previous context of the calling thread afterwards.
+     */
+    public static <T> T callInZone(final ZoneEntity zone, final Supplier<T> task) {
+        AcsRequestContext previousContext = ACS_REQUEST_CONTEXT_STORE.get();
+        ACS_REQUEST_CONTEXT_STORE.set(new AcsRequestContextBuilder().zoneEntity(zone).build());
+        try {
+            return task.get();
+        } finally {
+            if (null == previousContext) {
+                ACS_REQUEST_CONTEXT_STORE.remove();
+            } else {
+                ACS_REQUEST_CONTEXT_STORE.set(previousContext);
+            }
+        }
+    }
+
     // Only public interface to be used by the clients to access the AcsRequestContext specific to the
     // Request...
     public static AcsRequestContext getAcsRequestContext() {
@@ -78,7 +98,7 @@ public final class AcsRequestContextHolder implements ApplicationContextAware {
      * @author acs-engineers@ge.com
      */
     private static final class AcsRequestContextBuilder {
-        private static ZoneRepository zoneRepository;
+        private static ZoneRegistry zoneRegistry;
         private static final Logger LOGGER = LoggerFactory.getLogger(AcsRequestContextBuilder.class);
         private final Map<ACSRequestContextAttribute, Object> requestContextMap;
 
@@ -87,15 +107,20 @@ public final class AcsRequestContextHolder implements ApplicationContextAware {
         }
 
         static void initAcsRequestContextBuilderRepos(final ApplicationContext applicationContext) {
-            zoneRepository = applicationContext.getBean(ZoneRepository.class);
-            LOGGER.info("AcsRequestContextBuilder JPA Repositories Initialized");
+            zoneRegistry = applicationContext.getBean(ZoneRegistry.class);
+            LOGGER.info("AcsRequestContextBuilder Zone Registry Initialized");
         }
 
         AcsRequestContextBuilder zoneEntityOrFail() {
             ZoneOAuth2Authentication zoneAuth = (ZoneOAuth2Authentication) SecurityContextHolder.getContext()
                     .getAuthentication();
             this.requestContextMap
-                    .put(ACSRequestContextAttribute.ZONE_ENTITY, zoneRepository.getBySubdomain(zoneAuth.getZoneId()));
+                    .put(ACSRequestContextAttribute.ZONE_ENTITY, zoneRegistry.getBySubdomain(zoneAuth.getZoneId()));
+            return this;
+        }
+
+        AcsRequestContextBuilder zoneEntity(final ZoneEntity zone) {
+            this.requestContextMap.put(ACSRequestContextAttribute.ZONE_ENTITY, zone);
             return this;
         }
 
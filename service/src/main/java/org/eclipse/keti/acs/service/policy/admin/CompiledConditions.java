@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpression;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpressionCompiler;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionParsingException;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionScript;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionShell;
+import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
+
+/**
+ * Compiled condition scripts of one version of a policy set. Conditions of the shapes supported by
+ * {@link ConditionExpressionCompiler} are compiled into plain Java predicates when the policy set is compiled. Any
+ * other condition is compiled by Groovy the first time it is evaluated and is then reused until the policy set is
+ * replaced, at which point {@link #release()} unloads the compiled classes. All Groovy scripts are compiled by a
+ * single shell, so the class loader they are loaded by lives exactly as long as this version of the policy set.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class CompiledConditions {
+
+    private final ConcurrentMap<String, ConditionScript> scripts = new ConcurrentHashMap<>();
+
+    private GroovyConditionShell shell;
+    private boolean released;
+
+    public CompiledConditions() {
+        // Conditions are compiled on first use.
+    }
+
+    /**
+     * @param conditions
+     *            the conditions to compile into plain Java predicates up front, where possible
+     */
+    public CompiledConditions(final Collection<String> conditions) {
+        for (String condition : conditions) {
+            ConditionExpression expression = ConditionExpressionCompiler.compile(condition);
+            if (null != expression) {
+                this.scripts.put(condition, expression);
+            }
+        }
+    }
+
+    /**
+     * @return the compiled form of the given condition script
+     * @throws ConditionParsingException
+     *             if the condition script is invalid
+     */
+    public ConditionScript get(final String condition) throws ConditionParsingException {
+        ConditionScript script = this.scripts.get(condition);
+        if (null != script) {
+            return script;
+        }
+        script = compile(condition);
+        ConditionScript existing = this.scripts.putIfAbsent(condition, script);
+        return null == existing ? script : existing;
+    }
+
+    /**
+     * Unloads the classes of the compiled condition scripts. Scripts already handed out keep working, so requests
+     * still evaluating a replaced policy set are not affected.
+     */
+    public synchronized void release() {
+        this.released = true;
+        if (null != this.shell) {
+            this.shell.release();
+        }
+    }
+
+    int size() {
+        return this.scripts.size();
+    }
+
+    private ConditionScript compile(final String condition) throws ConditionParsingException {
+        ConditionExpression expression = ConditionExpressionCompiler.compile(condition);
+        if (null != expression) {
+            return expression;
+        }
+        GroovyConditionShell conditionShell;
+        synchronized (this) {
+            if (this.released) {
+                // Compiled on behalf of a request still evaluating a replaced policy set; do not keep its classes.
+                return new GroovyConditionShell(new NonCachingGroovyConditionCache()).parse(condition);
+            }
+            if (null == this.shell) {
+                this.shell = new GroovyConditionShell(new NonCachingGroovyConditionCache());
+            }
+            conditionShell = this.shell;
+        }
+        return conditionShell.compile(condition);
+    }
+}
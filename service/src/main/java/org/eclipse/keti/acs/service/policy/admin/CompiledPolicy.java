@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.web.util.UriTemplate;
+
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
+import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.model.ResourceType;
+import org.eclipse.keti.acs.model.Target;
+
+/**
+ * Immutable, pre-processed form of a {@link Policy} used on the policy evaluation path. The comma separated target
+ * actions are split and the resource URI templates are parsed once when the owning policy set is compiled instead of
+ * once per evaluated policy.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class CompiledPolicy {
+
+    private final Policy policy;
+    private final Set<String> actions;
+    private final String resourceUriTemplate;
+    private final UriTemplate canonicalResourceUriTemplate;
+    private final String resourceUriPrefix;
+    private final UriTemplate attributeUriTemplate;
+
+    public CompiledPolicy(final Policy policy) {
+        this.policy = policy;
+        Target target = policy.getTarget();
+
+        if (null != target && null != target.getAction()) {
+            this.actions = Collections
+                    .unmodifiableSet(new LinkedHashSet<>(Arrays.asList(target.getAction().split("\\s*,\\s*"))));
+        } else {
+            this.actions = null;
+        }
+
+        ResourceType resource = null == target ? null : target.getResource();
+        this.resourceUriTemplate = null == resource ? null : resource.getUriTemplate();
+        this.canonicalResourceUriTemplate = parseCanonicalUriTemplate(this.resourceUriTemplate);
+        this.resourceUriPrefix = null == this.canonicalResourceUriTemplate ? ""
+                : literalPathPrefix(this.resourceUriTemplate);
+        this.attributeUriTemplate = null == resource ? null : parseUriTemplate(resource.getAttributeUriTemplate());
+    }
+
+    private static UriTemplate parseUriTemplate(final String uriTemplate) {
+        if (StringUtils.isBlank(uriTemplate)) {
+            return null;
+        }
+        try {
+            return UriTemplateUtils.getUriTemplate(uriTemplate);
+        } catch (IllegalArgumentException e) {
+            // Leave malformed templates to fail during evaluation, exactly as they did before being compiled.
+            return null;
+        }
+    }
+
+    private static UriTemplate parseCanonicalUriTemplate(final String uriTemplate) {
+        if (null == uriTemplate) {
+            return null;
+        }
+        try {
+            return UriTemplateUtils.getCanonicalUriTemplate(uriTemplate);
+        } catch (IllegalArgumentException e) {
+            // Leave malformed templates to fail during matching, exactly as they did before being compiled.
+            return null;
+        }
+    }
+
+    /**
+     * @return the leading path segments of the URI template that contain no variable, ending with a slash, or an
+     *         empty string if the template does not start with a slash
+     */
+    private static String literalPathPrefix(final String uriTemplate) {
+        String canonicalUriTemplate = UriTemplateUtils.appendTrailingSlash(uriTemplate);
+        int variableStart = canonicalUriTemplate.indexOf('{');
+        String literal = variableStart < 0 ? canonicalUriTemplate : canonicalUriTemplate.substring(0, variableStart);
+        if (!literal.startsWith("/")) {
+            return "";
+        }
+        return literal.substring(0, literal.lastIndexOf('/') + 1);
+    }
+
+    public Policy getPolicy() {
+        return this.policy;
+    }
+
+    /**
+     * @return true if the policy target defines no action (matches any action) or lists the requested action
+     */
+    public boolean isActionMatch(final String requestAction) {
+        return null == this.actions || (null != requestAction && this.actions.contains(requestAction));
+    }
+
+    /**
+     * @return the actions listed by the policy target, or null if the policy matches any action
+     */
+    public Set<String> getActions() {
+        return this.actions;
+    }
+
+    /**
+     * @return true if the policy target defines no resource or its URI template matches the resource URI
+     */
+    public boolean isResourceUriMatch(final String resourceUri) {
+        if (null == this.policy.getTarget() || null == this.policy.getTarget().getResource()) {
+            return true;
+        }
+        if (null == this.canonicalResourceUriTemplate) {
+            return UriTemplateUtils.isCanonicalMatch(this.resourceUriTemplate, resourceUri);
+        }
+        return this.canonicalResourceUriTemplate.matches(UriTemplateUtils.canonicalize(resourceUri));
+    }
+
+    /**
+     * Same as {@link #isResourceUriMatch(String)} for a resource URI that was already canonicalized through
+     * {@link UriTemplateUtils#canonicalize(String)}.
+     */
+    public boolean isCanonicalResourceUriMatch(final String canonicalResourceUri) {
+        if (null == this.policy.getTarget() || null == this.policy.getTarget().getResource()) {
+            return true;
+        }
+        if (null == this.canonicalResourceUriTemplate) {
+            return UriTemplateUtils.isCanonicalMatch(this.resourceUriTemplate, canonicalResourceUri);
+        }
+        return this.canonicalResourceUriTemplate.matches(canonicalResourceUri);
+    }
+
+    /**
+     * @return the resource URI template as defined in the policy, or null if the policy target has no resource
+     */
+    public String getResourceUriTemplate() {
+        return this.resourceUriTemplate;
+    }
+
+    /**
+     * @return the literal prefix that every resource URI matched by this policy starts with, once canonicalized and
+     *         with a trailing slash appended; an empty string if the policy cannot be narrowed down by resource URI
+     */
+    public String getResourceUriPrefix() {
+        return this.resourceUriPrefix;
+    }
+
+    /**
+     * @return the parsed attribute URI template, or null if the policy does not define one
+     * @throws IllegalArgumentException
+     *             if the attribute URI template of the policy is malformed
+     */
+    public UriTemplate getAttributeUriTemplate() {
+        if (null == this.attributeUriTemplate && null != this.policy.getTarget()
+                && null != this.policy.getTarget().getResource()
+                && StringUtils.isNotBlank(this.policy.getTarget().getResource().getAttributeUriTemplate())) {
+            return UriTemplateUtils.getUriTemplate(this.policy.getTarget().getResource().getAttributeUriTemplate());
+        }
+        return this.attributeUriTemplate;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPolicy [policy=" + this.policy + "]";
+    }
+}
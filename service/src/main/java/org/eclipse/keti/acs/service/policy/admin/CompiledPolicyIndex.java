@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
+
+/**
+ * Narrows down the compiled policies of a policy set to those that can possibly match a given action and resource
+ * URI. Policies are indexed by the actions of their target and, through a trie over path segments, by the literal
+ * prefix of their resource URI template. Candidates are always returned in the order the policies are defined in so
+ * that first-applicable semantics are preserved; the caller still performs the complete match on each of them.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class CompiledPolicyIndex {
+
+    private static final int[] NO_POLICIES = new int[0];
+
+    private final List<CompiledPolicy> policies;
+    private final Map<String, int[]> policiesByAction;
+    private final int[] anyActionPolicies;
+    private final Node resourceUriTrie;
+
+    public CompiledPolicyIndex(final List<CompiledPolicy> policies) {
+        this.policies = policies;
+
+        Map<String, List<Integer>> ordinalsByAction = new HashMap<>();
+        List<Integer> anyActionOrdinals = new ArrayList<>();
+        this.resourceUriTrie = new Node();
+        for (int i = 0; i < policies.size(); i++) {
+            CompiledPolicy policy = policies.get(i);
+            if (null == policy.getActions()) {
+                anyActionOrdinals.add(i);
+            } else {
+                for (String action : policy.getActions()) {
+                    ordinalsByAction.computeIfAbsent(action, k -> new ArrayList<>()).add(i);
+                }
+            }
+            this.resourceUriTrie.add(policy.getResourceUriPrefix(), i);
+        }
+
+        this.policiesByAction = new HashMap<>();
+        ordinalsByAction.forEach((action, ordinals) -> this.policiesByAction.put(action, toArray(ordinals)));
+        this.anyActionPolicies = toArray(anyActionOrdinals);
+        this.resourceUriTrie.freeze();
+    }
+
+    /**
+     * @param canonicalResourceUri
+     *            the resource URI of the request, canonicalized through {@link UriTemplateUtils#canonicalize(String)}
+     * @return the policies that can match the given action and resource URI, in the order they are defined in
+     */
+    public List<CompiledPolicy> getCandidates(final String action, final String canonicalResourceUri) {
+        int[] actionPolicies = null == action ? null : this.policiesByAction.get(action);
+        int actionCandidateCount = this.anyActionPolicies.length + (null == actionPolicies ? 0 : actionPolicies.length);
+
+        List<int[]> resourceUriPolicies = this.resourceUriTrie.collect(canonicalResourceUri);
+        int resourceUriCandidateCount = 0;
+        for (int[] ordinals : resourceUriPolicies) {
+            resourceUriCandidateCount += ordinals.length;
+        }
+
+        // Enumerate the smaller of the two candidate sets and check the other criterion on each of its policies.
+        List<CompiledPolicy> candidates = new ArrayList<>(Math.min(actionCandidateCount, resourceUriCandidateCount));
+        if (actionCandidateCount <= resourceUriCandidateCount) {
+            for (int i : merge(this.anyActionPolicies, null == actionPolicies ? NO_POLICIES : actionPolicies)) {
+                CompiledPolicy policy = this.policies.get(i);
+                if (canonicalResourceUri.startsWith(policy.getResourceUriPrefix())) {
+                    candidates.add(policy);
+                }
+            }
+        } else {
+            int[] ordinals = new int[resourceUriCandidateCount];
+            int length = 0;
+            for (int[] nodeOrdinals : resourceUriPolicies) {
+                System.arraycopy(nodeOrdinals, 0, ordinals, length, nodeOrdinals.length);
+                length += nodeOrdinals.length;
+            }
+            Arrays.sort(ordinals);
+            for (int i : ordinals) {
+                CompiledPolicy policy = this.policies.get(i);
+                if (policy.isActionMatch(action)) {
+                    candidates.add(policy);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return all indexed policies, in the order they are defined in
+     */
+    public List<CompiledPolicy> getPolicies() {
+        return this.policies;
+    }
+
+    private static int[] toArray(final List<Integer> ordinals) {
+        return ordinals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] merge(final int[] left, final int[] right) {
+        int[] merged = new int[left.length + right.length];
+        int l = 0;
+        int r = 0;
+        int m = 0;
+        while (l < left.length && r < right.length) {
+            merged[m++] = left[l] < right[r] ? left[l++] : right[r++];
+        }
+        while (l < left.length) {
+            merged[m++] = left[l++];
+        }
+        while (r < right.length) {
+            merged[m++] = right[r++];
+        }
+        return merged;
+    }
+
+    /**
+     * Trie node for one path segment. The root holds the policies that cannot be narrowed down by resource URI.
+     */
+    private static final class Node {
+
+        private Map<String, Node> children = new HashMap<>();
+        private List<Integer> pendingPolicies = new ArrayList<>();
+        private int[] policies = NO_POLICIES;
+
+        /**
+         * @param prefix
+         *            empty, or a path prefix starting and ending with a slash
+         */
+        void add(final String prefix, final int ordinal) {
+            Node node = this;
+            int segmentStart = 1;
+            int segmentEnd = prefix.indexOf('/', segmentStart);
+            while (segmentEnd >= 0) {
+                node = node.children.computeIfAbsent(prefix.substring(segmentStart, segmentEnd), k -> new Node());
+                segmentStart = segmentEnd + 1;
+                segmentEnd = prefix.indexOf('/', segmentStart);
+            }
+            node.pendingPolicies.add(ordinal);
+        }
+
+        void freeze() {
+            this.policies = toArray(this.pendingPolicies);
+            this.pendingPolicies = null;
+            this.children = this.children.isEmpty() ? Collections.emptyMap() : this.children;
+            this.children.values().forEach(Node::freeze);
+        }
+
+        /**
+         * @return the policies of every node on the path of the canonical resource URI, starting with the root
+         */
+        List<int[]> collect(final String canonicalResourceUri) {
+            List<int[]> collected = new ArrayList<>();
+            collected.add(this.policies);
+            if (!canonicalResourceUri.startsWith("/")) {
+                return collected;
+            }
+            Node node = this;
+            int segmentStart = 1;
+            int segmentEnd = canonicalResourceUri.indexOf('/', segmentStart);
+            while (segmentEnd >= 0) {
+                node = node.children.get(canonicalResourceUri.substring(segmentStart, segmentEnd));
+                if (null == node) {
+                    break;
+                }
+                if (node.policies.length > 0) {
+                    collected.add(node.policies);
+                }
+                segmentStart = segmentEnd + 1;
+                segmentEnd = canonicalResourceUri.indexOf('/', segmentStart);
+            }
+            return collected;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.keti.acs.model.Condition;
+import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.model.PolicySet;
+
+/**
+ * Immutable, compiled form of a {@link PolicySet}. Every instance is stamped with a process wide version number so
+ * that state derived from a policy set (e.g. compiled conditions) can be tied to the exact policy set it was built
+ * from.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class CompiledPolicySet {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final PolicySet policySet;
+    private final String policySetJson;
+    private final List<CompiledPolicy> policies;
+    private final CompiledPolicyIndex index;
+    private final CompiledConditions conditions;
+    private final long version;
+
+    public CompiledPolicySet(final PolicySet policySet) {
+        this(policySet, null);
+    }
+
+    /**
+     * @param policySet
+     *            the policy set to compile
+     * @param policySetJson
+     *            the JSON the policy set was read from, used to detect changes when the policy sets of a zone are
+     *            reloaded
+     */
+    public CompiledPolicySet(final PolicySet policySet, final String policySetJson) {
+        this.policySet = policySet;
+        this.policySetJson = policySetJson;
+        this.policies = compile(policySet.getPolicies());
+        this.index = new CompiledPolicyIndex(this.policies);
+        this.conditions = new CompiledConditions(getConditionStrings(policySet.getPolicies()));
+        this.version = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * @return the compiled form of the given policies, in the same order
+     */
+    public static List<CompiledPolicy> compile(final List<Policy> policies) {
+        if (null == policies) {
+            return Collections.emptyList();
+        }
+        List<CompiledPolicy> compiledPolicies = new ArrayList<>(policies.size());
+        for (Policy policy : policies) {
+            compiledPolicies.add(new CompiledPolicy(policy));
+        }
+        return Collections.unmodifiableList(compiledPolicies);
+    }
+
+    private static Set<String> getConditionStrings(final List<Policy> policies) {
+        Set<String> conditions = new HashSet<>();
+        if (null != policies) {
+            for (Policy policy : policies) {
+                for (Condition condition : policy.getConditions()) {
+                    conditions.add(condition.getCondition());
+                }
+            }
+        }
+        return conditions;
+    }
+
+    public String getName() {
+        return this.policySet.getName();
+    }
+
+    public PolicySet getPolicySet() {
+        return this.policySet;
+    }
+
+    String getPolicySetJson() {
+        return this.policySetJson;
+    }
+
+    /**
+     * @return the compiled policies, in the order they are defined in the policy set
+     */
+    public List<CompiledPolicy> getPolicies() {
+        return this.policies;
+    }
+
+    /**
+     * @return the index used to look up the policies that can match an access control request
+     */
+    public CompiledPolicyIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @return the compiled condition scripts of the policies of this version of the policy set
+     */
+    public CompiledConditions getConditions() {
+        return this.conditions;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPolicySet [name=" + getName() + ", version=" + this.version + "]";
+    }
+}
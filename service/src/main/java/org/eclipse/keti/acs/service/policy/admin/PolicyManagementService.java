@@ -53,4 +53,11 @@ public interface PolicyManagementService {
      * @return the list of policySets
      */
     List<PolicySet> getAllPolicySets();
+
+    /**
+     * Get all policy sets of the current zone in their compiled form, as used for policy evaluation.
+     *
+     * @return the list of compiled policy sets
+     */
+    List<CompiledPolicySet> getAllCompiledPolicySets();
 }
@@ -57,6 +57,8 @@ public class PolicyManagementServiceImpl implements PolicyManagementService {
     private ZoneResolver zoneResolver;
     @Autowired
     private PolicySetValidator policySetValidator;
+    @Autowired
+    private PolicySetSnapshotCache policySetSnapshotCache;
     private final JsonUtils jsonUtils = new JsonUtils();
 
     @Override
@@ -101,6 +103,7 @@ public class PolicyManagementServiceImpl implements PolicyManagementService {
 
         this.cache.resetForPolicySet(zone.getName(), policySetName);
         this.policySetRepository.save(policySetEntity);
+        this.policySetSnapshotCache.invalidate(zone.getName());
     }
 
     private void handleException(final Exception e, final String policySetName) {
@@ -137,6 +140,12 @@ public class PolicyManagementServiceImpl implements PolicyManagementService {
         return result;
     }
 
+    @Override
+    public List<CompiledPolicySet> getAllCompiledPolicySets() {
+        ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
+        return this.policySetSnapshotCache.get(zone).getPolicySets();
+    }
+
     @Override
     public void deletePolicySet(final String policySetId) {
         ZoneEntity zone = this.zoneResolver.getZoneEntityOrFail();
@@ -154,6 +163,7 @@ public class PolicyManagementServiceImpl implements PolicyManagementService {
             // cached invalidation, we use a hard-coded value for the policy set key.
             this.cache.resetForPolicySet(zone.getName(), policySetId);
             this.policySetRepository.delete(policySetEntity);
+            this.policySetSnapshotCache.invalidate(zone.getName());
         } else {
             LOGGER.debug("Cound not find an existing policy set " + "policySetName={}, zone={}, Could not delete it.",
                     policySetId, zone.getName());
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of all compiled policy sets of a zone at a point in time. A snapshot is never modified after it is
+ * built; changes to the policy sets of a zone replace the snapshot as a whole, so readers need no locking.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class PolicySetSnapshot {
+
+    private final String zoneName;
+    private final long version;
+    private final long createdMillis;
+    private final List<CompiledPolicySet> policySets;
+
+    PolicySetSnapshot(final String zoneName, final long version, final List<CompiledPolicySet> policySets) {
+        this.zoneName = zoneName;
+        this.version = version;
+        this.createdMillis = System.currentTimeMillis();
+        this.policySets = Collections.unmodifiableList(new ArrayList<>(policySets));
+    }
+
+    public String getZoneName() {
+        return this.zoneName;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return the compiled policy sets of the zone, in the order they are returned by the repository
+     */
+    public List<CompiledPolicySet> getPolicySets() {
+        return this.policySets;
+    }
+
+    CompiledPolicySet getPolicySet(final String policySetName) {
+        for (CompiledPolicySet policySet : this.policySets) {
+            if (policySet.getName().equals(policySetName)) {
+                return policySet;
+            }
+        }
+        return null;
+    }
+
+    boolean isOlderThan(final long maxAgeMillis) {
+        return System.currentTimeMillis() - this.createdMillis >= maxAgeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PolicySetSnapshot [zoneName=" + this.zoneName + ", version=" + this.version + ", policySets="
+                + this.policySets + "]";
+    }
+}
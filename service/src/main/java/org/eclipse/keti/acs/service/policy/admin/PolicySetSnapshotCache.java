@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.eclipse.keti.acs.model.PolicySet;
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
+import org.eclipse.keti.acs.service.policy.admin.dao.PolicySetEntity;
+import org.eclipse.keti.acs.service.policy.admin.dao.PolicySetRepository;
+import org.eclipse.keti.acs.service.policy.evaluation.DecisionCacheWarmer;
+import org.eclipse.keti.acs.utils.JsonUtils;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
+
+/**
+ * Holds one {@link PolicySetSnapshot} per zone so that policy evaluation does not have to load and deserialize the
+ * policy sets of a zone from the database on every request.
+ *
+ * Snapshots are built on startup and on first use, and are dropped whenever a policy set of the zone is created,
+ * updated or deleted on this node. To pick up changes made by other nodes, a snapshot older than
+ * POLICY_SET_SNAPSHOT_REFRESH_SECONDS is reloaded on its next use; policy sets that changed since the previous
+ * snapshot have their cached decisions invalidated so that no decision computed from a stale snapshot survives the
+ * refresh. While a snapshot is reloaded, the other requests of the zone keep using the previous one. The compiled
+ * conditions of policy sets that are replaced or dropped along with a snapshot are released.
+ * Either way, the hottest decisions of the zone are then warmed up again by the {@link DecisionCacheWarmer}.
+ *
+ * @author acs-engineers@ge.com
+ */
+@Component
+public class PolicySetSnapshotCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PolicySetSnapshotCache.class);
+
+    @Autowired
+    private PolicySetRepository policySetRepository;
+    @Autowired
+    private ZoneRepository zoneRepository;
+    @Autowired
+    private PolicyEvaluationCache cache;
+    @Autowired(required = false)
+    private DecisionCacheWarmer decisionCacheWarmer;
+
+    @Value("${POLICY_SET_SNAPSHOT_REFRESH_SECONDS:30}")
+    private long refreshSeconds;
+
+    private final JsonUtils jsonUtils = new JsonUtils();
+    private final AtomicLong versions = new AtomicLong();
+    private final ConcurrentMap<String, PolicySetSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<PolicySetSnapshot>> loads = new ConcurrentHashMap<>();
+
+    /**
+     * @return the current snapshot of the policy sets of the given zone, loading it if necessary
+     */
+    public PolicySetSnapshot get(final ZoneEntity zone) {
+        String zoneName = zone.getName();
+        PolicySetSnapshot current = this.snapshots.get(zoneName);
+        if (null != current && !isRefreshDue(current)) {
+            return current;
+        }
+
+        // Only one request per zone loads the snapshot, outside of any lock shared with other zones. While it does,
+        // the other requests of the zone keep using the current snapshot, or wait for the first one to be loaded.
+        CompletableFuture<PolicySetSnapshot> loading = new CompletableFuture<>();
+        CompletableFuture<PolicySetSnapshot> inFlightLoad = this.loads.putIfAbsent(zoneName, loading);
+        if (null != inFlightLoad) {
+            return null != current ? current : awaitLoad(inFlightLoad);
+        }
+        try {
+            current = this.snapshots.get(zoneName);
+            if (null != current && !isRefreshDue(current)) {
+                loading.complete(current);
+                return current;
+            }
+            PolicySetSnapshot snapshot = load(zone, current);
+            boolean installed = null == current ? null == this.snapshots.putIfAbsent(zoneName, snapshot)
+                    : this.snapshots.replace(zoneName, current, snapshot);
+            if (!installed) {
+                // The zone was invalidated while loading; the snapshot may predate the change, so it only serves
+                // the requests that are already waiting for it.
+                release(snapshot);
+            }
+            loading.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loads.remove(zoneName, loading);
+        }
+    }
+
+    private static PolicySetSnapshot awaitLoad(final CompletableFuture<PolicySetSnapshot> inFlightLoad) {
+        try {
+            return inFlightLoad.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PolicyManagementException("Interrupted while waiting for a policy set snapshot to be loaded.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PolicyManagementException(e.getCause());
+        }
+    }
+
+    /**
+     * Drops the snapshot of the given zone so that it is rebuilt on its next use. When called within a transaction
+     * the snapshot is dropped again once the transaction completes, so that a snapshot built from uncommitted (or
+     * rolled back) data does not outlive the transaction, and the decisions of the zone are only warmed up once the
+     * transaction is committed.
+     */
+    public void invalidate(final String zoneName) {
+        release(this.snapshots.remove(zoneName));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    release(PolicySetSnapshotCache.this.snapshots.remove(zoneName));
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        warmUp(zoneName);
+                    }
+                }
+            });
+        } else {
+            warmUp(zoneName);
+        }
+        LOGGER.debug("Invalidated policy set snapshot for zone '{}'.", zoneName);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAllZones() {
+        try {
+            List<ZoneEntity> zones = this.zoneRepository.findAll();
+            for (ZoneEntity zone : zones) {
+                get(zone);
+            }
+            LOGGER.info("Loaded policy set snapshots for {} zone(s).", zones.size());
+        } catch (Exception e) {
+            LOGGER.error("Unable to load policy set snapshots on startup; they will be loaded on first use.", e);
+        }
+    }
+
+    private boolean isRefreshDue(final PolicySetSnapshot snapshot) {
+        return this.refreshSeconds > 0 && snapshot.isOlderThan(TimeUnit.SECONDS.toMillis(this.refreshSeconds));
+    }
+
+    private PolicySetSnapshot load(final ZoneEntity zone, final PolicySetSnapshot previous) {
+        List<CompiledPolicySet> policySets = new ArrayList<>();
+        Set<String> changedPolicySetNames = new HashSet<>();
+        for (PolicySetEntity policySetEntity : this.policySetRepository.findByZone(zone)) {
+            String policySetJson = policySetEntity.getPolicySetJson();
+            CompiledPolicySet previousPolicySet = null == previous ? null
+                    : previous.getPolicySet(policySetEntity.getPolicySetID());
+            if (null != previousPolicySet && policySetJson.equals(previousPolicySet.getPolicySetJson())) {
+                policySets.add(previousPolicySet);
+                continue;
+            }
+
+            changedPolicySetNames.add(policySetEntity.getPolicySetID());
+            PolicySet policySet = this.jsonUtils.deserialize(policySetJson, PolicySet.class);
+            if (null == policySet) {
+                LOGGER.error("Unable to read policy set '{}' of zone '{}'; it is excluded from policy evaluation.",
+                        policySetEntity.getPolicySetID(), zone.getName());
+                continue;
+            }
+            policySets.add(new CompiledPolicySet(policySet, policySetJson));
+        }
+
+        if (null != previous) {
+            for (CompiledPolicySet previousPolicySet : previous.getPolicySets()) {
+                if (policySets.stream().noneMatch(p -> p.getName().equals(previousPolicySet.getName()))) {
+                    changedPolicySetNames.add(previousPolicySet.getName());
+                }
+            }
+            // These changes were made by another node; make sure no decision computed from the previous snapshot
+            // is served from the decision cache.
+            changedPolicySetNames
+                    .forEach(policySetName -> this.cache.resetForPolicySet(zone.getName(), policySetName));
+            previous.getPolicySets().stream().filter(p -> !policySets.contains(p))
+                    .forEach(p -> p.getConditions().release());
+            if (!changedPolicySetNames.isEmpty()) {
+                warmUp(zone.getName());
+            }
+        }
+
+        PolicySetSnapshot snapshot = new PolicySetSnapshot(zone.getName(), this.versions.incrementAndGet(),
+                policySets);
+        LOGGER.debug("Loaded policy set snapshot for zone '{}': {}", zone.getName(), snapshot);
+        return snapshot;
+    }
+
+    private void warmUp(final String zoneName) {
+        if (null != this.decisionCacheWarmer) {
+            this.decisionCacheWarmer.warmUp(zoneName);
+        }
+    }
+
+    private static void release(final PolicySetSnapshot snapshot) {
+        if (null != snapshot) {
+            snapshot.getPolicySets().forEach(policySet -> policySet.getConditions().release());
+        }
+    }
+
+    void setRefreshSeconds(final long refreshSeconds) {
+        this.refreshSeconds = refreshSeconds;
+    }
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.evaluation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import org.eclipse.keti.acs.request.context.AcsRequestContextHolder;
+import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
+import org.eclipse.keti.acs.utils.JsonUtils;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Keeps track of the hottest policy evaluation requests of every zone and re-evaluates them in the background after
+ * the policy sets of the zone change, or after a restart, so that their decisions are cached again before live
+ * traffic asks for them.
+ *
+ * Warmup is off unless DECISION_CACHE_WARMUP_ENABLED is true. One in DECISION_CACHE_WARMUP_SAMPLE_RATE evaluations
+ * counts towards the hotness of its request, and the DECISION_CACHE_WARMUP_TOP_N most sampled requests of a zone are
+ * warmed up by at most DECISION_CACHE_WARMUP_CONCURRENCY threads; warmups that do not fit in the queue are dropped.
+ * When DECISION_CACHE_WARMUP_STATE_FILE is set, the hottest requests are saved to that file on shutdown and warmed up
+ * on the next startup.
+ *
+ * @author acs-engineers@ge.com
+ */
+@Component
+public class DecisionCacheWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecisionCacheWarmer.class);
+
+    // Sampled requests compete for this many slots per hot request, so that a request that only just became hot has a
+    // chance to build up its count before it is evicted.
+    private static final int CANDIDATES_PER_HOT_REQUEST = 8;
+    private static final int MAX_QUEUED_WARMUPS = 10000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final ThreadLocal<Boolean> WARMING_UP = new ThreadLocal<>();
+
+    @Autowired
+    private PolicyEvaluationService policyEvaluationService;
+    @Autowired
+    private ZoneRegistry zoneRegistry;
+
+    @Value("${DECISION_CACHE_WARMUP_ENABLED:false}")
+    private boolean enabled;
+    @Value("${DECISION_CACHE_WARMUP_TOP_N:100}")
+    private int topN;
+    @Value("${DECISION_CACHE_WARMUP_SAMPLE_RATE:10}")
+    private int sampleRate;
+    @Value("${DECISION_CACHE_WARMUP_CONCURRENCY:2}")
+    private int concurrency;
+    @Value("${DECISION_CACHE_WARMUP_STATE_FILE:}")
+    private String stateFile;
+
+    private final JsonUtils jsonUtils = new JsonUtils();
+    private final ConcurrentMap<String, Cache<PolicyEvaluationRequestV1, AtomicLong>> sampledRequests =
+            new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        if (!this.enabled) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.concurrency, this.concurrency, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(MAX_QUEUED_WARMUPS), runnable -> {
+                    Thread thread = new Thread(runnable, "decision-cache-warmer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        LOGGER.info("Decision cache warmup enabled for the top {} requests of every zone.", this.topN);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (null == this.executor) {
+            return;
+        }
+        this.executor.shutdownNow();
+        try {
+            this.executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveState();
+    }
+
+    /**
+     * Counts a sample of the policy evaluation requests of a zone towards their hotness.
+     */
+    public void record(final String zoneName, final PolicyEvaluationRequestV1 request) {
+        if (!this.enabled || Boolean.TRUE.equals(WARMING_UP.get())
+                || (this.sampleRate > 1 && ThreadLocalRandom.current().nextInt(this.sampleRate) != 0)) {
+            return;
+        }
+        zoneRequests(zoneName).asMap().computeIfAbsent(request, r -> new AtomicLong()).incrementAndGet();
+    }
+
+    private Cache<PolicyEvaluationRequestV1, AtomicLong> zoneRequests(final String zoneName) {
+        return this.sampledRequests.computeIfAbsent(zoneName,
+                z -> CacheBuilder.newBuilder().maximumSize((long) this.topN * CANDIDATES_PER_HOT_REQUEST).build());
+    }
+
+    /**
+     * @return the hottest policy evaluation requests of the given zone, hottest first
+     */
+    public List<PolicyEvaluationRequestV1> getHotRequests(final String zoneName) {
+        Cache<PolicyEvaluationRequestV1, AtomicLong> zoneRequests = this.sampledRequests.get(zoneName);
+        if (null == zoneRequests) {
+            return Collections.emptyList();
+        }
+        return zoneRequests.asMap().entrySet().stream()
+                .sorted((e1, e2) -> Long.compare(e2.getValue().get(), e1.getValue().get())).limit(this.topN)
+                .map(Entry::getKey).collect(Collectors.toList());
+    }
+
+    /**
+     * Re-evaluates the hottest policy evaluation requests of the given zone in the background, so that their
+     * decisions are cached again. Must only be called once the change that made their cached decisions stale is
+     * visible to other threads, i.e. after it is committed.
+     */
+    public void warmUp(final String zoneName) {
+        if (null == this.executor) {
+            return;
+        }
+        List<PolicyEvaluationRequestV1> hotRequests = getHotRequests(zoneName);
+        LOGGER.debug("Warming up {} cached decision(s) of zone '{}'.", hotRequests.size(), zoneName);
+        for (PolicyEvaluationRequestV1 request : hotRequests) {
+            try {
+                this.executor.execute(() -> evaluate(zoneName, request));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Decision cache warmup queue is full; dropped the warmup of zone '{}'.", zoneName);
+                return;
+            }
+        }
+    }
+
+    private void evaluate(final String zoneName, final PolicyEvaluationRequestV1 request) {
+        ZoneEntity zone = this.zoneRegistry.getByName(zoneName);
+        if (null == zone) {
+            this.sampledRequests.remove(zoneName);
+            return;
+        }
+        WARMING_UP.set(true);
+        try {
+            AcsRequestContextHolder.callInZone(zone, () -> this.policyEvaluationService.evalPolicy(request));
+        } catch (Exception e) {
+            LOGGER.debug(String.format("Unable to warm up the cached decision of a request in zone '%s'", zoneName),
+                    e);
+        } finally {
+            WARMING_UP.remove();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadState() {
+        if (null == this.executor || StringUtils.isEmpty(this.stateFile) || !new File(this.stateFile).isFile()) {
+            return;
+        }
+        try {
+            String json = new String(Files.readAllBytes(new File(this.stateFile).toPath()), StandardCharsets.UTF_8);
+            WarmupState state = this.jsonUtils.deserialize(json, WarmupState.class);
+            if (null == state || null == state.getHotRequests()) {
+                return;
+            }
+            for (Entry<String, List<PolicyEvaluationRequestV1>> zoneRequests : state.getHotRequests().entrySet()) {
+                seed(zoneRequests.getKey(), zoneRequests.getValue());
+                warmUp(zoneRequests.getKey());
+            }
+            LOGGER.info("Warming up cached decisions of {} zone(s) saved in '{}'.", state.getHotRequests().size(),
+                    this.stateFile);
+        } catch (Exception e) {
+            LOGGER.error(String.format("Unable to load decision cache warmup state from '%s'", this.stateFile), e);
+        }
+    }
+
+    // Keeps the saved order of the hottest requests until they are sampled again.
+    private void seed(final String zoneName, final List<PolicyEvaluationRequestV1> hotRequests) {
+        Cache<PolicyEvaluationRequestV1, AtomicLong> zoneRequests = zoneRequests(zoneName);
+        long count = hotRequests.size();
+        for (PolicyEvaluationRequestV1 request : hotRequests) {
+            zoneRequests.put(request, new AtomicLong(count--));
+        }
+    }
+
+    private void saveState() {
+        if (StringUtils.isEmpty(this.stateFile)) {
+            return;
+        }
+        Map<String, List<PolicyEvaluationRequestV1>> hotRequests = new HashMap<>();
+        for (String zoneName : this.sampledRequests.keySet()) {
+            hotRequests.put(zoneName, getHotRequests(zoneName));
+        }
+        WarmupState state = new WarmupState();
+        state.setHotRequests(hotRequests);
+        try {
+            Files.write(new File(this.stateFile).toPath(),
+                    this.jsonUtils.serialize(state).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.error(String.format("Unable to save decision cache warmup state to '%s'", this.stateFile), e);
+        }
+    }
+
+    /**
+     * The hottest policy evaluation requests of every zone, as saved across restarts.
+     */
+    public static class WarmupState {
+        private Map<String, List<PolicyEvaluationRequestV1>> hotRequests;
+
+        public Map<String, List<PolicyEvaluationRequestV1>> getHotRequests() {
+            return this.hotRequests;
+        }
+
+        public void setHotRequests(final Map<String, List<PolicyEvaluationRequestV1>> hotRequests) {
+            this.hotRequests = hotRequests;
+        }
+    }
+}
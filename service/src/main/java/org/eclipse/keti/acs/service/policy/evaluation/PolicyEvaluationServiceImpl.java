@@ -27,27 +27,35 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.eclipse.keti.acs.attribute.readers.AttributeRetrievalException;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionAssertionFailedException;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpression;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionScript;
 import org.eclipse.keti.acs.commons.policy.condition.ResourceHandler;
 import org.eclipse.keti.acs.commons.policy.condition.SubjectHandler;
 import org.eclipse.keti.acs.commons.policy.condition.groovy.AttributeMatcher;
-import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionCache;
-import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionShell;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Condition;
 import org.eclipse.keti.acs.model.Effect;
 import org.eclipse.keti.acs.model.Policy;
-import org.eclipse.keti.acs.model.PolicySet;
 import org.eclipse.keti.acs.model.Target;
 import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
 import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationRequestCacheKey;
 import org.eclipse.keti.acs.privilege.management.dao.AttributeLimitExceededException;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.service.policy.admin.CompiledConditions;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.admin.PolicyManagementService;
 import org.eclipse.keti.acs.service.policy.matcher.MatchResult;
 import org.eclipse.keti.acs.service.policy.matcher.PolicyMatchCandidate;
@@ -57,6 +65,7 @@ import org.eclipse.keti.acs.zone.resolver.ZoneResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -64,8 +73,6 @@ import org.springframework.stereotype.Component;
 public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
     private static final Logger LOGGER = LoggerFactory.getLogger(PolicyEvaluationServiceImpl.class);
 
-    @Autowired
-    private GroovyConditionCache conditionCache;
     @Autowired
     private PolicyEvaluationCache cache;
     @Autowired
@@ -74,6 +81,16 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
     private PolicyMatcher policyMatcher;
     @Autowired
     private ZoneResolver zoneResolver;
+    @Autowired(required = false)
+    private DecisionCacheWarmer decisionCacheWarmer;
+
+    // How long a request waits for an identical in-flight evaluation before evaluating on its own. Defaults to the
+    // attribute adapter timeout, which bounds the slowest part of an evaluation.
+    @Value("${POLICY_EVALUATION_COALESCING_TIMEOUT_MILLIS:${ADAPTER_TIMEOUT_MILLIS:3000}}")
+    private long coalescingTimeoutMillis;
+
+    private final ConcurrentMap<PolicyEvaluationRequestCacheKey, CompletableFuture<PolicyEvaluationResult>>
+            inFlightEvaluations = new ConcurrentHashMap<>();
 
     @Override
     public PolicyEvaluationResult evalPolicy(final PolicyEvaluationRequestV1 request) {
@@ -81,7 +98,6 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
         String uri = request.getResourceIdentifier();
         String subjectIdentifier = request.getSubjectIdentifier();
         String action = request.getAction();
-        LinkedHashSet<String> policySetsEvaluationOrder = request.getPolicySetsEvaluationOrder();
 
         if (uri == null || subjectIdentifier == null || action == null) {
             LOGGER.error("Policy evaluation request is missing required input parameters: "
@@ -91,6 +107,10 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
                     + "Please review and resubmit the request.");
         }
 
+        if (null != this.decisionCacheWarmer) {
+            this.decisionCacheWarmer.record(zone.getName(), request);
+        }
+
         PolicyEvaluationRequestCacheKey key = new PolicyEvaluationRequestCacheKey(request, zone.getName());
         PolicyEvaluationResult result = null;
         try {
@@ -100,55 +120,117 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
         }
 
         if (null == result) {
-            result = new PolicyEvaluationResult(Effect.NOT_APPLICABLE);
+            result = evaluateOnce(key, request);
+        }
+        return result;
+    }
 
-            LinkedHashSet<PolicySet> filteredPolicySets = filterPolicySetsByPriority(subjectIdentifier, uri,
-                    policySetsEvaluationOrder);
+    /**
+     * Evaluates a request that missed the decision cache. Concurrent misses for the same request are coalesced: only
+     * the first one is evaluated and cached, while the others wait for it and share its result. A request that waits
+     * longer than the coalescing timeout stops waiting and evaluates on its own.
+     */
+    private PolicyEvaluationResult evaluateOnce(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationRequestV1 request) {
+        CompletableFuture<PolicyEvaluationResult> evaluation = new CompletableFuture<>();
+        CompletableFuture<PolicyEvaluationResult> inFlightEvaluation = this.inFlightEvaluations.putIfAbsent(key,
+                evaluation);
+        if (null != inFlightEvaluation) {
+            PolicyEvaluationResult result = awaitEvaluation(key, inFlightEvaluation);
+            return null != result ? result : evaluate(key, request);
+        }
 
-            HashSet<Attribute> supplementalResourceAttributes;
-            if (null == request.getResourceAttributes()) {
-                supplementalResourceAttributes = new HashSet<>();
-            } else {
-                supplementalResourceAttributes = new HashSet<>(request.getResourceAttributes());
+        try {
+            PolicyEvaluationResult result = evaluate(key, request);
+            evaluation.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            evaluation.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlightEvaluations.remove(key, evaluation);
+            if (!evaluation.isDone()) {
+                evaluation.completeExceptionally(new PolicyEvaluationException("Policy evaluation failed."));
             }
-            HashSet<Attribute> supplementalSubjectAttributes;
-            if (null == request.getSubjectAttributes()) {
-                supplementalSubjectAttributes = new HashSet<>();
-            } else {
-                supplementalSubjectAttributes = new HashSet<>(request.getSubjectAttributes());
+        }
+    }
+
+    /**
+     * Waits for the identical in-flight evaluation and returns its result, or null if it did not complete within the
+     * coalescing timeout.
+     */
+    private PolicyEvaluationResult awaitEvaluation(final PolicyEvaluationRequestCacheKey key,
+            final CompletableFuture<PolicyEvaluationResult> inFlightEvaluation) {
+        try {
+            return inFlightEvaluation.get(this.coalescingTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Identical policy evaluation for key '{}' did not complete within {} ms; evaluating it again.",
+                    key, this.coalescingTimeoutMillis);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PolicyEvaluationException("Interrupted while waiting for an identical policy evaluation.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new PolicyEvaluationException(e.getCause());
+        }
+    }
 
-            for (PolicySet policySet : filteredPolicySets) {
-                result = evalPolicySet(policySet, subjectIdentifier, uri, action, supplementalResourceAttributes,
-                        supplementalSubjectAttributes);
-                if (result.getEffect() != Effect.NOT_APPLICABLE) {
-                    break;
-                }
+    private PolicyEvaluationResult evaluate(final PolicyEvaluationRequestCacheKey key,
+            final PolicyEvaluationRequestV1 request) {
+        String uri = request.getResourceIdentifier();
+        String subjectIdentifier = request.getSubjectIdentifier();
+        String action = request.getAction();
+
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.NOT_APPLICABLE);
+
+        LinkedHashSet<CompiledPolicySet> filteredPolicySets = filterPolicySetsByPriority(subjectIdentifier, uri,
+                request.getPolicySetsEvaluationOrder());
+
+        HashSet<Attribute> supplementalResourceAttributes;
+        if (null == request.getResourceAttributes()) {
+            supplementalResourceAttributes = new HashSet<>();
+        } else {
+            supplementalResourceAttributes = new HashSet<>(request.getResourceAttributes());
+        }
+        HashSet<Attribute> supplementalSubjectAttributes;
+        if (null == request.getSubjectAttributes()) {
+            supplementalSubjectAttributes = new HashSet<>();
+        } else {
+            supplementalSubjectAttributes = new HashSet<>(request.getSubjectAttributes());
+        }
+
+        for (CompiledPolicySet policySet : filteredPolicySets) {
+            result = evalPolicySet(policySet, subjectIdentifier, uri, action, supplementalResourceAttributes,
+                    supplementalSubjectAttributes);
+            if (result.getEffect() != Effect.NOT_APPLICABLE) {
+                break;
             }
+        }
 
-            LOGGER.info("Processed Policy Evaluation for: " + "resourceUri='{}', subjectIdentifier='{}', action='{}',"
-                    + " result='{}'", uri, subjectIdentifier, action, result.getEffect());
-
-            // A policy evaluation result with an INDETERMINATE effect is almost always due to transient errors.
-            // Caching such results will inevitably cause users to get back a stale result for a period of time
-            // even when the transient error is fixed.
-            if (result.getEffect() != Effect.INDETERMINATE) {
-                try {
-                    this.cache.set(key, result);
-                } catch (Exception e) {
-                    LOGGER.error(
-                            String.format("Unable to set cache key '%s' to value '%s' due to exception", key, result),
-                            e);
-                }
+        LOGGER.info("Processed Policy Evaluation for: " + "resourceUri='{}', subjectIdentifier='{}', action='{}',"
+                + " result='{}'", uri, subjectIdentifier, action, result.getEffect());
+
+        // A policy evaluation result with an INDETERMINATE effect is almost always due to transient errors.
+        // Caching such results will inevitably cause users to get back a stale result for a period of time
+        // even when the transient error is fixed.
+        if (result.getEffect() != Effect.INDETERMINATE) {
+            try {
+                this.cache.set(key, result);
+            } catch (Exception e) {
+                LOGGER.error(String.format("Unable to set cache key '%s' to value '%s' due to exception", key, result),
+                        e);
             }
         }
         return result;
     }
 
-    LinkedHashSet<PolicySet> filterPolicySetsByPriority(final String subjectIdentifier, final String uri,
+    LinkedHashSet<CompiledPolicySet> filterPolicySetsByPriority(final String subjectIdentifier, final String uri,
             final LinkedHashSet<String> policySetsEvaluationOrder) throws IllegalArgumentException {
 
-        List<PolicySet> allPolicySets = this.policyService.getAllPolicySets();
+        List<CompiledPolicySet> allPolicySets = this.policyService.getAllCompiledPolicySets();
 
         if (policySetsEvaluationOrder.isEmpty()) {
             if (allPolicySets.size() > 1) {
@@ -164,11 +246,11 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
             }
         }
 
-        Map<String, PolicySet> allPolicySetsMap = allPolicySets.stream()
-                .collect(Collectors.toMap(PolicySet::getName, Function.identity()));
-        LinkedHashSet<PolicySet> filteredPolicySets = new LinkedHashSet<>();
+        Map<String, CompiledPolicySet> allPolicySetsMap = allPolicySets.stream()
+                .collect(Collectors.toMap(CompiledPolicySet::getName, Function.identity()));
+        LinkedHashSet<CompiledPolicySet> filteredPolicySets = new LinkedHashSet<>();
         for (String policySetId : policySetsEvaluationOrder) {
-            PolicySet policySet = allPolicySetsMap.get(policySetId);
+            CompiledPolicySet policySet = allPolicySetsMap.get(policySetId);
             if (policySet == null) {
                 LOGGER.error("No existing policy set matches policy set in the evaluation order of the request. "
                         + "Subject: {}, Resource: {}", subjectIdentifier, uri);
@@ -182,13 +264,13 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
         return filteredPolicySets;
     }
 
-    private PolicyEvaluationResult evalPolicySet(final PolicySet policySet, final String subjectIdentifier,
+    private PolicyEvaluationResult evalPolicySet(final CompiledPolicySet policySet, final String subjectIdentifier,
             final String resourceURI, final String action, final Set<Attribute> supplementalResourceAttributes,
             final Set<Attribute> supplementalSubjectAttributes) {
 
         PolicyEvaluationResult result;
         try {
-            MatchResult matchResult = matchPolicies(subjectIdentifier, resourceURI, action, policySet.getPolicies(),
+            MatchResult matchResult = matchPolicies(subjectIdentifier, resourceURI, action, policySet,
                     supplementalResourceAttributes, supplementalSubjectAttributes);
 
             Effect effect = Effect.NOT_APPLICABLE;
@@ -210,8 +292,8 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
 
                 boolean conditionEvaluationResult = true;
                 if (!policy.getConditions().isEmpty()) {
-                    conditionEvaluationResult = evaluateConditions(subjectAttributes, resourceAttributes, resourceURI,
-                            policy.getConditions(), resourceURITemplate);
+                    conditionEvaluationResult = evaluateConditions(policySet.getConditions(), subjectAttributes,
+                            resourceAttributes, resourceURI, policy.getConditions(), resourceURITemplate);
                 }
                 LOGGER.debug("Checking condition of policy '{}': Condition evaluated to ? -> {}, policy effect {}",
                         policy.getName(), conditionEvaluationResult, policy.getEffect());
@@ -232,7 +314,7 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
         return result;
     }
 
-    private PolicyEvaluationResult handlePolicyEvaluationException(final PolicySet policySet,
+    private PolicyEvaluationResult handlePolicyEvaluationException(final CompiledPolicySet policySet,
             final String subjectIdentifier, final String resourceURI, final Throwable e) {
         PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.INDETERMINATE);
         StringBuilder logMessage = new StringBuilder();
@@ -248,6 +330,22 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
 
     boolean evaluateConditions(final Set<Attribute> subjectAttributes, final Set<Attribute> resourceAttributes,
             final String resourceURI, final List<Condition> conditions, final String resourceURITemplate) {
+        CompiledConditions compiledConditions = new CompiledConditions();
+        try {
+            return evaluateConditions(compiledConditions, subjectAttributes, resourceAttributes, resourceURI,
+                    conditions, resourceURITemplate);
+        } finally {
+            compiledConditions.release();
+        }
+    }
+
+    /**
+     * Evaluates the conditions of a policy using the condition scripts compiled for its policy set, so that each
+     * condition is compiled once per version of the policy set rather than on every evaluation.
+     */
+    boolean evaluateConditions(final CompiledConditions compiledConditions, final Set<Attribute> subjectAttributes,
+            final Set<Attribute> resourceAttributes, final String resourceURI, final List<Condition> conditions,
+            final String resourceURITemplate) {
         debugAttributes(subjectAttributes, resourceAttributes);
 
         boolean result = true;
@@ -256,18 +354,25 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
             return result;
         }
 
-        Map<String, Object> attributeBindingsMap = this.getAttributeBindingsMap(subjectAttributes, resourceAttributes,
-                resourceURI, resourceURITemplate);
-
-        // To prevent GroovyClassLoader leakage, a new GroovyConditionShell is instantiated every time instead
-        // of making it a Spring-managed bean via @Autowired. This ensures that when this function returns and the
-        // shell goes out of scope, it along with its GroovyClassLoader(s) can be garbage collected under memory
-        // pressure.
-        GroovyConditionShell conditionShell = new GroovyConditionShell(conditionCache);
+        SubjectHandler subjectHandler = new SubjectHandler(subjectAttributes);
+        ResourceHandler resourceHandler = new ResourceHandler(resourceAttributes, resourceURI, resourceURITemplate);
+        // Only conditions evaluated by Groovy need the bindings map.
+        Map<String, Object> attributeBindingsMap = null;
 
         for (Condition condition : conditions) {
+            if (!result) {
+                break;
+            }
             try {
-                result = result && conditionShell.execute(condition.getCondition(), attributeBindingsMap);
+                ConditionScript conditionScript = compiledConditions.get(condition.getCondition());
+                if (conditionScript instanceof ConditionExpression) {
+                    result = ((ConditionExpression) conditionScript).evaluate(subjectHandler, resourceHandler);
+                    continue;
+                }
+                if (null == attributeBindingsMap) {
+                    attributeBindingsMap = getAttributeBindingsMap(subjectHandler, resourceHandler);
+                }
+                result = execute(conditionScript, attributeBindingsMap);
             } catch (Exception e) {
                 LOGGER.error("Unable to evualate condition: {}", condition.getCondition(), e);
                 throw new PolicyEvaluationException("Condition Evaluation failed", e);
@@ -276,11 +381,17 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
         return result;
     }
 
-    private Map<String, Object> getAttributeBindingsMap(final Set<Attribute> subjectAttributes,
-            final Set<Attribute> resourceAttributes, final String resourceURI, final String resourceURITemplate) {
-        SubjectHandler subjectHandler = new SubjectHandler(subjectAttributes);
-        ResourceHandler resourceHandler = new ResourceHandler(resourceAttributes, resourceURI, resourceURITemplate);
+    private static boolean execute(final ConditionScript conditionScript,
+            final Map<String, Object> attributeBindingsMap) {
+        try {
+            return conditionScript.execute(attributeBindingsMap);
+        } catch (ConditionAssertionFailedException e) {
+            return false;
+        }
+    }
 
+    private static Map<String, Object> getAttributeBindingsMap(final SubjectHandler subjectHandler,
+            final ResourceHandler resourceHandler) {
         Map<String, Object> attributeHandler = new HashMap<>();
         attributeHandler.put("resource", resourceHandler);
         attributeHandler.put("subject", subjectHandler);
@@ -289,11 +400,11 @@ public class PolicyEvaluationServiceImpl implements PolicyEvaluationService {
     }
 
     private MatchResult matchPolicies(final String subjectIdentifier, final String resourceURI, final String action,
-            final List<Policy> allPolicies, final Set<Attribute> supplementalResourceAttributes,
+            final CompiledPolicySet policySet, final Set<Attribute> supplementalResourceAttributes,
             final Set<Attribute> supplementalSubjectAttributes) {
         PolicyMatchCandidate criteria = new PolicyMatchCandidate(action, resourceURI, subjectIdentifier,
                 supplementalResourceAttributes, supplementalSubjectAttributes);
-        return this.policyMatcher.matchForResult(criteria, allPolicies);
+        return this.policyMatcher.matchForResult(criteria, policySet);
     }
 
     private void debugAttributes(final Set<Attribute> subjectAttributes, final Set<Attribute> resourceAttributes) {
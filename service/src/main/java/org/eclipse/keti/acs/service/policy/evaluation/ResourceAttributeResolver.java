@@ -28,8 +28,10 @@ import org.apache.commons.lang.StringUtils;
 import org.springframework.web.util.UriTemplate;
 
 import org.eclipse.keti.acs.attribute.readers.ResourceAttributeReader;
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicy;
 import org.eclipse.keti.acs.service.policy.matcher.UriTemplateVariableResolver;
 
 public class ResourceAttributeResolver {
@@ -58,7 +60,15 @@ public class ResourceAttributeResolver {
     }
 
     public ResourceAttributeResolverResult getResult(final Policy policy) {
-        String resolvedResourceUri = resolveResourceURI(policy);
+        return getResult(resolveResourceURI(policy));
+    }
+
+    public ResourceAttributeResolverResult getResult(final CompiledPolicy policy) {
+        return getResult(resolveCompiledResourceURI(policy));
+    }
+
+    private ResourceAttributeResolverResult getResult(final String attributeUri) {
+        String resolvedResourceUri = attributeUri;
         boolean uriTemplateExists = true;
         if (null == resolvedResourceUri) {
             resolvedResourceUri = this.requestResourceUri;
@@ -76,13 +86,22 @@ public class ResourceAttributeResolver {
     String resolveResourceURI(final Policy policy) {
         if (attributeUriTemplateExists(policy)) {
             String attributeUriTemplate = policy.getTarget().getResource().getAttributeUriTemplate();
-            UriTemplate uriTemplate = new UriTemplate(attributeUriTemplate);
+            UriTemplate uriTemplate = UriTemplateUtils.getUriTemplate(attributeUriTemplate);
             return this.uriTemplateVariableResolver.resolve(this.requestResourceUri, uriTemplate,
                     ATTRIBUTE_URI_TEMPLATE_VARIABLE);
         }
         return null;
     }
 
+    String resolveCompiledResourceURI(final CompiledPolicy policy) {
+        UriTemplate uriTemplate = policy.getAttributeUriTemplate();
+        if (null == uriTemplate) {
+            return null;
+        }
+        return this.uriTemplateVariableResolver.resolve(this.requestResourceUri, uriTemplate,
+                ATTRIBUTE_URI_TEMPLATE_VARIABLE);
+    }
+
     private boolean attributeUriTemplateExists(final Policy policy) {
         if (policy != null && policy.getTarget() != null && policy.getTarget().getResource() != null) {
             return StringUtils.isNotBlank(policy.getTarget().getResource().getAttributeUriTemplate());
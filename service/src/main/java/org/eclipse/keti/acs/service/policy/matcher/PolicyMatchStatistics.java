@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.matcher;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, across all policy evaluations, for how many policies attributes had to be resolved and for how many that
+ * could be avoided because the policy was ruled out by its action or resource URI template alone.
+ *
+ * @author acs-engineers@ge.com
+ */
+public final class PolicyMatchStatistics {
+
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder policies = new LongAdder();
+    private final LongAdder prunedByIndex = new LongAdder();
+    private final LongAdder rejectedStructurally = new LongAdder();
+    private final LongAdder attributeResolutions = new LongAdder();
+
+    void record(final int policyCount, final int candidateCount, final int attributeResolutionCount) {
+        this.matches.increment();
+        this.policies.add(policyCount);
+        this.prunedByIndex.add(policyCount - candidateCount);
+        this.rejectedStructurally.add(candidateCount - attributeResolutionCount);
+        this.attributeResolutions.add(attributeResolutionCount);
+    }
+
+    /**
+     * @return the number of policy sets matched against a request
+     */
+    public long getMatches() {
+        return this.matches.sum();
+    }
+
+    /**
+     * @return the number of policies in the matched policy sets
+     */
+    public long getPolicies() {
+        return this.policies.sum();
+    }
+
+    /**
+     * @return the number of policies that were not looked at since the index ruled them out
+     */
+    public long getPrunedByIndex() {
+        return this.prunedByIndex.sum();
+    }
+
+    /**
+     * @return the number of candidate policies whose action or resource URI template did not match
+     */
+    public long getRejectedStructurally() {
+        return this.rejectedStructurally.sum();
+    }
+
+    /**
+     * @return the number of policies for which subject and resource attributes were resolved
+     */
+    public long getAttributeResolutions() {
+        return this.attributeResolutions.sum();
+    }
+
+    /**
+     * @return the number of policies for which resolving subject and resource attributes was avoided
+     */
+    public long getAttributeResolutionsAvoided() {
+        return getPrunedByIndex() + getRejectedStructurally();
+    }
+
+    @Override
+    public String toString() {
+        return "PolicyMatchStatistics [matches=" + getMatches() + ", policies=" + getPolicies() + ", prunedByIndex="
+                + getPrunedByIndex() + ", rejectedStructurally=" + getRejectedStructurally()
+                + ", attributeResolutions=" + getAttributeResolutions() + "]";
+    }
+}
@@ -19,6 +19,7 @@
 package org.eclipse.keti.acs.service.policy.matcher;
 
 import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.evaluation.MatchedPolicy;
 
 import java.util.List;
@@ -47,4 +48,14 @@ public interface PolicyMatcher {
      *         attribute URI templates.
      */
     MatchResult matchForResult(PolicyMatchCandidate candidate, List<Policy> policies);
+
+    /**
+     * @param candidate
+     *            the criteria for a match.
+     * @param policySet
+     *            the compiled policy set whose policies are potential matches
+     * @return the policies that match the access control request and the set of resolved URIs from applying all
+     *         attribute URI templates.
+     */
+    MatchResult matchForResult(PolicyMatchCandidate candidate, CompiledPolicySet policySet);
 }
@@ -19,9 +19,7 @@
 package org.eclipse.keti.acs.service.policy.matcher;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -35,6 +33,9 @@ import org.eclipse.keti.acs.attribute.readers.AttributeReaderFactory;
 import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicy;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicyIndex;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.evaluation.MatchedPolicy;
 import org.eclipse.keti.acs.service.policy.evaluation.ResourceAttributeResolver;
 import org.eclipse.keti.acs.service.policy.evaluation.ResourceAttributeResolver.ResourceAttributeResolverResult;
@@ -47,6 +48,8 @@ import org.eclipse.keti.acs.service.policy.evaluation.SubjectAttributeResolver;
 public class PolicyMatcherImpl implements PolicyMatcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(PolicyMatcherImpl.class);
 
+    private final PolicyMatchStatistics statistics = new PolicyMatchStatistics();
+
     @Autowired
     private AttributeReaderFactory attributeReaderFactory;
 
@@ -57,6 +60,32 @@ public class PolicyMatcherImpl implements PolicyMatcher {
 
     @Override
     public MatchResult matchForResult(final PolicyMatchCandidate candidate, final List<Policy> policies) {
+        return matchForResult(candidate, new CompiledPolicyIndex(CompiledPolicySet.compile(policies)));
+    }
+
+    @Override
+    public MatchResult matchForResult(final PolicyMatchCandidate candidate, final CompiledPolicySet policySet) {
+        return matchForResult(candidate, policySet.getIndex());
+    }
+
+    public PolicyMatchStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Matching is done in two phases. The candidates returned by the index are first matched on their action and
+     * resource URI template; only the policies that pass are matched on their subject and resource attributes, so that
+     * attributes are never retrieved for a policy that cannot apply.
+     */
+    private MatchResult matchForResult(final PolicyMatchCandidate candidate, final CompiledPolicyIndex index) {
+        // The resource URI is canonicalized once per request. If that fails, every policy is a candidate so that the
+        // match fails exactly as it would without the index.
+        String canonicalResourceUri = canonicalize(candidate.getResourceURI());
+        List<CompiledPolicy> policies = null == canonicalResourceUri ? index.getPolicies()
+                : index.getCandidates(candidate.getAction(), canonicalResourceUri);
+        LOGGER.debug("Matching {} of {} policies against resource URI '{}' and action '{}'.", policies.size(),
+                index.getPolicies().size(), candidate.getResourceURI(), candidate.getAction());
+
         ResourceAttributeResolver resourceAttributeResolver = new ResourceAttributeResolver(
                 this.attributeReaderFactory.getResourceAttributeReader(), candidate.getResourceURI(),
                 candidate.getSupplementalResourceAttributes());
@@ -66,58 +95,70 @@ public class PolicyMatcherImpl implements PolicyMatcher {
 
         List<MatchedPolicy> matchedPolicies = new ArrayList<>();
         Set<String> resolvedResourceUris = new HashSet<>();
-        for (Policy policy : policies) {
+        int attributeResolutions = 0;
+        for (CompiledPolicy policy : policies) {
+            if (!isStructuralMatch(candidate, canonicalResourceUri, policy)) {
+                continue;
+            }
+            attributeResolutions++;
             ResourceAttributeResolverResult resAttrResolverResult = resourceAttributeResolver.getResult(policy);
             Set<Attribute> resourceAttributes = resAttrResolverResult.getResourceAttributes();
             Set<Attribute> subjectAttributes = subjectAttributeResolver.getResult(resourceAttributes);
             if (resAttrResolverResult.isAttributeUriTemplateFound()) {
                 resolvedResourceUris.add(resAttrResolverResult.getResovledResourceUri());
             }
-            if (isPolicyMatch(candidate, policy, resourceAttributes, subjectAttributes)) {
-                matchedPolicies.add(new MatchedPolicy(policy, resourceAttributes, subjectAttributes));
+            if (isAttributeMatch(policy, resourceAttributes, subjectAttributes)) {
+                matchedPolicies.add(new MatchedPolicy(policy.getPolicy(), resourceAttributes, subjectAttributes));
             }
         }
+        this.statistics.record(index.getPolicies().size(), policies.size(), attributeResolutions);
         return new MatchResult(matchedPolicies, resolvedResourceUris);
     }
 
     /**
-     * @param candidate policy match candidate
-     * @param policy    to match
-     * @return true if the policy meets the criteria
+     * @return true if the action and resource URI of the candidate match the policy target; no attribute is needed
      */
     @SuppressWarnings("nls")
-    private boolean isPolicyMatch(final PolicyMatchCandidate candidate, final Policy policy,
-            final Set<Attribute> resourceAttributes, final Set<Attribute> subjectAttributes) {
+    private boolean isStructuralMatch(final PolicyMatchCandidate candidate, final String canonicalResourceUri,
+            final CompiledPolicy compiledPolicy) {
         // A policy with no target matches everything.
-        if (null == policy.getTarget()) {
+        if (null == compiledPolicy.getPolicy().getTarget()) {
             return true;
         }
-        boolean actionMatch = isActionMatch(candidate.getAction(), policy);
-
-        boolean subjectMatch = isSubjectMatch(subjectAttributes, policy);
-
-        boolean resourceMatch = isResourceMatch(candidate.getResourceURI(), resourceAttributes, policy);
+        boolean actionMatch = compiledPolicy.isActionMatch(candidate.getAction());
+        boolean resourceUriMatch = actionMatch && (null == canonicalResourceUri
+                ? compiledPolicy.isResourceUriMatch(candidate.getResourceURI())
+                : compiledPolicy.isCanonicalResourceUriMatch(canonicalResourceUri));
 
-        LOGGER.debug("Checking policy [{}]: Action match ? -> {}, Subject match ? -> {}, Resource match ? -> {}, ",
-                policy.getName(), actionMatch, subjectMatch, resourceMatch);
+        LOGGER.debug("Checking policy [{}]: Action match ? -> {}, Resource URI match ? -> {}",
+                compiledPolicy.getPolicy().getName(), actionMatch, resourceUriMatch);
 
-        return actionMatch && subjectMatch && resourceMatch;
+        return resourceUriMatch;
     }
 
-    private boolean isResourceMatch(final String resourceURI, final Set<Attribute> resourceAttributes,
-            final Policy policy) {
-        if (null == policy.getTarget().getResource()) {
+    /**
+     * @return true if the resolved attributes contain every attribute type required by the policy target
+     */
+    @SuppressWarnings("nls")
+    private boolean isAttributeMatch(final CompiledPolicy compiledPolicy, final Set<Attribute> resourceAttributes,
+            final Set<Attribute> subjectAttributes) {
+        Policy policy = compiledPolicy.getPolicy();
+        if (null == policy.getTarget()) {
             return true;
         }
 
-        boolean uriTemplateMatch = UriTemplateUtils
-                .isCanonicalMatch(policy.getTarget().getResource().getUriTemplate(), resourceURI);
+        boolean subjectMatch = isSubjectMatch(subjectAttributes, policy);
 
-        if (!uriTemplateMatch) {
-            return false;
-        }
+        boolean resourceMatch = isResourceAttributeMatch(resourceAttributes, policy);
+
+        LOGGER.debug("Checking policy [{}]: Subject match ? -> {}, Resource attribute match ? -> {}",
+                policy.getName(), subjectMatch, resourceMatch);
+
+        return subjectMatch && resourceMatch;
+    }
 
-        if (null == policy.getTarget().getResource().getAttributes()) {
+    private boolean isResourceAttributeMatch(final Set<Attribute> resourceAttributes, final Policy policy) {
+        if ((null == policy.getTarget().getResource()) || (null == policy.getTarget().getResource().getAttributes())) {
             return true;
         }
 
@@ -129,6 +170,15 @@ public class PolicyMatcherImpl implements PolicyMatcher {
         return true;
     }
 
+    private static String canonicalize(final String resourceUri) {
+        try {
+            return UriTemplateUtils.canonicalize(resourceUri);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to canonicalize resource URI '{}'.", resourceUri, e);
+            return null;
+        }
+    }
+
     private boolean isSubjectMatch(final Set<Attribute> subjectAttributes, final Policy policy) {
         if ((null == policy.getTarget().getSubject()) || (null == policy.getTarget().getSubject().getAttributes())) {
             return true;
@@ -142,20 +192,6 @@ public class PolicyMatcherImpl implements PolicyMatcher {
         return true;
     }
 
-    @SuppressWarnings("nls")
-    private boolean isActionMatch(final String requestAction, final Policy policy) {
-        // Target's action is not null and they match or the Target's action is
-        // null and is considered a match for anything
-        List<String> policyActionList = Collections.emptyList();
-        boolean policyActionDefined = (policy.getTarget() != null) && (policy.getTarget().getAction() != null);
-        if (policyActionDefined) {
-            String policyActions = policy.getTarget().getAction();
-            policyActionList = Arrays.asList(policyActions.split("\\s*,\\s*"));
-        }
-        return (policyActionDefined && (requestAction != null) && policyActionList.contains(requestAction)) || (
-                policy.getTarget().getAction() == null);
-    }
-
     private boolean containsAttributeType(final String issuer, final String name,
             final Collection<Attribute> attributes) {
         for (Attribute attr : attributes) {
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.zone.management;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
+
+/**
+ * Holds all zones in memory, by subdomain and by name, so that resolving the zone of every request does not query the
+ * database.
+ *
+ * Zones are loaded on startup and updated whenever a zone is created, updated or deleted on this node. To pick up
+ * changes made by other nodes, all zones are reloaded by a background thread every ZONE_REGISTRY_REFRESH_SECONDS, and
+ * a zone that is not registered yet is looked up in the database. Lookups return a copy of the registered zone, so
+ * callers are free to modify it; the copy does not hold the subjects, resources and policy sets of the zone and must
+ * not be saved.
+ *
+ * @author acs-engineers@ge.com
+ */
+@Component
+public class ZoneRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZoneRegistry.class);
+
+    @Autowired
+    private ZoneRepository zoneRepository;
+
+    @Value("${ZONE_REGISTRY_REFRESH_SECONDS:30}")
+    private long refreshSeconds;
+
+    private final ConcurrentMap<String, ZoneEntity> zonesBySubdomain = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ZoneEntity> zonesByName = new ConcurrentHashMap<>();
+    // Incremented whenever a zone is updated or removed on this node, so that a refresh that read the zones before
+    // does not register them again.
+    private long modifications;
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void start() {
+        if (this.refreshSeconds <= 0) {
+            return;
+        }
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zone-registry-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refreshExecutor.scheduleWithFixedDelay(this::refreshInBackground, this.refreshSeconds,
+                this.refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (null != this.refreshExecutor) {
+            this.refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a copy of the zone with the given subdomain, or null if there is no such zone
+     */
+    public ZoneEntity getBySubdomain(final String subdomain) {
+        ZoneEntity zone = this.zonesBySubdomain.get(subdomain);
+        if (null == zone) {
+            zone = load(() -> this.zoneRepository.getBySubdomain(subdomain));
+        }
+        return null == zone ? null : new ZoneEntity(zone);
+    }
+
+    /**
+     * @return a copy of the zone with the given name, or null if there is no such zone
+     */
+    public ZoneEntity getByName(final String zoneName) {
+        ZoneEntity zone = this.zonesByName.get(zoneName);
+        if (null == zone) {
+            zone = load(() -> this.zoneRepository.getByName(zoneName));
+        }
+        return null == zone ? null : new ZoneEntity(zone);
+    }
+
+    /**
+     * Registers the current state of a zone that was just saved. When called within a transaction the zone is only
+     * dropped, now and once the transaction completes, so that a zone that is rolled back is never registered; it is
+     * loaded again on its next lookup.
+     */
+    public void update(final ZoneEntity zone) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictOnCompletion(zone);
+            return;
+        }
+        synchronized (this) {
+            this.modifications++;
+            register(new ZoneEntity(zone));
+        }
+        LOGGER.debug("Registered zone '{}' with subdomain '{}'.", zone.getName(), zone.getSubdomain());
+    }
+
+    /**
+     * Drops a zone that was just deleted.
+     */
+    public void remove(final ZoneEntity zone) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictOnCompletion(zone);
+            return;
+        }
+        evictModified(zone.getName());
+        LOGGER.debug("Removed zone '{}' from the zone registry.", zone.getName());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAllZones() {
+        try {
+            LOGGER.info("Loaded {} zone(s) into the zone registry.", refresh());
+        } catch (Exception e) {
+            LOGGER.error("Unable to load zones on startup; they will be loaded on first use.", e);
+        }
+    }
+
+    void refreshInBackground() {
+        try {
+            LOGGER.debug("Refreshed {} zone(s) in the zone registry.", refresh());
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to refresh the zone registry; the zones loaded previously are used in the meantime.",
+                    e);
+        }
+    }
+
+    private int refresh() {
+        long modificationsBefore;
+        synchronized (this) {
+            modificationsBefore = this.modifications;
+        }
+        List<ZoneEntity> zones = this.zoneRepository.findAll();
+        synchronized (this) {
+            if (modificationsBefore != this.modifications) {
+                // Zones changed on this node meanwhile; the zones read may be stale, so wait for the next refresh.
+                return zones.size();
+            }
+            Set<String> zoneNames = new HashSet<>();
+            for (ZoneEntity zone : zones) {
+                zoneNames.add(zone.getName());
+                register(new ZoneEntity(zone));
+            }
+            // Zones deleted by other nodes.
+            for (String zoneName : this.zonesByName.keySet()) {
+                if (!zoneNames.contains(zoneName)) {
+                    evict(zoneName);
+                }
+            }
+        }
+        return zones.size();
+    }
+
+    private ZoneEntity load(final Supplier<ZoneEntity> lookup) {
+        long modificationsBefore;
+        synchronized (this) {
+            modificationsBefore = this.modifications;
+        }
+        ZoneEntity zone = lookup.get();
+        // Zones read within a transaction may yet be rolled back.
+        if (null == zone || TransactionSynchronizationManager.isSynchronizationActive()) {
+            return zone;
+        }
+        synchronized (this) {
+            // Zones changed on this node meanwhile, e.g. the zone read was deleted; it is loaded again on next lookup.
+            if (modificationsBefore == this.modifications) {
+                register(new ZoneEntity(zone));
+            }
+        }
+        return zone;
+    }
+
+    private void register(final ZoneEntity zone) {
+        ZoneEntity previousZone = this.zonesByName.put(zone.getName(), zone);
+        if (null != previousZone && !previousZone.getSubdomain().equals(zone.getSubdomain())) {
+            this.zonesBySubdomain.remove(previousZone.getSubdomain(), previousZone);
+        }
+        this.zonesBySubdomain.put(zone.getSubdomain(), zone);
+    }
+
+    private void evict(final String zoneName) {
+        ZoneEntity zone = this.zonesByName.remove(zoneName);
+        if (null != zone) {
+            this.zonesBySubdomain.remove(zone.getSubdomain(), zone);
+        }
+    }
+
+    private synchronized void evictModified(final String zoneName) {
+        this.modifications++;
+        evict(zoneName);
+    }
+
+    private void evictOnCompletion(final ZoneEntity zone) {
+        String zoneName = zone.getName();
+        evictModified(zoneName);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(final int status) {
+                evictModified(zoneName);
+            }
+        });
+    }
+
+    void setRefreshSeconds(final long refreshSeconds) {
+        this.refreshSeconds = refreshSeconds;
+    }
+}
@@ -28,11 +28,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
 import org.eclipse.keti.acs.privilege.management.dao.ResourceEntity;
 import org.eclipse.keti.acs.privilege.management.dao.ResourceRepository;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectEntity;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectRepository;
 import org.eclipse.keti.acs.rest.Zone;
+import org.eclipse.keti.acs.service.policy.admin.PolicySetSnapshotCache;
 import org.eclipse.keti.acs.zone.management.dao.ZoneConverter;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
@@ -46,6 +48,9 @@ public class ZoneServiceImpl implements ZoneService {
     @Autowired
     private ZoneRepository zoneRepository;
 
+    @Autowired
+    private ZoneRegistry zoneRegistry;
+
     @Autowired
     @Qualifier("resourceRepository")
     private ResourceRepository resourceRepository;
@@ -54,6 +59,12 @@ public class ZoneServiceImpl implements ZoneService {
     @Qualifier("subjectRepository")
     private SubjectRepository subjectRepository;
 
+    @Autowired(required = false)
+    private PolicyEvaluationCache cache;
+
+    @Autowired(required = false)
+    private PolicySetSnapshotCache policySetSnapshotCache;
+
     private final ZoneConverter zoneConverter = new ZoneConverter();
 
     private static final String SUBDOMAIN_REGEX = "(?:[A-Za-z0-9][A-Za-z0-9\\-]{0,61}[A-Za-z0-9]|[A-Za-z0-9])";
@@ -89,6 +100,7 @@ public class ZoneServiceImpl implements ZoneService {
                 zoneEntity.setSubdomain(zone.getSubdomain());
             }
             this.zoneRepository.save(zoneEntity);
+            this.zoneRegistry.update(zoneEntity);
             return isEntityUpdate;
 
         } catch (Exception e) {
@@ -100,7 +112,7 @@ public class ZoneServiceImpl implements ZoneService {
     @Override
     public Zone retrieveZone(final String zoneName) {
 
-        ZoneEntity currentZone = this.zoneRepository.getByName(zoneName);
+        ZoneEntity currentZone = this.zoneRegistry.getByName(zoneName);
         if (currentZone == null) {
             String message = String.format("No Zone identified by zoneName = %s", zoneName);
             throw new ZoneManagementException(message);
@@ -138,6 +150,14 @@ public class ZoneServiceImpl implements ZoneService {
             this.subjectRepository.delete(subjectsInZone);
 
             this.zoneRepository.delete(currentZone);
+            this.zoneRegistry.remove(currentZone);
+            if (this.policySetSnapshotCache != null) {
+                // A zone recreated under the same name must not be evaluated against the deleted zone's policy sets.
+                this.policySetSnapshotCache.invalidate(zoneName);
+            }
+            if (this.cache != null) {
+                this.cache.resetForZone(zoneName);
+            }
         }
         return currentZone != null;
     }
@@ -104,6 +104,18 @@ public class ZoneEntity {
         this.name = name;
     }
 
+    /**
+     * Copies the columns of another zone; its subjects, resources and policy sets are not copied.
+     */
+    public ZoneEntity(final ZoneEntity other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.subdomain = other.subdomain;
+        this.resourceConnectorJson = other.resourceConnectorJson;
+        this.subjectConnectorJson = other.subjectConnectorJson;
+    }
+
     public long getId() {
         return this.id;
     }
@@ -168,6 +180,10 @@ public class ZoneEntity {
         this.cachedResourceConnector = connector;
     }
 
+    public String getResourceConnectorJson() {
+        return this.resourceConnectorJson;
+    }
+
     public AttributeConnector getSubjectAttributeConnector() {
         if (null == this.cachedSubjectConnector) {
             this.cachedSubjectConnector = connectorFromJson(this.subjectConnectorJson);
@@ -180,6 +196,10 @@ public class ZoneEntity {
         this.cachedSubjectConnector = connector;
     }
 
+    public String getSubjectConnectorJson() {
+        return this.subjectConnectorJson;
+    }
+
     private String jsonFromConnector(final AttributeConnector connector) {
         if (null == connector) {
             return null;
@@ -0,0 +1,91 @@
+--[[
+Copyright 2018 General Electric Company
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+SPDX-License-Identifier: Apache-2.0
+]]
+
+-- Gets a cached decision in a single round trip, unless any of the entities it was made with has changed since it
+-- was cached, in which case the decision is deleted.
+--
+-- KEYS[1]     the decision key
+-- KEYS[2]     the subject timestamp key
+-- KEYS[3..n]  the policy set timestamp keys
+-- ARGV[1]     '1' to also check the subject and resource timestamps, '0' to only check the policy set timestamps
+--
+-- Values are laid out as written by RedisDecisionCodec. A timestamp is a version byte followed by an 8-byte
+-- big-endian number of milliseconds since the epoch. A decision starts with a version byte, its own timestamp and
+-- the keys of the resource timestamps it depends on, each preceded by its 4-byte big-endian length, after a 4-byte
+-- big-endian key count.
+
+local VERSION = 3
+local TIMESTAMP_LENGTH = 9
+
+local function readNumber(value, position, length)
+    local number = 0
+    for i = position, position + length - 1 do
+        number = number * 256 + string.byte(value, i)
+    end
+    return number
+end
+
+local decision = redis.call('GET', KEYS[1])
+if not decision or string.byte(decision, 1) ~= VERSION then
+    return false
+end
+local decisionTimestamp = readNumber(decision, 2, 8)
+
+local function hasChanged(key)
+    local timestamp = redis.call('GET', key)
+    if not timestamp then
+        return true
+    end
+    if string.len(timestamp) ~= TIMESTAMP_LENGTH or string.byte(timestamp, 1) ~= VERSION then
+        -- Written in another format, e.g. by an older version of the service and without a TTL. SETNX never
+        -- replaces it, so it is deleted for the timestamp to be set again when the decision is cached again.
+        redis.call('DEL', key)
+        return true
+    end
+    return readNumber(timestamp, 2, 8) > decisionTimestamp
+end
+
+local function invalidate()
+    redis.call('DEL', KEYS[1])
+    return false
+end
+
+for i = 3, #KEYS do
+    if hasChanged(KEYS[i]) then
+        return invalidate()
+    end
+end
+
+if ARGV[1] == '1' then
+    if hasChanged(KEYS[2]) then
+        return invalidate()
+    end
+    local position = 10
+    local resourceKeyCount = readNumber(decision, position, 4)
+    position = position + 4
+    for _ = 1, resourceKeyCount do
+        local length = readNumber(decision, position, 4)
+        position = position + 4
+        if hasChanged(string.sub(decision, position, position + length - 1)) then
+            return invalidate()
+        end
+        position = position + length
+    end
+end
+
+return decision
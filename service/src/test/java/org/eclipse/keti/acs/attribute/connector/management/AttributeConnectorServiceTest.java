@@ -34,6 +34,7 @@ import org.testng.annotations.Test;
 import org.eclipse.keti.acs.attribute.readers.AttributeReaderFactory;
 import org.eclipse.keti.acs.rest.AttributeAdapterConnection;
 import org.eclipse.keti.acs.rest.AttributeConnector;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
 import org.eclipse.keti.acs.zone.resolver.ZoneResolver;
@@ -48,11 +49,15 @@ public class AttributeConnectorServiceTest {
     private ZoneRepository zoneRepository;
     @Mock
     private AttributeReaderFactory attributeReaderFactory;
+    @Mock
+    private ZoneRegistry zoneRegistry;
 
     @BeforeMethod
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         this.connectorService.setEncryptionKey("1234567890123456");
+        Mockito.doAnswer(invocation -> this.zoneResolver.getZoneEntityOrFail()).when(this.zoneRepository)
+                .getByName(Mockito.anyString());
     }
 
     @Test(dataProvider = "validConnectorProvider")
@@ -180,6 +185,64 @@ public class AttributeConnectorServiceTest {
         this.connectorService.deleteSubjectConnector();
     }
 
+    @Test
+    public void testConnectorIsSavedOnPersistedZone() {
+        ZoneEntity resolvedZoneEntity = new ZoneEntity(1L, "test-zone");
+        Mockito.doReturn(resolvedZoneEntity).when(this.zoneResolver).getZoneEntityOrFail();
+        ZoneEntity persistedZoneEntity = new ZoneEntity(1L, "test-zone");
+        Mockito.doReturn(persistedZoneEntity).when(this.zoneRepository).getByName("test-zone");
+
+        this.connectorService.upsertSubjectConnector((AttributeConnector) getValidConnector()[0]);
+        Mockito.verify(this.zoneRepository).save(Mockito.same(persistedZoneEntity));
+        Mockito.verify(this.zoneRegistry).update(Mockito.same(persistedZoneEntity));
+        Assert.assertNull(resolvedZoneEntity.getSubjectAttributeConnector());
+    }
+
+    @Test(expectedExceptions = { AttributeConnectorException.class })
+    public void testUpsertConnectorForDeletedZone() {
+        Mockito.doReturn(new ZoneEntity(1L, "test-zone")).when(this.zoneResolver).getZoneEntityOrFail();
+        Mockito.doReturn(null).when(this.zoneRepository).getByName("test-zone");
+        this.connectorService.upsertResourceConnector((AttributeConnector) getValidConnector()[0]);
+    }
+
+    @Test
+    public void testDecryptedConnectorIsReusedUntilConnectorChanges() {
+        ZoneEntity zoneEntity = new ZoneEntity(1L, "test-zone");
+        Mockito.doReturn(zoneEntity).when(this.zoneResolver).getZoneEntityOrFail();
+        AttributeConnector connector = (AttributeConnector) getValidConnector()[0];
+        connector.setIsActive(true);
+        this.connectorService.upsertResourceConnector(connector);
+        AttributeConnector resolvedConnector = this.connectorService.getResourceAttributeConnector();
+        Assert.assertEquals(resolvedConnector.getAdapters().iterator().next().getUaaClientSecret(), "my-secret");
+
+        // The zone is loaded again for every request, which must not decrypt the connector again.
+        ZoneEntity reloadedZoneEntity = new ZoneEntity(1L, "test-zone");
+        reloadedZoneEntity.setResourceAttributeConnector(zoneEntity.getResourceAttributeConnector());
+        Mockito.doReturn(reloadedZoneEntity).when(this.zoneResolver).getZoneEntityOrFail();
+        Assert.assertSame(this.connectorService.getResourceAttributeConnector(), resolvedConnector);
+        Assert.assertTrue(this.connectorService.isResourceAttributeConnectorConfigured());
+
+        // Callers of retrieveResourceConnector() may modify the connector, so they get a copy.
+        AttributeConnector retrievedConnector = this.connectorService.retrieveResourceConnector();
+        Assert.assertNotSame(retrievedConnector, resolvedConnector);
+        Assert.assertEquals(retrievedConnector, resolvedConnector);
+        retrievedConnector.getAdapters().forEach(adapter -> adapter.setUaaClientSecret("**********"));
+        Assert.assertEquals(this.connectorService.getResourceAttributeConnector().getAdapters().iterator().next()
+                .getUaaClientSecret(), "my-secret");
+
+        AttributeConnector updatedConnector = new AttributeConnector();
+        updatedConnector.setMaxCachedIntervalMinutes(100);
+        updatedConnector.setAdapters(Collections.singleton(new AttributeAdapterConnection("https://my-endpoint.com",
+                "https://my-uaa.com", "my-client", "my-new-secret")));
+        this.connectorService.upsertResourceConnector(updatedConnector);
+        Assert.assertEquals(this.connectorService.getResourceAttributeConnector().getAdapters().iterator().next()
+                .getUaaClientSecret(), "my-new-secret");
+
+        this.connectorService.deleteResourceConnector();
+        Assert.assertNull(this.connectorService.getResourceAttributeConnector());
+        Assert.assertFalse(this.connectorService.isResourceAttributeConnectorConfigured());
+    }
+
     @DataProvider
     private Object[][] validConnectorProvider() {
         return new Object[][] { getValidConnector(), getConnectorWithAdapterEndpointHavingAMixedCaseScheme(),
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import org.testng.annotations.Test;
+
+public class RedisKeyScannerTest {
+
+    @Test
+    public void testPrefixPatternMatchesEverythingStartingWithThePrefix() {
+        assertEquals(RedisKeyScanner.prefixPattern("testzone1:"), "testzone1:*");
+    }
+
+    @Test
+    public void testZoneKeyPrefixesNeverPrefixOneAnother() {
+        assertEquals(RedisKeyScanner.zoneKeyPrefix("testzone1"), "testzone1:");
+        assertFalse(RedisKeyScanner.zoneKeyPrefix("a:b").startsWith(RedisKeyScanner.zoneKeyPrefix("a")));
+        assertFalse(RedisKeyScanner.zoneKeyPrefix("a%3Ab").equals(RedisKeyScanner.zoneKeyPrefix("a:b")));
+    }
+
+    @Test
+    public void testPrefixPatternEscapesGlobCharacters() {
+        assertEquals(RedisKeyScanner.prefixPattern("zone*[1]?\\:"), "zone\\*\\[1\\]\\?\\\\:*");
+    }
+}
@@ -467,7 +467,7 @@ public class AbstractPolicyEvaluationCacheTest {
         Assert.assertEquals(actualResult.getSubjectAttributes(), expectedResult.getSubjectAttributes());
 
         Mockito.verify(spiedCache, Mockito.times(isResourceConnectorConfigured || isSubjectConnectorConfigured ? 1 : 2))
-                .haveEntitiesChanged(Mockito.any(), Mockito.any());
+                .haveEntitiesChanged(Mockito.any(), Mockito.anyLong());
         Mockito.verify(spiedCache, Mockito.times(isResourceConnectorConfigured || isSubjectConnectorConfigured ? 1 : 0))
                 .haveConnectorCacheIntervalsLapsed(Mockito.any(), Mockito.any());
         Assert.assertEquals(this.cache.haveConnectorCacheIntervalsLapsed(connectorService, currentTime),
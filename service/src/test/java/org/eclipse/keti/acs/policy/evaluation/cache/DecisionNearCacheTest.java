@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.testng.annotations.Test;
+
+public class DecisionNearCacheTest {
+
+    private static final String DECISION_KEY = "zone:1:2:3";
+    private static final List<String> TIMESTAMP_KEYS = Arrays.asList("zone:sub-id:1", "zone:res-id:2");
+    private static final CachedEntries ENTRIES = new CachedEntries(new PolicyEvaluationResult(Effect.PERMIT),
+            Arrays.asList(1L, 2L));
+
+    @Test
+    public void testGetReturnsEntriesOnlyIfAllAreCached() {
+        DecisionNearCache nearCache = new DecisionNearCache(100, 60);
+        nearCache.put(DECISION_KEY, ENTRIES, TIMESTAMP_KEYS, nearCache.generation());
+
+        CachedEntries cachedEntries = nearCache.get(DECISION_KEY, TIMESTAMP_KEYS);
+        assertEquals(cachedEntries.getDecision().getEffect(), Effect.PERMIT);
+        assertEquals(cachedEntries.getTimestamps(), Arrays.asList(1L, 2L));
+        assertNull(nearCache.get(DECISION_KEY, Arrays.asList("zone:sub-id:1", "zone:res-id:3")));
+    }
+
+    @Test
+    public void testValuesReadBeforeAnInvalidationAreNotKept() {
+        DecisionNearCache nearCache = new DecisionNearCache(100, 60);
+        long generation = nearCache.generation();
+        nearCache.invalidate(Collections.singleton("zone:sub-id:1"));
+        nearCache.put(DECISION_KEY, ENTRIES, TIMESTAMP_KEYS, generation);
+
+        assertNull(nearCache.get(DECISION_KEY, TIMESTAMP_KEYS));
+        assertNull(nearCache.getTimestamps(TIMESTAMP_KEYS));
+    }
+
+    @Test
+    public void testInvalidationMessagesEvictTheirKeys() {
+        DecisionNearCache nearCache = new DecisionNearCache(100, 60);
+        nearCache.put(DECISION_KEY, ENTRIES, TIMESTAMP_KEYS, nearCache.generation());
+
+        nearCache.onMessage(new DefaultMessage(new byte[0],
+                DecisionNearCache.invalidationMessage(Collections.singleton("zone:res-id:2"))), null);
+        assertNull(nearCache.get(DECISION_KEY, TIMESTAMP_KEYS));
+        assertNotNull(nearCache.getTimestamps(Collections.singletonList("zone:sub-id:1")));
+
+        nearCache.onMessage(new DefaultMessage(new byte[0], DecisionNearCache.invalidateAllMessage()), null);
+        assertNull(nearCache.getTimestamps(Collections.singletonList("zone:sub-id:1")));
+    }
+}
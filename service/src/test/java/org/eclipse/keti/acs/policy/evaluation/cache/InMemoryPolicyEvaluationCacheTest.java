@@ -20,22 +20,27 @@ package org.eclipse.keti.acs.policy.evaluation.cache;
 
 import static org.eclipse.keti.acs.testutils.XFiles.AGENT_MULDER;
 import static org.eclipse.keti.acs.testutils.XFiles.XFILES_ID;
-import static org.mockito.internal.util.reflection.Whitebox.getInternalState;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.codehaus.jackson.map.ObjectMapper;
 import org.eclipse.keti.acs.model.Effect;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
-import org.joda.time.DateTime;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Ticker;
+
 public class InMemoryPolicyEvaluationCacheTest {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final String ZONE_NAME = "testzone1";
     public static final String ACTION_GET = "GET";
     private final InMemoryPolicyEvaluationCache cache = new InMemoryPolicyEvaluationCache();
@@ -45,59 +50,193 @@ public class InMemoryPolicyEvaluationCacheTest {
         this.cache.reset();
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void testSetPolicyEvalResult() throws Exception {
-        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
-        request.setAction(ACTION_GET);
-        request.setSubjectIdentifier(AGENT_MULDER);
-        request.setResourceIdentifier(XFILES_ID);
+    public void testSetPolicyEvalResult() {
+        this.cache.setDecision(cacheKey(XFILES_ID), new PolicyEvaluationResult(Effect.PERMIT));
 
-        PolicyEvaluationRequestCacheKey key = new PolicyEvaluationRequestCacheKey(request, ZONE_NAME);
+        assertEquals(this.cache.getDecisionCount(), 1);
+        assertEquals(this.cache.getTimestampCount(), 0);
+    }
 
+    @Test
+    public void testCachedPolicyEvalResultIsAnImmutableSnapshot() {
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
         PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.PERMIT);
-        String value = OBJECT_MAPPER.writeValueAsString(result);
-        this.cache.set(key.toDecisionKey(), value);
+        result.setResolvedResourceUris(Collections.singleton(XFILES_ID));
+        this.cache.setDecision(key, result);
+        result.setEffect(Effect.DENY);
+
+        PolicyEvaluationResult cachedResult = this.cache.multiGet(key.toDecisionKey(), Collections.emptyList())
+                .getDecision();
+        assertEquals(cachedResult.getEffect(), Effect.PERMIT);
+        assertEquals(cachedResult.getResolvedResourceUris(), Collections.singleton(XFILES_ID));
+        assertSame(this.cache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision(), cachedResult);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testCachedPolicyEvalResultCannotBeModified() {
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
+        this.cache.setDecision(key, new PolicyEvaluationResult(Effect.PERMIT));
 
-        Map<String, String> evalCache = (Map<String, String>) getInternalState(this.cache, "evalCache");
-        assertEquals(evalCache.size(), 1);
+        this.cache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision().setEffect(Effect.DENY);
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void testSetPolicySetChangedTimestamp() throws Exception {
+    public void testSetPolicySetChangedTimestamp() {
         String key = AbstractPolicyEvaluationCache.policySetKey(ZONE_NAME, "testSetPolicyPolicySetChangedTimestamp");
-        String value = OBJECT_MAPPER.writeValueAsString(new DateTime());
-        this.cache.set(key, value);
+        this.cache.setTimestamp(key, System.currentTimeMillis());
 
-        Map<String, String> evalCache = (Map<String, String>) getInternalState(this.cache, "evalCache");
-        assertEquals(evalCache.size(), 1);
+        assertEquals(this.cache.getTimestampCount(), 1);
+        assertEquals(this.cache.getDecisionCount(), 0);
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void testSetPolicyResourceChangedTimestamp() throws Exception {
+    public void testSetPolicyResourceChangedTimestamp() {
         String key = AbstractPolicyEvaluationCache.resourceKey(ZONE_NAME, XFILES_ID);
-        String value = OBJECT_MAPPER.writeValueAsString(new DateTime());
-        this.cache.set(key, value);
+        this.cache.setTimestamp(key, System.currentTimeMillis());
 
-        Map<String, String> evalCache = (Map<String, String>) getInternalState(this.cache, "evalCache");
-        assertEquals(evalCache.size(), 1);
+        assertEquals(this.cache.getTimestampCount(), 1);
+        assertEquals(this.cache.getDecisionCount(), 0);
     }
 
-    @SuppressWarnings("unchecked")
     @Test
-    public void testSetPolicySubjectChangedTimestamp() throws Exception {
+    public void testSetPolicySubjectChangedTimestamp() {
         String key = AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER);
-        String value = OBJECT_MAPPER.writeValueAsString(new DateTime());
-        this.cache.set(key, value);
+        this.cache.setTimestamp(key, System.currentTimeMillis());
 
-        Map<String, String> evalCache = (Map<String, String>) getInternalState(this.cache, "evalCache");
-        assertEquals(evalCache.size(), 1);
+        assertEquals(this.cache.getTimestampCount(), 1);
+        assertEquals(this.cache.getDecisionCount(), 0);
     }
 
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testSetUnsupportedKeyFormat() {
-        this.cache.set("key", "");
+        this.cache.setTimestamp("key", 0);
+    }
+
+    @Test
+    public void testDecisionsAreBoundedByCount() {
+        InMemoryPolicyEvaluationCache boundedCache = new InMemoryPolicyEvaluationCache(2, 0, 60);
+        for (int i = 0; i < 10; i++) {
+            boundedCache.setDecision(cacheKey("/x-files/" + i), new PolicyEvaluationResult(Effect.PERMIT));
+        }
+
+        assertTrue(boundedCache.getDecisionCount() <= 2);
+        assertTrue(boundedCache.getDecisionStats().evictionCount() >= 8);
+    }
+
+    @Test
+    public void testDecisionsAreBoundedBySize() {
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.PERMIT);
+        result.setResolvedResourceUris(Collections.singleton(XFILES_ID));
+        long entrySize = 2 * (cacheKey("/x-files/0").toDecisionKey().length() + XFILES_ID.length());
+        InMemoryPolicyEvaluationCache boundedCache = new InMemoryPolicyEvaluationCache(1000, 3 * entrySize, 60);
+        for (int i = 0; i < 10; i++) {
+            boundedCache.setDecision(cacheKey("/x-files/" + i), result);
+        }
+
+        assertTrue(boundedCache.getDecisionCount() <= 3);
+        assertTrue(boundedCache.getDecisionStats().evictionCount() >= 7);
+    }
+
+    @Test
+    public void testTimestampsAreNotEvictedByDecisionBound() {
+        InMemoryPolicyEvaluationCache boundedCache = new InMemoryPolicyEvaluationCache(1, 0, 60);
+        for (int i = 0; i < 10; i++) {
+            boundedCache.setTimestamp(AbstractPolicyEvaluationCache.resourceKey(ZONE_NAME, "/x-files/" + i), 0);
+            boundedCache.setDecision(cacheKey("/x-files/" + i), new PolicyEvaluationResult(Effect.PERMIT));
+        }
+
+        assertEquals(boundedCache.getTimestampCount(), 10);
+        assertTrue(boundedCache.getDecisionCount() <= 1);
+    }
+
+    @Test
+    public void testDecisionsExpireAfterTtl() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryPolicyEvaluationCache expiringCache = new InMemoryPolicyEvaluationCache(100, 0, 60, ticker);
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
+        expiringCache.setDecision(key, new PolicyEvaluationResult(Effect.PERMIT));
+
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertNotNull(expiringCache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision());
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNull(expiringCache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision());
+    }
+
+    @Test
+    public void testTimestampsOutliveTheDecisionsDependingOnThem() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryPolicyEvaluationCache expiringCache = new InMemoryPolicyEvaluationCache(100, 0, 60, ticker);
+        String timestampKey = AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER);
+        expiringCache.setTimestampIfNotExists(timestampKey, 0);
+
+        // A decision cached later depends on the same timestamp and must not outlive it.
+        ticker.advance(50, TimeUnit.SECONDS);
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
+        expiringCache.setTimestampIfNotExists(timestampKey, 1);
+        expiringCache.setDecision(key, new PolicyEvaluationResult(Effect.PERMIT));
+
+        ticker.advance(59, TimeUnit.SECONDS);
+        CachedEntries entries = expiringCache.multiGet(key.toDecisionKey(), Collections.singletonList(timestampKey));
+        assertNotNull(entries.getDecision());
+        assertEquals(entries.getTimestamps(), Arrays.asList(0L));
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNull(expiringCache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision());
+    }
+
+    @Test
+    public void testDecisionHitsAndMissesAreRecorded() {
+        InMemoryPolicyEvaluationCache statsCache = new InMemoryPolicyEvaluationCache();
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
+        statsCache.multiGet(key.toDecisionKey(), Collections.emptyList());
+        statsCache.setDecision(key, new PolicyEvaluationResult(Effect.PERMIT));
+        statsCache.multiGet(key.toDecisionKey(), Collections.emptyList());
+        statsCache.multiGetTimestamps(Collections.singletonList(AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME,
+                AGENT_MULDER)));
+
+        assertEquals(statsCache.getDecisionStats().hitCount(), 1);
+        assertEquals(statsCache.getDecisionStats().missCount(), 1);
+    }
+
+    @Test
+    public void testResetForZoneLeavesOtherZonesAlone() {
+        PolicyEvaluationRequestCacheKey key = cacheKey(XFILES_ID);
+        PolicyEvaluationRequestCacheKey otherZoneKey = cacheKey(XFILES_ID, "testzone2");
+        this.cache.setDecision(key, new PolicyEvaluationResult(Effect.PERMIT));
+        this.cache.setDecision(otherZoneKey, new PolicyEvaluationResult(Effect.PERMIT));
+        this.cache.setTimestamp(AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER), 1L);
+        this.cache.setTimestamp(AbstractPolicyEvaluationCache.subjectKey("testzone2", AGENT_MULDER), 1L);
+
+        this.cache.resetForZone(ZONE_NAME);
+        assertNull(this.cache.multiGet(key.toDecisionKey(), Collections.emptyList()).getDecision());
+        assertNotNull(this.cache.multiGet(otherZoneKey.toDecisionKey(), Collections.emptyList()).getDecision());
+        assertEquals(this.cache.getTimestampCount(), 1);
+    }
+
+    private static PolicyEvaluationRequestCacheKey cacheKey(final String resourceId) {
+        return cacheKey(resourceId, ZONE_NAME);
+    }
+
+    private static PolicyEvaluationRequestCacheKey cacheKey(final String resourceId, final String zoneName) {
+        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
+        request.setAction(ACTION_GET);
+        request.setSubjectIdentifier(AGENT_MULDER);
+        request.setResourceIdentifier(resourceId);
+        return new PolicyEvaluationRequestCacheKey(request, zoneName);
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(final long duration, final TimeUnit unit) {
+            this.nanos.addAndGet(unit.toNanos(duration));
+        }
+
+        @Override
+        public long read() {
+            return this.nanos.get();
+        }
     }
 }
@@ -24,9 +24,11 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 
+import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.testng.annotations.Test;
 
@@ -116,6 +118,48 @@ public class PolicyEvaluationRequestCacheKeyTest {
     public void testToRedisKey() {
         PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
         PolicyEvaluationRequestCacheKey key = new PolicyEvaluationRequestCacheKey(request, ZONE_NAME);
-        assertEquals(key.toDecisionKey(), ZONE_NAME + ":*:*:" + Integer.toHexString(request.hashCode()));
+        assertEquals(key.toDecisionKey(),
+                ZONE_NAME + ":*:*:" + PolicyEvaluationRequestCacheKey.hash(key.getIdentity()));
+    }
+
+    @Test
+    public void testDecisionKeyUsesOneHundredTwentyEightBitHashes() {
+        PolicyEvaluationRequestCacheKey key = createKey(AGENT_MULDER, XFILES_ID);
+        String[] parts = key.toDecisionKey().split(":");
+
+        assertEquals(parts.length, 4);
+        for (int i = 1; i < parts.length; i++) {
+            assertTrue(parts[i].matches("[0-9a-f]{32}"), parts[i]);
+        }
+    }
+
+    @Test
+    public void testIdentityDoesNotDependOnSubjectAttributeOrder() {
+        Attribute role = new Attribute("https://acs.attributes.int", "role", "agent");
+        Attribute site = new Attribute("https://acs.attributes.int", "site", "quantico");
+        PolicyEvaluationRequestCacheKey key = createKey(AGENT_MULDER, XFILES_ID);
+        key.getRequest().setSubjectAttributes(new LinkedHashSet<>(Arrays.asList(role, site)));
+        PolicyEvaluationRequestCacheKey otherKey = createKey(AGENT_MULDER, XFILES_ID);
+        otherKey.getRequest().setSubjectAttributes(new LinkedHashSet<>(Arrays.asList(site, role)));
+
+        assertEquals(key.getIdentity(), otherKey.getIdentity());
+        assertEquals(key.toDecisionKey(), otherKey.toDecisionKey());
+    }
+
+    @Test
+    public void testIdentityTellsApartRequestsWithTheSameConcatenatedFields() {
+        PolicyEvaluationRequestCacheKey key = createKey("mulder", "/x-files");
+        PolicyEvaluationRequestCacheKey otherKey = createKey("mulder/", "x-files");
+
+        assertFalse(key.getIdentity().equals(otherKey.getIdentity()));
+        assertFalse(key.toDecisionKey().equals(otherKey.toDecisionKey()));
+    }
+
+    private static PolicyEvaluationRequestCacheKey createKey(final String subjectId, final String resourceId) {
+        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
+        request.setAction(ACTION_GET);
+        request.setSubjectIdentifier(subjectId);
+        request.setResourceIdentifier(resourceId);
+        return new PolicyEvaluationRequestCacheKey(request, ZONE_NAME);
     }
 }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.keti.acs.model.Attribute;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class RedisDecisionCodecTest {
+
+    @DataProvider
+    public Object[][] timestampProvider() {
+        return new Object[][] { { 0L }, { 1L }, { -1L }, { System.currentTimeMillis() }, { Long.MAX_VALUE },
+                { Long.MIN_VALUE } };
+    }
+
+    @Test(dataProvider = "timestampProvider")
+    public void testTimestampRoundTrip(final long timestamp) {
+        assertEquals(RedisDecisionCodec.decodeTimestamp(RedisDecisionCodec.encodeTimestamp(timestamp)),
+                Long.valueOf(timestamp));
+    }
+
+    @Test
+    public void testDecisionRoundTrip() {
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.DENY,
+                new LinkedHashSet<>(Arrays.asList(new Attribute("https://acs.attributes.int", "role", "agent"),
+                        new Attribute("https://acs.attributes.int", "group"))),
+                Collections.singletonList(new Attribute("https://acs.attributes.int", "site", "sanramon")),
+                new LinkedHashSet<>(Arrays.asList("/x-files", "/sites/sanramon")));
+        result.setTimestamp(System.currentTimeMillis());
+        result.setMessage("Condition evaluation failed – see logs");
+
+        PolicyEvaluationResult decoded = RedisDecisionCodec.decodeDecision(RedisDecisionCodec.encodeDecision(result,
+                Arrays.asList("zone:res-id:1", "zone:res-id:2"), "request"));
+
+        assertEquals(decoded.getEffect(), result.getEffect());
+        assertEquals(decoded.getSubjectAttributes(), result.getSubjectAttributes());
+        assertEquals(decoded.getResourceAttributes(), result.getResourceAttributes());
+        assertEquals(decoded.getResolvedResourceUris(), result.getResolvedResourceUris());
+        assertEquals(decoded.getTimestamp(), result.getTimestamp());
+        assertEquals(decoded.getMessage(), result.getMessage());
+        assertTrue(ImmutablePolicyEvaluationResult.isResultFor(decoded, "request"));
+    }
+
+    @Test
+    public void testValuesInAnotherFormatAreReadAsAbsent() {
+        byte[] json = "{\"effect\":\"PERMIT\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] timestamp = "1500000000000".getBytes(StandardCharsets.UTF_8);
+
+        assertNull(RedisDecisionCodec.decodeDecision(json));
+        assertNull(RedisDecisionCodec.decodeTimestamp(timestamp));
+        assertNull(RedisDecisionCodec.decodeDecision(null));
+        assertNull(RedisDecisionCodec.decodeTimestamp(null));
+    }
+
+    @Test
+    public void testTruncatedDecisionIsReadAsAbsent() {
+        byte[] encoded = RedisDecisionCodec.encodeDecision(new PolicyEvaluationResult(Effect.PERMIT),
+                Collections.emptyList(), "request");
+
+        assertNull(RedisDecisionCodec.decodeDecision(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test
+    public void testDecisionStartsWithTheLayoutReadByTheValidationScript() {
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.PERMIT);
+        long timestamp = System.currentTimeMillis();
+        result.setTimestamp(timestamp);
+
+        ByteBuffer encoded = ByteBuffer.wrap(RedisDecisionCodec.encodeDecision(result,
+                Arrays.asList("zone:res-id:1", "zone:res-id:22"), "request"));
+
+        assertEquals(encoded.get(), RedisDecisionCodec.encodeTimestamp(timestamp)[0]);
+        assertEquals(encoded.getLong(), timestamp);
+        assertEquals(encoded.getInt(), 2);
+        assertEquals(readKey(encoded), "zone:res-id:1");
+        assertEquals(readKey(encoded), "zone:res-id:22");
+    }
+
+    /**
+     * No Lua runtime is available to the tests, so this reads the offsets that get-decision-if-valid.lua uses from
+     * the script itself and checks that they find the timestamps and resource keys written by the codec.
+     */
+    @Test
+    public void testValidationScriptReadsTheLayoutWrittenByTheCodec() throws IOException {
+        String script = StreamUtils.copyToString(
+                new ClassPathResource("redis/get-decision-if-valid.lua").getInputStream(), StandardCharsets.UTF_8);
+        int version = findInt(script, "local VERSION = (\\d+)");
+        int timestampLength = findInt(script, "local TIMESTAMP_LENGTH = (\\d+)");
+        int[] decisionTimestamp = findInts(script,
+                "local decisionTimestamp = readNumber\\(decision, (\\d+), (\\d+)\\)");
+        int[] timestamp = findInts(script, "return readNumber\\(timestamp, (\\d+), (\\d+)\\) >");
+        int resourceKeysPosition = findInt(script, "local position = (\\d+)");
+        int resourceKeyCountLength = findInt(script,
+                "local resourceKeyCount = readNumber\\(decision, position, (\\d+)\\)");
+        int resourceKeyLength = findInt(script, "local length = readNumber\\(decision, position, (\\d+)\\)");
+
+        long now = System.currentTimeMillis();
+        byte[] encodedTimestamp = RedisDecisionCodec.encodeTimestamp(now);
+        assertEquals(encodedTimestamp.length, timestampLength);
+        assertEquals((int) encodedTimestamp[0], version);
+        assertEquals(readNumber(encodedTimestamp, timestamp[0], timestamp[1]), now);
+
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.PERMIT);
+        result.setTimestamp(now - 1);
+        List<String> resourceKeys = Arrays.asList("zone:res-id:1", "zone:res-id:22");
+        byte[] decision = RedisDecisionCodec.encodeDecision(result, resourceKeys, "request");
+        assertEquals((int) decision[0], version);
+        assertEquals(readNumber(decision, decisionTimestamp[0], decisionTimestamp[1]), now - 1);
+
+        int position = resourceKeysPosition;
+        assertEquals(readNumber(decision, position, resourceKeyCountLength), resourceKeys.size());
+        position += resourceKeyCountLength;
+        for (String resourceKey : resourceKeys) {
+            int length = (int) readNumber(decision, position, resourceKeyLength);
+            position += resourceKeyLength;
+            // Lua strings are indexed from 1.
+            assertEquals(new String(decision, position - 1, length, StandardCharsets.UTF_8), resourceKey);
+            position += length;
+        }
+    }
+
+    private static int findInt(final String script, final String regex) {
+        return findInts(script, regex)[0];
+    }
+
+    private static int[] findInts(final String script, final String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(script);
+        assertTrue(matcher.find(), regex);
+        int[] ints = new int[matcher.groupCount()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = Integer.parseInt(matcher.group(i + 1));
+        }
+        return ints;
+    }
+
+    // Same as readNumber in the script, which indexes strings from 1.
+    private static long readNumber(final byte[] value, final int position, final int length) {
+        long number = 0;
+        for (int i = position; i < position + length; i++) {
+            number = number * 256 + (value[i - 1] & 0xFF);
+        }
+        return number;
+    }
+
+    private static String readKey(final ByteBuffer buffer) {
+        byte[] key = new byte[buffer.getInt()];
+        buffer.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import static org.eclipse.keti.acs.testutils.XFiles.AGENT_MULDER;
+import static org.eclipse.keti.acs.testutils.XFiles.XFILES_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.keti.acs.attribute.connector.management.AttributeConnectorService;
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class RedisPolicyEvaluationCacheTest {
+
+    private static final String ZONE_NAME = "testzone1";
+    private static final String OTHER_ZONE_NAME = "testzone2";
+    private static final String ACTION_GET = "GET";
+
+    private RedisStandIn redis;
+
+    @BeforeMethod
+    public void setup() {
+        this.redis = new RedisStandIn();
+    }
+
+    private RedisPolicyEvaluationCache createCache(final boolean nearCacheEnabled) {
+        RedisPolicyEvaluationCache cache = new RedisPolicyEvaluationCache();
+        ReflectionTestUtils.setField(cache, "connectorService", Mockito.mock(AttributeConnectorService.class));
+        ReflectionTestUtils.setField(cache, "decisionCacheRedisTemplate", this.redis.createTemplate());
+        if (nearCacheEnabled) {
+            cache.enableNearCache(100, 60);
+            this.redis.subscribe(cache.getInvalidationListener());
+        }
+        return cache;
+    }
+
+    @Test
+    public void testGetWithCacheHit() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+
+        assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+    }
+
+    @Test
+    public void testGetWithResetForSubject() throws Exception {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+
+        Thread.sleep(1);
+        cache.resetForSubject(ZONE_NAME, AGENT_MULDER);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testSetTakesOneRoundTripRegardlessOfResolvedResources() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        PolicyEvaluationResult result = createPermitResult();
+        result.setResolvedResourceUris(new HashSet<>(Arrays.asList(XFILES_ID, "/x-files/1", "/x-files/2")));
+        int roundTrips = this.redis.getRoundTrips();
+
+        cache.set(key, result);
+        assertEquals(this.redis.getRoundTrips(), roundTrips + 1);
+        assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+    }
+
+    @Test
+    public void testSetKeepsExistingTimestamps() throws Exception {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+        String subjectKey = AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER);
+        Long subjectTimestamp = cache.multiGetTimestamps(Collections.singletonList(subjectKey)).get(0);
+
+        Thread.sleep(1);
+        cache.set(key, createPermitResult());
+        assertEquals(cache.multiGetTimestamps(Collections.singletonList(subjectKey)).get(0), subjectTimestamp);
+    }
+
+    @Test(dataProvider = "nearCacheProvider")
+    public void testLegacyTimestampIsReplacedAfterOneReEvaluation(final boolean nearCacheEnabled) {
+        RedisPolicyEvaluationCache cache = createCache(nearCacheEnabled);
+        ReflectionTestUtils.setField(cache, "timestampTtlSeconds", 1200L);
+        String subjectKey = AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER);
+        // Written by an older version of this service, without a TTL.
+        this.redis.setLegacyValue(subjectKey, "\"1500000000000\"");
+        PolicyEvaluationRequestCacheKey key = createKey();
+
+        cache.set(key, createPermitResult());
+        assertNull(cache.get(key));
+        cache.set(key, createPermitResult());
+        assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+        assertEquals(this.redis.getTtl(subjectKey), Long.valueOf(1200));
+    }
+
+    @DataProvider
+    public Object[][] nearCacheProvider() {
+        return new Object[][] { { false }, { true } };
+    }
+
+    @Test
+    public void testDecisionsAndTimestampsAreWrittenWithTtls() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        ReflectionTestUtils.setField(cache, "decisionTtlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "timestampTtlSeconds", 1200L);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+
+        String subjectKey = AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER);
+        String resourceKey = AbstractPolicyEvaluationCache.resourceKey(ZONE_NAME, XFILES_ID);
+        assertEquals(this.redis.getTtl(key.toDecisionKey()), Long.valueOf(600));
+        assertEquals(this.redis.getTtl(subjectKey), Long.valueOf(1200));
+        assertEquals(this.redis.getTtl(resourceKey), Long.valueOf(1200));
+
+        cache.resetForSubject(ZONE_NAME, AGENT_MULDER);
+        cache.resetForResourcesByIds(ZONE_NAME, Collections.singleton(XFILES_ID));
+        assertEquals(this.redis.getTtl(subjectKey), Long.valueOf(1200));
+        assertEquals(this.redis.getTtl(resourceKey), Long.valueOf(1200));
+    }
+
+    @Test
+    public void testZoneOverItsDecisionBudgetStopsCachingDecisions() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        ReflectionTestUtils.setField(cache, "decisionTtlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "maxDecisionsPerZone", 1L);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        PolicyEvaluationRequestCacheKey overBudgetKey = createKey(ZONE_NAME, "/x-files/1");
+        PolicyEvaluationRequestCacheKey otherZoneKey = createKey(OTHER_ZONE_NAME);
+
+        cache.set(key, createPermitResult());
+        cache.set(overBudgetKey, createPermitResult());
+        cache.set(otherZoneKey, createPermitResult());
+
+        assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+        assertNull(cache.get(overBudgetKey));
+        assertEquals(cache.get(otherZoneKey).getEffect(), Effect.PERMIT);
+        int roundTrips = this.redis.getRoundTrips();
+        cache.set(createKey(ZONE_NAME, "/x-files/2"), createPermitResult());
+        assertEquals(this.redis.getRoundTrips(), roundTrips);
+    }
+
+    @Test
+    public void testNearCacheServesRepeatedHitsWithoutRedis() {
+        RedisPolicyEvaluationCache cache = createCache(true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+        cache.get(key);
+        int reads = this.redis.getReads();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+        }
+        assertEquals(this.redis.getReads(), reads);
+    }
+
+    @Test
+    public void testResetOnOneNodeInvalidatesNearCacheOfAnother() throws Exception {
+        RedisPolicyEvaluationCache node1 = createCache(true);
+        RedisPolicyEvaluationCache node2 = createCache(true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        node1.set(key, createPermitResult());
+        assertEquals(node2.get(key).getEffect(), Effect.PERMIT);
+
+        Thread.sleep(1);
+        node1.resetForSubject(ZONE_NAME, AGENT_MULDER);
+        assertNull(node2.get(key));
+    }
+
+    @Test
+    public void testResetForResourcesOnOneNodeInvalidatesNearCacheOfAnother() throws Exception {
+        RedisPolicyEvaluationCache node1 = createCache(true);
+        RedisPolicyEvaluationCache node2 = createCache(true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        node1.set(key, createPermitResult());
+        assertEquals(node2.get(key).getEffect(), Effect.PERMIT);
+
+        Thread.sleep(1);
+        node1.resetForResourcesByIds(ZONE_NAME, Collections.singleton(XFILES_ID));
+        assertNull(node2.get(key));
+    }
+
+    @Test
+    public void testResetOnOneNodeInvalidatesAllNearCaches() {
+        RedisPolicyEvaluationCache node1 = createCache(true);
+        RedisPolicyEvaluationCache node2 = createCache(true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        node1.set(key, createPermitResult());
+        assertEquals(node2.get(key).getEffect(), Effect.PERMIT);
+
+        node1.reset();
+        assertNull(node2.get(key));
+    }
+
+    @Test
+    public void testResetForZoneLeavesOtherZonesAlone() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        PolicyEvaluationRequestCacheKey otherZoneKey = createKey(OTHER_ZONE_NAME);
+        cache.set(key, createPermitResult());
+        cache.set(otherZoneKey, createPermitResult());
+
+        cache.resetForZone(ZONE_NAME);
+        assertNull(cache.get(key));
+        assertEquals(cache.get(otherZoneKey).getEffect(), Effect.PERMIT);
+    }
+
+    @Test
+    public void testResetForZoneLeavesZonesWhoseNamesItPrefixesAlone() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        PolicyEvaluationRequestCacheKey key = createKey("a");
+        PolicyEvaluationRequestCacheKey prefixedZoneKey = createKey("a:b");
+        cache.set(key, createPermitResult());
+        cache.set(prefixedZoneKey, createPermitResult());
+
+        cache.resetForZone("a");
+        assertNull(cache.get(key));
+        assertEquals(cache.get(prefixedZoneKey).getEffect(), Effect.PERMIT);
+        List<Long> subjectTimestamps = cache.multiGetTimestamps(Arrays.asList(
+                AbstractPolicyEvaluationCache.subjectKey("a", AGENT_MULDER),
+                AbstractPolicyEvaluationCache.subjectKey("a:b", AGENT_MULDER)));
+        assertNull(subjectTimestamps.get(0));
+        assertNotNull(subjectTimestamps.get(1));
+    }
+
+    @Test
+    public void testResetForZoneOnOneNodeInvalidatesNearCacheOfAnother() {
+        RedisPolicyEvaluationCache node1 = createCache(true);
+        RedisPolicyEvaluationCache node2 = createCache(true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        node1.set(key, createPermitResult());
+        assertEquals(node2.get(key).getEffect(), Effect.PERMIT);
+
+        node1.resetForZone(ZONE_NAME);
+        assertNull(node2.get(key));
+    }
+
+    @Test
+    public void testScriptedValidationTakesOneRoundTrip() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        ReflectionTestUtils.setField(cache, "scriptedValidationEnabled", true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        PolicyEvaluationResult result = createPermitResult();
+        cache.set(key, result);
+        this.redis.setScriptResult(RedisDecisionCodec.encodeDecision(result, Collections.emptyList(),
+                key.getIdentity()));
+        int reads = this.redis.getReads();
+
+        assertEquals(cache.get(key).getEffect(), Effect.PERMIT);
+        assertEquals(this.redis.getReads(), reads);
+        assertEquals(this.redis.getScriptCalls().size(), 1);
+        String policySetKey = AbstractPolicyEvaluationCache.policySetKey(ZONE_NAME,
+                PolicyEvaluationRequestCacheKey.ANY_POLICY_SET_KEY);
+        assertEquals(toStrings(this.redis.getScriptCalls().get(0)), Arrays.asList(key.toDecisionKey(),
+                AbstractPolicyEvaluationCache.subjectKey(ZONE_NAME, AGENT_MULDER), policySetKey, "1"));
+    }
+
+    @Test
+    public void testScriptedValidationMissWhenScriptReturnsNothing() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        ReflectionTestUtils.setField(cache, "scriptedValidationEnabled", true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        cache.set(key, createPermitResult());
+        this.redis.setScriptResult(null);
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testDecisionCachedForAnotherRequestIsAMiss() {
+        RedisPolicyEvaluationCache cache = createCache(false);
+        ReflectionTestUtils.setField(cache, "scriptedValidationEnabled", true);
+        PolicyEvaluationRequestCacheKey key = createKey();
+        PolicyEvaluationResult result = createPermitResult();
+        result.setTimestamp(System.currentTimeMillis());
+        this.redis.setScriptResult(RedisDecisionCodec.encodeDecision(result, Collections.emptyList(),
+                createKey(OTHER_ZONE_NAME).getIdentity()));
+
+        assertNull(cache.get(key));
+    }
+
+    private static List<String> toStrings(final byte[][] values) {
+        List<String> strings = new ArrayList<>();
+        for (byte[] value : values) {
+            strings.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    private static PolicyEvaluationRequestCacheKey createKey() {
+        return createKey(ZONE_NAME);
+    }
+
+    private static PolicyEvaluationRequestCacheKey createKey(final String zoneName) {
+        return createKey(zoneName, XFILES_ID);
+    }
+
+    private static PolicyEvaluationRequestCacheKey createKey(final String zoneName, final String resourceId) {
+        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
+        request.setAction(ACTION_GET);
+        request.setSubjectIdentifier(AGENT_MULDER);
+        request.setResourceIdentifier(resourceId);
+        return new PolicyEvaluationRequestCacheKey(request, zoneName);
+    }
+
+    private static PolicyEvaluationResult createPermitResult() {
+        PolicyEvaluationResult result = new PolicyEvaluationResult(Effect.PERMIT);
+        result.setResolvedResourceUris(Collections.singleton(XFILES_ID));
+        return result;
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.policy.evaluation.cache;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanCursor;
+import org.springframework.data.redis.core.ScanIteration;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * Stands in for a Redis server in tests: implements, in memory, just the commands used by the decision cache, and
+ * delivers published messages synchronously to the subscribed listeners. Lua scripts are recorded, not run.
+ */
+final class RedisStandIn {
+
+    private final Map<ByteBuffer, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, Long> ttls = new ConcurrentHashMap<>();
+    private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicInteger roundTrips = new AtomicInteger();
+    private final List<byte[][]> scriptCalls = new CopyOnWriteArrayList<>();
+    private volatile byte[] scriptResult;
+    private final RedisConnectionFactory connectionFactory = Mockito.mock(RedisConnectionFactory.class);
+
+    RedisStandIn() {
+        Mockito.doAnswer(invocation -> createConnection()).when(this.connectionFactory).getConnection();
+    }
+
+    RedisTemplate<String, String> createTemplate() {
+        RedisTemplate<String, String> template = new RedisTemplate<>();
+        template.setConnectionFactory(this.connectionFactory);
+        template.setDefaultSerializer(new StringRedisSerializer());
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    void subscribe(final MessageListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * @return the number of read commands executed so far
+     */
+    int getReads() {
+        return this.reads.get();
+    }
+
+    /**
+     * Lua is not available here, so every script call returns the given value instead of running the script.
+     */
+    void setScriptResult(final byte[] scriptResult) {
+        this.scriptResult = scriptResult;
+    }
+
+    /**
+     * @return the keys and arguments of every script call so far
+     */
+    List<byte[][]> getScriptCalls() {
+        return this.scriptCalls;
+    }
+
+    /**
+     * @return the number of network exchanges so far, counting each command outside a pipeline and each pipeline as
+     *         one
+     */
+    int getRoundTrips() {
+        return this.roundTrips.get();
+    }
+
+    private RedisConnection createConnection() {
+        AtomicReference<List<Object>> pipelineResults = new AtomicReference<>();
+        return (RedisConnection) Proxy.newProxyInstance(RedisConnection.class.getClassLoader(),
+                new Class<?>[] { RedisConnection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "openPipeline":
+                            pipelineResults.set(new ArrayList<>());
+                            return null;
+                        case "closePipeline":
+                            this.roundTrips.incrementAndGet();
+                            return pipelineResults.getAndSet(null);
+                        case "isPipelined":
+                            return pipelineResults.get() != null;
+                        case "isQueueing":
+                        case "isClosed":
+                            return false;
+                        case "close":
+                            return null;
+                        default:
+                            Object result = execute(method.getName(), args);
+                            if (pipelineResults.get() != null) {
+                                pipelineResults.get().add(result);
+                                return null;
+                            }
+                            this.roundTrips.incrementAndGet();
+                            return result;
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object execute(final String command, final Object[] args) {
+        switch (command) {
+            case "mGet":
+                return mGet((byte[][]) args[0]);
+            case "mSet":
+                mSet((Map<byte[], byte[]>) args[0]);
+                return null;
+            case "set":
+                set(args);
+                return null;
+            case "setNX":
+                return this.values.putIfAbsent(ByteBuffer.wrap((byte[]) args[0]), (byte[]) args[1]) == null;
+            case "incr":
+                return incr((byte[]) args[0]);
+            case "expire":
+                return expire((byte[]) args[0], (Long) args[1]);
+            case "del":
+                return del((byte[][]) args[0]);
+            case "scan":
+                return scan((ScanOptions) args[0]);
+            case "evalSha":
+                // Behaves as if the script was never loaded, so callers have to fall back to EVAL.
+                throw new RedisSystemException("NOSCRIPT No matching script. Please use EVAL.", null);
+            case "eval":
+                this.scriptCalls.add(((byte[][]) args[3]).clone());
+                return this.scriptResult;
+            case "publish":
+                return publish((byte[]) args[0], (byte[]) args[1]);
+            case "ping":
+                return "PONG";
+            default:
+                throw new UnsupportedOperationException(command);
+        }
+    }
+
+    /**
+     * Sets a string value without a TTL, as an older version of this service did.
+     */
+    void setLegacyValue(final String key, final String value) {
+        ByteBuffer rawKey = ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8));
+        this.values.put(rawKey, value.getBytes(StandardCharsets.UTF_8));
+        this.ttls.remove(rawKey);
+    }
+
+    /**
+     * @return the TTL, in seconds, that the given key was last set with, or null if it was set without one
+     */
+    Long getTtl(final String key) {
+        return this.ttls.get(ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void set(final Object[] args) {
+        ByteBuffer key = ByteBuffer.wrap((byte[]) args[0]);
+        if (args.length == 2) {
+            this.values.put(key, (byte[]) args[1]);
+            this.ttls.remove(key);
+            return;
+        }
+        Expiration expiration = (Expiration) args[2];
+        if (args[3] == SetOption.SET_IF_ABSENT && this.values.putIfAbsent(key, (byte[]) args[1]) != null) {
+            return;
+        }
+        this.values.put(key, (byte[]) args[1]);
+        this.ttls.put(key, expiration.getExpirationTimeInSeconds());
+    }
+
+    private long incr(final byte[] key) {
+        byte[] value = this.values.merge(ByteBuffer.wrap(key), "1".getBytes(StandardCharsets.UTF_8),
+                (oldValue, one) -> String.valueOf(Long.parseLong(new String(oldValue, StandardCharsets.UTF_8)) + 1)
+                        .getBytes(StandardCharsets.UTF_8));
+        return Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private boolean expire(final byte[] key, final long seconds) {
+        if (!this.values.containsKey(ByteBuffer.wrap(key))) {
+            return false;
+        }
+        this.ttls.put(ByteBuffer.wrap(key), seconds);
+        return true;
+    }
+
+    private List<byte[]> mGet(final byte[][] keys) {
+        this.reads.incrementAndGet();
+        List<byte[]> result = new ArrayList<>();
+        for (byte[] key : keys) {
+            result.add(this.values.get(ByteBuffer.wrap(key)));
+        }
+        return result;
+    }
+
+    private void mSet(final Map<byte[], byte[]> map) {
+        for (Entry<byte[], byte[]> entry : map.entrySet()) {
+            this.values.put(ByteBuffer.wrap(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private long del(final byte[][] keys) {
+        long deleted = 0;
+        for (byte[] key : keys) {
+            this.ttls.remove(ByteBuffer.wrap(key));
+            if (this.values.remove(ByteBuffer.wrap(key)) != null) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the matching keys in two iterations, so that callers have to follow the cursor.
+     */
+    private Cursor<byte[]> scan(final ScanOptions options) {
+        List<byte[]> keys = new ArrayList<>();
+        Pattern pattern = globToRegex(options.getPattern());
+        for (ByteBuffer key : this.values.keySet()) {
+            byte[] rawKey = new byte[key.remaining()];
+            key.duplicate().get(rawKey);
+            if (pattern.matcher(new String(rawKey, StandardCharsets.UTF_8)).matches()) {
+                keys.add(rawKey);
+            }
+        }
+        int half = keys.size() / 2;
+        return new ScanCursor<byte[]>(options) {
+            @Override
+            protected ScanIteration<byte[]> doScan(final long cursorId, final ScanOptions scanOptions) {
+                if (cursorId == 0) {
+                    return new ScanIteration<>(1, keys.subList(0, half));
+                }
+                return new ScanIteration<>(0, keys.subList(half, keys.size()));
+            }
+        }.open();
+    }
+
+    private static Pattern globToRegex(final String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                if (c == '\\' && i + 1 < glob.length()) {
+                    c = glob.charAt(++i);
+                }
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private long publish(final byte[] channel, final byte[] message) {
+        for (MessageListener listener : this.listeners) {
+            listener.onMessage(new DefaultMessage(channel, message), null);
+        }
+        return this.listeners.size();
+    }
+}
@@ -19,15 +19,22 @@
 package org.eclipse.keti.acs.privilege.management;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -53,12 +60,13 @@ import org.eclipse.keti.acs.rest.Zone;
 import org.eclipse.keti.acs.testutils.TestActiveProfilesResolver;
 import org.eclipse.keti.acs.testutils.TestUtils;
 import org.eclipse.keti.acs.zone.management.ZoneService;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
 import org.eclipse.keti.acs.zone.management.ZoneServiceImpl;
 import org.eclipse.keti.acs.zone.resolver.SpringSecurityZoneResolver;
 
 @ContextConfiguration(classes = { AcsRequestContextHolder.class, InMemoryDataSourceConfig.class,
         InMemoryPolicyEvaluationCache.class, AttributeCacheFactory.class, PrivilegeManagementServiceImpl.class,
-        GraphBeanDefinitionRegistryPostProcessor.class, GraphConfig.class, ZoneServiceImpl.class,
+        GraphBeanDefinitionRegistryPostProcessor.class, GraphConfig.class, ZoneServiceImpl.class, ZoneRegistry.class,
         SpringSecurityPolicyContextResolver.class, SpringSecurityZoneResolver.class, SubjectRepositoryProxy.class,
         ResourceRepositoryProxy.class, AttributeConnectorServiceImpl.class, AttributeReaderFactory.class,
         PrivilegeServiceResourceAttributeReader.class, PrivilegeServiceSubjectAttributeReader.class })
@@ -73,6 +81,9 @@ public class PrivilegeManagementNoRollbackTest extends AbstractTestNGSpringConte
     @Autowired
     private ZoneService zoneService;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private final AttributesUtilities attributesUtilities = new AttributesUtilities();
     private Set<Attribute> fixedAttributes;
     private final TestUtils testUtils = new TestUtils();
@@ -132,6 +143,51 @@ public class PrivilegeManagementNoRollbackTest extends AbstractTestNGSpringConte
         Assert.fail("Expected PrivilegeManagementException to be thrown.");
     }
 
+    public void testFailedChunkLeavesEarlierChunksPersisted() {
+        PrivilegeManagementServiceImpl serviceImpl = AopTestUtils.getTargetObject(this.service);
+        List<BaseSubject> subjects = Arrays.asList(createSubject("fox"), createSubject("dana"),
+                createSubject("walter"), createSubject("walter"));
+        try {
+            serviceImpl.setBulkChunkSize(2);
+            this.service.appendSubjects(subjects);
+            Assert.fail("Expected PrivilegeManagementException to be thrown.");
+        } catch (PrivilegeManagementException e) {
+            Assert.assertTrue(e.getMessage().endsWith(
+                    "Only the failing chunk was rolled back; 2 of 4 Subject(s) remain persisted."),
+                    "Invalid Error Message: " + e.getMessage());
+            Assert.assertNotNull(this.service.getBySubjectIdentifier("fox"));
+            Assert.assertNotNull(this.service.getBySubjectIdentifier("dana"));
+            Assert.assertNull(this.service.getBySubjectIdentifier("walter"));
+        } finally {
+            serviceImpl.setBulkChunkSize(1000);
+            this.service.deleteSubject("fox");
+            this.service.deleteSubject("dana");
+        }
+    }
+
+    public void testForEachSubjectKeepsNoPersistenceContextAcrossPages() {
+        PrivilegeManagementServiceImpl serviceImpl = AopTestUtils.getTargetObject(this.service);
+        List<String> subjectIdentifiers = Arrays.asList("fox", "dana", "walter", "john", "monica");
+        try {
+            serviceImpl.setBulkChunkSize(2);
+            this.service.appendSubjects(
+                    subjectIdentifiers.stream().map(this::createSubject).collect(Collectors.toList()));
+
+            List<String> iteratedIdentifiers = new ArrayList<>();
+            this.service.forEachSubject(subject -> {
+                // No entity manager is bound to the thread, so every page was read and released by its own one.
+                Assert.assertNull(TransactionSynchronizationManager.getResource(this.entityManagerFactory));
+                iteratedIdentifiers.add(subject.getSubjectIdentifier());
+            });
+
+            Assert.assertEquals(new HashSet<>(iteratedIdentifiers), new HashSet<>(subjectIdentifiers));
+            Assert.assertEquals(iteratedIdentifiers.size(), subjectIdentifiers.size());
+        } finally {
+            serviceImpl.setBulkChunkSize(1000);
+            subjectIdentifiers.forEach(this.service::deleteSubject);
+        }
+    }
+
     private BaseSubject createSubject(final String subjectIdentifier) {
         BaseSubject subject = new BaseSubject();
         subject.setSubjectIdentifier(subjectIdentifier);
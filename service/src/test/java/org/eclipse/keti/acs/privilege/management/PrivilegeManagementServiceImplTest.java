@@ -20,17 +20,20 @@ package org.eclipse.keti.acs.privilege.management;
 
 import static java.util.Arrays.asList;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.test.util.AopTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -60,6 +63,7 @@ import org.eclipse.keti.acs.testutils.MockSecurityContext;
 import org.eclipse.keti.acs.testutils.TestActiveProfilesResolver;
 import org.eclipse.keti.acs.testutils.TestUtils;
 import org.eclipse.keti.acs.zone.management.ZoneService;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
 import org.eclipse.keti.acs.zone.management.ZoneServiceImpl;
 import org.eclipse.keti.acs.zone.resolver.SpringSecurityZoneResolver;
 
@@ -68,7 +72,8 @@ import org.eclipse.keti.acs.zone.resolver.SpringSecurityZoneResolver;
         SpringSecurityPolicyContextResolver.class, SpringSecurityZoneResolver.class, ZoneServiceImpl.class,
         GraphBeanDefinitionRegistryPostProcessor.class, GraphConfig.class, SubjectRepositoryProxy.class,
         ResourceRepositoryProxy.class, AttributeConnectorServiceImpl.class, AttributeReaderFactory.class,
-        PrivilegeServiceResourceAttributeReader.class, PrivilegeServiceSubjectAttributeReader.class })
+        PrivilegeServiceResourceAttributeReader.class, PrivilegeServiceSubjectAttributeReader.class,
+        ZoneRegistry.class })
 @ActiveProfiles(resolver = TestActiveProfilesResolver.class)
 @TestPropertySource("classpath:application.properties")
 public class PrivilegeManagementServiceImplTest extends AbstractTransactionalTestNGSpringContextTests {
@@ -186,6 +191,70 @@ public class PrivilegeManagementServiceImplTest extends AbstractTransactionalTes
         }
     }
 
+    @Test
+    public void testAppendSubjectsInChunks() {
+        PrivilegeManagementServiceImpl serviceImpl = AopTestUtils.getTargetObject(this.service);
+        List<String> subjectIdentifiers = asList("fox", "dana", "walter", "john", "monica");
+        try {
+            serviceImpl.setBulkChunkSize(2);
+            this.service.appendSubjects(asList(createSubject("fox", this.fixedAttributes)));
+
+            Set<Attribute> analystAttributes = this.attributesUtilities
+                    .getSetOfAttributes(new Attribute("acs", "group", "analyst"));
+            this.service.appendSubjects(subjectIdentifiers.stream()
+                    .map(subjectIdentifier -> createSubject(subjectIdentifier, analystAttributes))
+                    .collect(Collectors.toList()));
+
+            for (String subjectIdentifier : subjectIdentifiers) {
+                Assert.assertEquals(this.service.getBySubjectIdentifier(subjectIdentifier).getAttributes(),
+                        analystAttributes);
+            }
+            // The existing subject was updated rather than appended again.
+            Assert.assertEquals(this.service.getSubjects().stream()
+                    .filter(subject -> "fox".equals(subject.getSubjectIdentifier())).count(), 1);
+        } finally {
+            serviceImpl.setBulkChunkSize(1000);
+            subjectIdentifiers.forEach(this.service::deleteSubject);
+        }
+    }
+
+    @Test
+    public void testGetSubjectsInPages() {
+        List<String> subjectIdentifiers = asList("fox", "dana", "walter", "john", "monica");
+        try {
+            this.service.appendSubjects(subjectIdentifiers.stream()
+                    .map(subjectIdentifier -> createSubject(subjectIdentifier, this.fixedAttributes))
+                    .collect(Collectors.toList()));
+
+            List<String> pagedIdentifiers = new ArrayList<>();
+            String cursor = null;
+            do {
+                CursorPage<BaseSubject> page = this.service.getSubjects(cursor, 2);
+                Assert.assertTrue(page.getItems().size() <= 2);
+                page.getItems().forEach(subject -> pagedIdentifiers.add(subject.getSubjectIdentifier()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            List<String> streamedIdentifiers = new ArrayList<>();
+            this.service.forEachSubject(subject -> streamedIdentifiers.add(subject.getSubjectIdentifier()));
+
+            List<String> listedIdentifiers = this.service.getSubjects().stream().map(BaseSubject::getSubjectIdentifier)
+                    .collect(Collectors.toList());
+            Assert.assertTrue(pagedIdentifiers.containsAll(subjectIdentifiers));
+            Assert.assertEquals(new HashSet<>(pagedIdentifiers), new HashSet<>(listedIdentifiers));
+            Assert.assertEquals(pagedIdentifiers.size(), listedIdentifiers.size());
+            Assert.assertEquals(new HashSet<>(streamedIdentifiers), new HashSet<>(listedIdentifiers));
+            Assert.assertEquals(streamedIdentifiers.size(), listedIdentifiers.size());
+        } finally {
+            subjectIdentifiers.forEach(this.service::deleteSubject);
+        }
+    }
+
+    @Test(expectedExceptions = PrivilegeManagementException.class)
+    public void testGetSubjectsWithInvalidCursor() {
+        this.service.getSubjects("not-a-cursor", 2);
+    }
+
     @Test(expectedExceptions = PrivilegeManagementException.class)
     public void testAppendNullSubjects() {
         this.service.appendSubjects(null);
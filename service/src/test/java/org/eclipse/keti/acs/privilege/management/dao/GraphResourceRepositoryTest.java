@@ -48,12 +48,15 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.springframework.data.domain.PageRequest;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -255,6 +258,83 @@ public class GraphResourceRepositoryTest {
         deleteThreeLevelEntityAndParents(expectedResource, TEST_ZONE_1, this.resourceRepository);
     }
 
+    @Test
+    public void testSaveBatchWithParentsInTheSameBatch() {
+        ResourceEntity basement = new ResourceEntity(TEST_ZONE_1, BASEMENT_SITE_ID + getRandomNumber());
+        basement.setAttributes(BASEMENT_ATTRIBUTES);
+        basement.setAttributesAsJson(JSON_UTILS.serialize(BASEMENT_ATTRIBUTES));
+        ResourceEntity drive = new ResourceEntity(TEST_ZONE_1, DRIVE_ID + getRandomNumber());
+        drive.setAttributes(DRIVE_ATTRIBUTES);
+        drive.setAttributesAsJson(JSON_UTILS.serialize(DRIVE_ATTRIBUTES));
+        drive.setParents(Collections.singleton(new Parent(basement.getResourceIdentifier())));
+        this.resourceRepository.save(Arrays.asList(basement, drive));
+
+        List<String> resourceIdentifiers = Arrays.asList(basement.getResourceIdentifier(),
+                drive.getResourceIdentifier(), "/unknown");
+        List<ResourceEntity> persistedResources = this.resourceRepository
+                .findByZoneAndResourceIdentifierIn(TEST_ZONE_1, resourceIdentifiers);
+        assertThat(persistedResources, hasSize(2));
+        assertThat(this.resourceRepository.getResourceWithInheritedAttributes(TEST_ZONE_1,
+                drive.getResourceIdentifier()).getAttributes(), hasItems(SITE_BASEMENT, TYPE_MONSTER_OF_THE_WEEK));
+        this.resourceRepository.delete(Arrays.asList(drive, basement));
+    }
+
+    @Test
+    public void testParsedAttributesFollowAttributeChanges() {
+        ResourceEntity resource = persistResourceToZoneAndAssert(TEST_ZONE_1, DRIVE_ID + getRandomNumber(),
+                DRIVE_ATTRIBUTES);
+        String resourceIdentifier = resource.getResourceIdentifier();
+
+        ResourceEntity firstRead = this.resourceRepository.getByZoneAndResourceIdentifier(TEST_ZONE_1,
+                resourceIdentifier);
+        firstRead.getAttributes().add(SITE_BASEMENT);
+        ResourceEntity secondRead = this.resourceRepository.getByZoneAndResourceIdentifier(TEST_ZONE_1,
+                resourceIdentifier);
+        assertThat(secondRead.getAttributes(), equalTo(DRIVE_ATTRIBUTES));
+
+        resource.setAttributes(BASEMENT_ATTRIBUTES);
+        resource.setAttributesAsJson(JSON_UTILS.serialize(BASEMENT_ATTRIBUTES));
+        this.resourceRepository.save(resource);
+        assertThat(this.resourceRepository.getByZoneAndResourceIdentifier(TEST_ZONE_1, resourceIdentifier)
+                .getAttributes(), equalTo(BASEMENT_ATTRIBUTES));
+        assertThat(this.resourceRepository.getResourceWithInheritedAttributes(TEST_ZONE_1, resourceIdentifier)
+                .getAttributes(), equalTo(BASEMENT_ATTRIBUTES));
+        this.resourceRepository.delete(resource);
+    }
+
+    @Test
+    public void testFindPageByZoneAndStream() {
+        ZoneEntity pagedZone = new ZoneEntity(3L, "testzone3");
+        List<ResourceEntity> resources = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            resources.add(persistResourceToZoneAndAssert(pagedZone, DRIVE_ID + i, DRIVE_ATTRIBUTES));
+        }
+        try {
+            List<Long> pagedIds = new ArrayList<>();
+            List<ResourceEntity> page;
+            long afterId = 0;
+            do {
+                page = this.resourceRepository.findPageByZone(pagedZone, afterId, new PageRequest(0, 2));
+                assertThat(page.size() <= 2, equalTo(true));
+                for (ResourceEntity resource : page) {
+                    assertThat(resource.getId() > afterId, equalTo(true));
+                    afterId = resource.getId();
+                    pagedIds.add(afterId);
+                }
+            } while (page.size() == 2);
+
+            List<Long> resourceIds = resources.stream().map(ResourceEntity::getId).sorted()
+                    .collect(Collectors.toList());
+            assertThat(pagedIds, equalTo(resourceIds));
+            try (Stream<ResourceEntity> stream = this.resourceRepository.stream(pagedZone)) {
+                assertThat(stream.map(ResourceEntity::getId).sorted().collect(Collectors.toList()),
+                        equalTo(resourceIds));
+            }
+        } finally {
+            this.resourceRepository.delete(resources);
+        }
+    }
+
     @Test(expectedExceptions = SchemaViolationException.class)
     public void testPreventEntityParentSelfReference() {
         ResourceEntity resource = new ResourceEntity(TEST_ZONE_1, BASEMENT_SITE_ID);
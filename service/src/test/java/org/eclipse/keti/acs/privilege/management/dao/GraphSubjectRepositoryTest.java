@@ -18,6 +18,7 @@
 
 package org.eclipse.keti.acs.privilege.management.dao;
 
+import static org.eclipse.keti.acs.privilege.management.dao.GraphGenericRepository.INHERITED_ATTRIBUTES_PROPERTY_KEY;
 import static org.eclipse.keti.acs.privilege.management.dao.GraphGenericRepository.PARENT_EDGE_LABEL;
 import static org.eclipse.keti.acs.privilege.management.dao.GraphSubjectRepository.SUBJECT_ID_KEY;
 import static org.eclipse.keti.acs.testutils.XFiles.AGENT_MULDER;
@@ -31,6 +32,7 @@ import static org.eclipse.keti.acs.testutils.XFiles.SECRET_GROUP;
 import static org.eclipse.keti.acs.testutils.XFiles.SECRET_GROUP_ATTRIBUTES;
 import static org.eclipse.keti.acs.testutils.XFiles.SITE_BASEMENT;
 import static org.eclipse.keti.acs.testutils.XFiles.SITE_PENTAGON;
+import static org.eclipse.keti.acs.testutils.XFiles.SITE_QUANTICO;
 import static org.eclipse.keti.acs.testutils.XFiles.SPECIAL_AGENTS_GROUP;
 import static org.eclipse.keti.acs.testutils.XFiles.SPECIAL_AGENTS_GROUP_ATTRIBUTES;
 import static org.eclipse.keti.acs.testutils.XFiles.TOP_SECRET_CLASSIFICATION;
@@ -48,12 +50,15 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -73,6 +78,7 @@ public class GraphSubjectRepositoryTest {
     private static final int CONCURRENT_TEST_INVOCATIONS = 20;
 
     private GraphSubjectRepository subjectRepository;
+    private GraphSubjectRepository materializingSubjectRepository;
     private GraphTraversalSource graphTraversalSource;
     private Random randomGenerator = new Random();
 
@@ -83,6 +89,9 @@ public class GraphSubjectRepositoryTest {
         GraphConfig.createSchemaElements(graph);
         this.graphTraversalSource = graph.traversal();
         this.subjectRepository.setGraphTraversal(this.graphTraversalSource);
+        this.materializingSubjectRepository = new GraphSubjectRepository();
+        this.materializingSubjectRepository.setGraphTraversal(this.graphTraversalSource);
+        this.materializingSubjectRepository.setInheritedAttributesMaterialized(true);
     }
 
     @Test(threadPoolSize = CONCURRENT_TEST_THREAD_COUNT,
@@ -258,6 +267,129 @@ public class GraphSubjectRepositoryTest {
         GraphResourceRepositoryTest.deleteTwoLevelEntityAndParents(agentMulder, TEST_ZONE_1, this.subjectRepository);
     }
 
+    @Test
+    public void testScopedAndUnscopedInheritanceAreFollowedSeparately() {
+        SubjectEntity fbi = persistSubjectToZoneAndAssert(TEST_ZONE_1, FBI + getRandomNumber(), FBI_ATTRIBUTES);
+        SubjectEntity topSecretGroup = persistSubjectWithParentsToZoneAndAssert(TEST_ZONE_1,
+                TOP_SECRET_GROUP + getRandomNumber(), TOP_SECRET_GROUP_ATTRIBUTES,
+                Collections.singleton(new Parent(fbi.getSubjectIdentifier())));
+        SubjectEntity specialAgentsGroup = persistSubjectWithParentsToZoneAndAssert(TEST_ZONE_1,
+                SPECIAL_AGENTS_GROUP + getRandomNumber(), SPECIAL_AGENTS_GROUP_ATTRIBUTES, Collections.singleton(
+                        new Parent(topSecretGroup.getSubjectIdentifier(), Collections.singleton(SITE_PENTAGON))));
+        SubjectEntity agentMulder = persistSubjectWithParentsToZoneAndAssert(TEST_ZONE_1,
+                AGENT_MULDER + getRandomNumber(), MULDERS_ATTRIBUTES, new HashSet<>(Arrays.asList(
+                        new Parent(topSecretGroup.getSubjectIdentifier(), Collections.singleton(SITE_BASEMENT)),
+                        new Parent(specialAgentsGroup.getSubjectIdentifier()))));
+
+        // Ancestors are inherited through either unscoped relationships only or scoped relationships only, so the
+        // FBI is not inherited through the scoped relationship to the top secret group, and the top secret group is
+        // not inherited through the unscoped relationship to the special agents group.
+        Set<Attribute> expectedAttributes = new HashSet<>(MULDERS_ATTRIBUTES);
+        expectedAttributes.addAll(SPECIAL_AGENTS_GROUP_ATTRIBUTES);
+        expectedAttributes.addAll(TOP_SECRET_GROUP_ATTRIBUTES);
+        assertThat(this.subjectRepository.getSubjectWithInheritedAttributesForScopes(TEST_ZONE_1,
+                agentMulder.getSubjectIdentifier(), new HashSet<>(Arrays.asList(SITE_BASEMENT, SITE_PENTAGON)))
+                .getAttributes(), equalTo(expectedAttributes));
+        this.subjectRepository.delete(Arrays.asList(agentMulder, specialAgentsGroup, topSecretGroup, fbi));
+    }
+
+    @Test
+    public void testMaterializedInheritedAttributesMatchTraversal() {
+        SubjectEntity secretGroup = persistRandomSecretGroupAndAssert();
+        SubjectEntity topSecretGroup = persistRandomTopSecretGroupAndAssert();
+        SubjectEntity fbi = persistSubjectToZoneAndAssert(TEST_ZONE_1, FBI + getRandomNumber(), FBI_ATTRIBUTES);
+        SubjectEntity agentMulder = persistSubjectWithParentsToZoneAndAssert(TEST_ZONE_1,
+                AGENT_MULDER + getRandomNumber(), MULDERS_ATTRIBUTES, new HashSet<>(Arrays.asList(
+                        new Parent(topSecretGroup.getSubjectIdentifier(), Collections.singleton(SITE_BASEMENT)),
+                        new Parent(secretGroup.getSubjectIdentifier(), Collections.singleton(SITE_PENTAGON)),
+                        new Parent(fbi.getSubjectIdentifier()))));
+
+        this.materializingSubjectRepository.materializeAllInheritedAttributes();
+
+        assertThat(this.graphTraversalSource.V(agentMulder.getId()).has(INHERITED_ATTRIBUTES_PROPERTY_KEY).hasNext(),
+                equalTo(true));
+        for (Set<Attribute> scopes : Arrays.asList(Collections.<Attribute>emptySet(),
+                Collections.singleton(SITE_BASEMENT), Collections.singleton(SITE_PENTAGON),
+                new HashSet<>(Arrays.asList(SITE_BASEMENT, SITE_PENTAGON)))) {
+            String subjectIdentifier = agentMulder.getSubjectIdentifier();
+            assertThat(this.materializingSubjectRepository
+                    .getSubjectWithInheritedAttributesForScopes(TEST_ZONE_1, subjectIdentifier, scopes),
+                    equalTo(this.subjectRepository
+                            .getSubjectWithInheritedAttributesForScopes(TEST_ZONE_1, subjectIdentifier, scopes)));
+        }
+        this.subjectRepository.delete(Arrays.asList(agentMulder, fbi, secretGroup, topSecretGroup));
+    }
+
+    @Test
+    public void testMaterializedInheritedAttributesFollowAncestorChanges() {
+        this.materializingSubjectRepository.materializeAllInheritedAttributes();
+        SubjectEntity fbi = new SubjectEntity(TEST_ZONE_1, FBI + getRandomNumber());
+        fbi.setAttributes(FBI_ATTRIBUTES);
+        fbi.setAttributesAsJson(JSON_UTILS.serialize(FBI_ATTRIBUTES));
+        this.materializingSubjectRepository.save(fbi);
+        SubjectEntity specialAgentsGroup = new SubjectEntity(TEST_ZONE_1, SPECIAL_AGENTS_GROUP + getRandomNumber());
+        specialAgentsGroup.setAttributes(SPECIAL_AGENTS_GROUP_ATTRIBUTES);
+        specialAgentsGroup.setAttributesAsJson(JSON_UTILS.serialize(SPECIAL_AGENTS_GROUP_ATTRIBUTES));
+        specialAgentsGroup.setParents(Collections.singleton(new Parent(fbi.getSubjectIdentifier())));
+        this.materializingSubjectRepository.save(specialAgentsGroup);
+        SubjectEntity agentMulder = new SubjectEntity(TEST_ZONE_1, AGENT_MULDER + getRandomNumber());
+        agentMulder.setAttributes(MULDERS_ATTRIBUTES);
+        agentMulder.setAttributesAsJson(JSON_UTILS.serialize(MULDERS_ATTRIBUTES));
+        agentMulder.setParents(Collections.singleton(new Parent(specialAgentsGroup.getSubjectIdentifier())));
+        this.materializingSubjectRepository.save(agentMulder);
+
+        Set<Attribute> expectedAttributes = new HashSet<>(MULDERS_ATTRIBUTES);
+        expectedAttributes.addAll(SPECIAL_AGENTS_GROUP_ATTRIBUTES);
+        expectedAttributes.addAll(FBI_ATTRIBUTES);
+        assertThat(getMaterializedInheritedAttributes(agentMulder), equalTo(expectedAttributes));
+
+        fbi.setAttributes(Collections.singleton(SITE_QUANTICO));
+        fbi.setAttributesAsJson(JSON_UTILS.serialize(fbi.getAttributes()));
+        this.materializingSubjectRepository.save(fbi);
+        expectedAttributes = new HashSet<>(MULDERS_ATTRIBUTES);
+        expectedAttributes.addAll(SPECIAL_AGENTS_GROUP_ATTRIBUTES);
+        expectedAttributes.add(SITE_QUANTICO);
+        assertThat(getMaterializedInheritedAttributes(agentMulder), equalTo(expectedAttributes));
+
+        this.materializingSubjectRepository.delete(specialAgentsGroup);
+        assertThat(getMaterializedInheritedAttributes(agentMulder), equalTo(MULDERS_ATTRIBUTES));
+        this.materializingSubjectRepository.delete(Arrays.asList(agentMulder, fbi));
+    }
+
+    @Test
+    public void testRebuildOfMaterializedInheritedAttributesReleasesItsThread() throws Exception {
+        SubjectEntity fbi = persistSubjectToZoneAndAssert(TEST_ZONE_1, FBI + getRandomNumber(), FBI_ATTRIBUTES);
+        SubjectEntity agentMulder = persistSubjectWithParentsToZoneAndAssert(TEST_ZONE_1,
+                AGENT_MULDER + getRandomNumber(), MULDERS_ATTRIBUTES,
+                Collections.singleton(new Parent(fbi.getSubjectIdentifier())));
+        GraphSubjectRepository rebuildingSubjectRepository = new GraphSubjectRepository();
+        rebuildingSubjectRepository.setGraphTraversal(this.graphTraversalSource);
+        rebuildingSubjectRepository.setInheritedAttributesMaterialized(true);
+
+        rebuildingSubjectRepository.rebuildMaterializedInheritedAttributes();
+
+        ExecutorService rebuildExecutor = (ExecutorService) ReflectionTestUtils
+                .getField(rebuildingSubjectRepository, "rebuildExecutor");
+        assertThat(rebuildExecutor.awaitTermination(30, TimeUnit.SECONDS), equalTo(true));
+        assertThat(ReflectionTestUtils.getField(rebuildingSubjectRepository, "materializedInheritedAttributesReady"),
+                equalTo(true));
+        Set<Attribute> expectedAttributes = new HashSet<>(MULDERS_ATTRIBUTES);
+        expectedAttributes.addAll(FBI_ATTRIBUTES);
+        assertThat(getMaterializedInheritedAttributes(agentMulder), equalTo(expectedAttributes));
+        this.subjectRepository.delete(Arrays.asList(agentMulder, fbi));
+    }
+
+    private Set<Attribute> getMaterializedInheritedAttributes(final SubjectEntity subject) {
+        Vertex vertex = this.graphTraversalSource.V(subject.getId()).next();
+        InheritedAttributes inheritedAttributes = JSON_UTILS
+                .deserialize((String) vertex.value(INHERITED_ATTRIBUTES_PROPERTY_KEY), InheritedAttributes.class);
+        this.graphTraversalSource.tx().commit();
+        assertThat(this.materializingSubjectRepository
+                .getSubjectWithInheritedAttributes(TEST_ZONE_1, subject.getSubjectIdentifier()).getAttributes(),
+                equalTo(inheritedAttributes.getAttributes()));
+        return inheritedAttributes.getAttributes();
+    }
+
     private SubjectEntity persistRandomSubjectToZone1AndAssert() {
         return persistSubjectToZoneAndAssert(TEST_ZONE_1, AGENT_SCULLY + getRandomNumber(), Collections.emptySet());
     }
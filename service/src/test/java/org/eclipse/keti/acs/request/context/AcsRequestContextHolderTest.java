@@ -33,13 +33,14 @@ import org.eclipse.keti.acs.request.context.AcsRequestContext.ACSRequestContextA
 import org.eclipse.keti.acs.rest.Zone;
 import org.eclipse.keti.acs.testutils.TestActiveProfilesResolver;
 import org.eclipse.keti.acs.testutils.TestUtils;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
 import org.eclipse.keti.acs.zone.management.ZoneService;
 import org.eclipse.keti.acs.zone.management.ZoneServiceImpl;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 
 @ContextConfiguration(
-        classes = { InMemoryDataSourceConfig.class, ZoneServiceImpl.class, AcsRequestContextHolder.class,
-                GraphConfig.class })
+        classes = { InMemoryDataSourceConfig.class, ZoneServiceImpl.class, ZoneRegistry.class,
+                AcsRequestContextHolder.class, GraphConfig.class })
 @ActiveProfiles(resolver = TestActiveProfilesResolver.class)
 @Test
 public class AcsRequestContextHolderTest extends AbstractTestNGSpringContextTests {
@@ -72,6 +73,19 @@ public class AcsRequestContextHolderTest extends AbstractTestNGSpringContextTest
         Assert.assertEquals(zoneEntity.getSubdomain(), ZONE_NAME + ZONE_SUBDOMAIN_SUFFIX);
     }
 
+    @Test
+    public void testCallInZone() {
+        AcsRequestContext acsRequestContext = AcsRequestContextHolder.getAcsRequestContext();
+        ZoneEntity otherZone = new ZoneEntity(0L, "AcsRequestContextHolderTest.other.zone");
+
+        ZoneEntity zoneEntity = AcsRequestContextHolder.callInZone(otherZone,
+                () -> (ZoneEntity) AcsRequestContextHolder.getAcsRequestContext()
+                        .get(ACSRequestContextAttribute.ZONE_ENTITY));
+
+        Assert.assertSame(zoneEntity, otherZone);
+        Assert.assertSame(AcsRequestContextHolder.getAcsRequestContext(), acsRequestContext);
+    }
+
     @Test
     public void testClearAcsRequestContext() {
         AcsRequestContextHolder.clear();
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.commons.policy.condition.ConditionExpression;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionParsingException;
+import org.eclipse.keti.acs.commons.policy.condition.ConditionScript;
+import org.eclipse.keti.acs.model.PolicySet;
+
+@Test
+public class CompiledConditionsTest {
+
+    public void testConditionIsCompiledOnceAndReused() throws ConditionParsingException {
+        CompiledConditions conditions = new CompiledConditions();
+
+        ConditionScript script = conditions.get("1 + 1 == 2");
+        Assert.assertSame(conditions.get("1 + 1 == 2"), script);
+        Assert.assertNotSame(conditions.get("1 + 1 == 3"), script);
+        Assert.assertEquals(conditions.size(), 2);
+
+        Assert.assertTrue(script.execute(Collections.emptyMap()));
+        Assert.assertTrue(script.execute(Collections.emptyMap()));
+    }
+
+    public void testCompiledConditionsKeepWorkingAfterRelease() throws ConditionParsingException {
+        CompiledConditions conditions = new CompiledConditions();
+        ConditionScript script = conditions.get("1 + 1 == 2");
+
+        conditions.release();
+
+        Assert.assertTrue(script.execute(Collections.emptyMap()));
+        Assert.assertFalse(conditions.get("1 + 1 == 3").execute(Collections.emptyMap()));
+    }
+
+    public void testSupportedConditionsAreCompiledToJavaUpFront() throws ConditionParsingException {
+        CompiledConditions conditions = new CompiledConditions(Arrays.asList("'a' == 'a'", "1 + 1 == 2"));
+        Assert.assertEquals(conditions.size(), 1);
+
+        Assert.assertTrue(conditions.get("'a' == 'a'") instanceof ConditionExpression);
+        Assert.assertFalse(conditions.get("1 + 1 == 2") instanceof ConditionExpression);
+    }
+
+    @Test(expectedExceptions = ConditionParsingException.class)
+    public void testInvalidConditionIsRejected() throws ConditionParsingException {
+        new CompiledConditions().get("System.exit(0)");
+    }
+
+    public void testEachPolicySetVersionHasItsOwnConditions() {
+        CompiledPolicySet policySet = new CompiledPolicySet(new PolicySet());
+        Assert.assertNotSame(new CompiledPolicySet(policySet.getPolicySet()).getConditions(),
+                policySet.getConditions());
+    }
+}
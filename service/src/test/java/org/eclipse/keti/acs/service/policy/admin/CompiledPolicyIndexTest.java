@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.commons.web.UriTemplateUtils;
+import org.eclipse.keti.acs.model.Policy;
+import org.eclipse.keti.acs.model.ResourceType;
+import org.eclipse.keti.acs.model.Target;
+
+@Test
+public class CompiledPolicyIndexTest {
+
+    public void testCandidatesArePrunedByActionAndResourceUriPrefix() {
+        CompiledPolicyIndex index = createIndex(createPolicy("sites", "GET", "/sites/{site_id}"),
+                createPolicy("sanramon", "GET, PUT", "/sites/sanramon"),
+                createPolicy("assets", "GET", "/assets/{asset_id}"),
+                createPolicy("delete-anything", "DELETE", "/{anything}"));
+
+        Assert.assertEquals(candidates(index, "GET", "/sites/sanramon"), Arrays.asList("sites", "sanramon"));
+        Assert.assertEquals(candidates(index, "PUT", "/sites/sanramon"), Arrays.asList("sanramon"));
+        Assert.assertEquals(candidates(index, "GET", "/assets/pump"), Arrays.asList("assets"));
+        Assert.assertEquals(candidates(index, "DELETE", "/assets/pump"),
+                Arrays.asList("delete-anything"));
+        Assert.assertEquals(candidates(index, "POST", "/sites/sanramon"), Arrays.asList());
+    }
+
+    public void testCandidatesKeepPolicyOrder() {
+        CompiledPolicyIndex index = createIndex(createPolicy("deep", "GET", "/a/b/c"),
+                createPolicy("any-action", null, "/a/b/c"), createPolicy("no-target", null, null),
+                createPolicy("shallow", "GET", "/a/{x}"), createPolicy("root", "GET, POST", "/{x}"));
+
+        Assert.assertEquals(candidates(index, "GET", "/a/b/c"),
+                Arrays.asList("deep", "any-action", "no-target", "shallow", "root"));
+    }
+
+    public void testPoliciesWithoutResourceTemplateAreAlwaysCandidates() {
+        Policy noResource = createPolicy("no-resource", "GET", null);
+        noResource.getTarget().setResource(null);
+        CompiledPolicyIndex index = createIndex(createPolicy("no-target", null, null), noResource,
+                createPolicy("relative", "GET", "sites/{site_id}"));
+
+        Assert.assertEquals(candidates(index, "GET", "/sites/sanramon"),
+                Arrays.asList("no-target", "no-resource", "relative"));
+        Assert.assertEquals(candidates(index, null, "/sites/sanramon"), Arrays.asList("no-target"));
+    }
+
+    public void testRequestUriIsCanonicalizedBeforeLookup() {
+        CompiledPolicyIndex index = createIndex(createPolicy("sanramon", "GET", "/sites/sanramon/"));
+
+        Assert.assertEquals(candidates(index, "GET", "/sites/../sites/./sanramon"),
+                Arrays.asList("sanramon"));
+        Assert.assertEquals(candidates(index, "GET", "/sites/sanramon"), Arrays.asList("sanramon"));
+    }
+
+    /**
+     * Compares the candidates of the index with a linear scan over randomly generated policies and requests: the
+     * candidates must contain every policy whose action and resource URI template match, in policy order.
+     */
+    public void testCandidatesMatchLinearScan() {
+        Random random = new Random(1234);
+        String[] actions = { "GET", "PUT", "POST", "DELETE", null };
+        String[] segments = { "sites", "assets", "{id}", "sanramon", "pump", "{attribute_uri:.*}" };
+        List<Policy> policies = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String action = actions[random.nextInt(actions.length)];
+            if (null != action && random.nextBoolean()) {
+                action += ", " + actions[random.nextInt(actions.length - 1)];
+            }
+            policies.add(createPolicy("policy-" + i, action, randomPath(random, segments)));
+        }
+        List<CompiledPolicy> compiledPolicies = CompiledPolicySet.compile(policies);
+        CompiledPolicyIndex index = new CompiledPolicyIndex(compiledPolicies);
+
+        String[] requestSegments = { "sites", "assets", "sanramon", "pump", "42" };
+        for (int i = 0; i < 500; i++) {
+            String action = actions[random.nextInt(actions.length)];
+            String resourceUri = randomPath(random, requestSegments);
+            List<CompiledPolicy> candidates = index.getCandidates(action, UriTemplateUtils.canonicalize(resourceUri));
+
+            List<CompiledPolicy> expected = compiledPolicies.stream()
+                    .filter(p -> p.isActionMatch(action) && p.isResourceUriMatch(resourceUri))
+                    .collect(Collectors.toList());
+            List<CompiledPolicy> actual = candidates.stream().filter(p -> p.isResourceUriMatch(resourceUri))
+                    .collect(Collectors.toList());
+            Assert.assertEquals(actual, expected, action + " " + resourceUri);
+            Assert.assertTrue(candidates.stream().allMatch(p -> p.isActionMatch(action)));
+        }
+    }
+
+    @Test
+    public void testMalformedAttributeUriTemplateOnlyFailsWhenUsed() {
+        Policy policy = createPolicy("malformed", "GET", "/sites/{site_id}");
+        policy.getTarget().getResource().setAttributeUriTemplate("/sites/{site_id:[}");
+        CompiledPolicyIndex index = createIndex(policy, createPolicy("other", "GET", "/sites/{site_id}"));
+
+        Assert.assertEquals(candidates(index, "GET", "/sites/sanramon"), Arrays.asList("malformed", "other"));
+        CompiledPolicy compiledPolicy = CompiledPolicySet.compile(Arrays.asList(policy)).get(0);
+        try {
+            compiledPolicy.getAttributeUriTemplate();
+            Assert.fail("Expected the malformed attribute URI template to be rejected.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    private static String randomPath(final Random random, final String[] segments) {
+        StringBuilder path = new StringBuilder();
+        int length = 1 + random.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            path.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+        return path.toString();
+    }
+
+    private static CompiledPolicyIndex createIndex(final Policy... policies) {
+        return new CompiledPolicyIndex(CompiledPolicySet.compile(Arrays.asList(policies)));
+    }
+
+    private static Policy createPolicy(final String name, final String action, final String uriTemplate) {
+        Policy policy = new Policy();
+        policy.setName(name);
+        if (null != action || null != uriTemplate) {
+            ResourceType resource = new ResourceType();
+            resource.setUriTemplate(uriTemplate);
+            policy.setTarget(new Target(name, null, action, resource));
+        }
+        return policy;
+    }
+
+    private static List<String> candidates(final CompiledPolicyIndex index, final String action,
+            final String resourceUri) {
+        return index.getCandidates(action, UriTemplateUtils.canonicalize(resourceUri)).stream()
+                .map(p -> p.getPolicy().getName()).collect(Collectors.toList());
+    }
+}
@@ -37,11 +37,15 @@ import org.eclipse.keti.acs.policy.evaluation.cache.InMemoryPolicyEvaluationCach
 import org.eclipse.keti.acs.privilege.management.PrivilegeManagementServiceImpl;
 import org.eclipse.keti.acs.privilege.management.dao.ResourceRepositoryProxy;
 import org.eclipse.keti.acs.privilege.management.dao.SubjectRepositoryProxy;
+import org.eclipse.keti.acs.rest.Zone;
 import org.eclipse.keti.acs.service.InvalidACSRequestException;
 import org.eclipse.keti.acs.service.policy.validation.PolicySetValidator;
 import org.eclipse.keti.acs.service.policy.validation.PolicySetValidatorImpl;
 import org.eclipse.keti.acs.testutils.TestActiveProfilesResolver;
 import org.eclipse.keti.acs.utils.JsonUtils;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
+import org.eclipse.keti.acs.zone.management.ZoneService;
+import org.eclipse.keti.acs.zone.management.ZoneServiceImpl;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
 import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
 import org.eclipse.keti.acs.zone.resolver.SpringSecurityZoneResolver;
@@ -71,7 +75,8 @@ import org.testng.annotations.Test;
                 PolicySetValidatorImpl.class, GroovyConditionShell.class, SpringSecurityZoneResolver.class,
                 NonCachingGroovyConditionCache.class, AttributeConnectorServiceImpl.class, AttributeReaderFactory.class,
                 PrivilegeServiceResourceAttributeReader.class, PrivilegeServiceSubjectAttributeReader.class,
-                PrivilegeManagementServiceImpl.class, SubjectRepositoryProxy.class, ResourceRepositoryProxy.class })
+                PrivilegeManagementServiceImpl.class, SubjectRepositoryProxy.class, ResourceRepositoryProxy.class,
+                PolicySetSnapshotCache.class, ZoneRegistry.class, ZoneServiceImpl.class })
 public class PolicyManagementServiceTest extends AbstractTransactionalTestNGSpringContextTests {
 
     private static final String SUBDOMAIN1 = "tenant1";
@@ -89,6 +94,9 @@ public class PolicyManagementServiceTest extends AbstractTransactionalTestNGSpri
     @Autowired
     private ZoneRepository zoneRepository;
 
+    @Autowired
+    private ZoneService zoneService;
+
     @Mock
     private final ZoneResolver mockZoneResolver = mock(ZoneResolver.class);
 
@@ -260,6 +268,48 @@ public class PolicyManagementServiceTest extends AbstractTransactionalTestNGSpri
         Assert.assertEquals(this.policyService.getAllPolicySets().size(), 0);
     }
 
+    public void testCompiledPolicySetsReflectUpsertAndDelete() {
+        Assert.assertEquals(this.policyService.getAllCompiledPolicySets().size(), 0);
+
+        PolicySet policySet = this.jsonUtils.deserializeFromFile("set-with-1-policy.json", PolicySet.class);
+        this.policyService.upsertPolicySet(policySet);
+        List<CompiledPolicySet> compiledPolicySets = this.policyService.getAllCompiledPolicySets();
+        Assert.assertEquals(compiledPolicySets.size(), 1);
+        CompiledPolicySet compiledPolicySet = compiledPolicySets.get(0);
+        Assert.assertEquals(compiledPolicySet.getName(), policySet.getName());
+        Assert.assertEquals(compiledPolicySet.getPolicies().size(), 1);
+        Assert.assertEquals(compiledPolicySet.getPolicies().get(0).getResourceUriTemplate(),
+                "/secured-by-value/sites/sanramon");
+
+        // Without intervening writes the same compiled policy set is served.
+        Assert.assertSame(this.policyService.getAllCompiledPolicySets().get(0), compiledPolicySet);
+
+        policySet.getPolicies().get(0).setEffect(Effect.DENY);
+        this.policyService.upsertPolicySet(policySet);
+        CompiledPolicySet updatedPolicySet = this.policyService.getAllCompiledPolicySets().get(0);
+        Assert.assertNotSame(updatedPolicySet, compiledPolicySet);
+        Assert.assertTrue(updatedPolicySet.getVersion() > compiledPolicySet.getVersion());
+        Assert.assertEquals(updatedPolicySet.getPolicies().get(0).getPolicy().getEffect(), Effect.DENY);
+
+        this.policyService.deletePolicySet(policySet.getName());
+        Assert.assertEquals(this.policyService.getAllCompiledPolicySets().size(), 0);
+    }
+
+    public void testRecreatedZoneDoesNotInheritTheDeletedZonesPolicySets() {
+        this.zoneService.upsertZone(new Zone("recreated-zone", "recreated-zone", "description for recreated-zone"));
+        Mockito.when(this.mockZoneResolver.getZoneEntityOrFail())
+                .thenReturn(this.zoneRepository.getByName("recreated-zone"));
+        this.policyService
+                .upsertPolicySet(this.jsonUtils.deserializeFromFile("set-with-1-policy.json", PolicySet.class));
+        Assert.assertEquals(this.policyService.getAllCompiledPolicySets().size(), 1);
+
+        this.zoneService.deleteZone("recreated-zone");
+        this.zoneService.upsertZone(new Zone("recreated-zone", "recreated-zone", "description for recreated-zone"));
+        Mockito.when(this.mockZoneResolver.getZoneEntityOrFail())
+                .thenReturn(this.zoneRepository.getByName("recreated-zone"));
+        Assert.assertEquals(this.policyService.getAllCompiledPolicySets().size(), 0);
+    }
+
     // TODO Enable this test once the service is updated to use real zones
     @Test(enabled = false)
     public void testGetAllPolicySetAndReturnEmptyList() {
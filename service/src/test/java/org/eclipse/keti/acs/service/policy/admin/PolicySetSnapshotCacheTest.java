@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.admin;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.policy.evaluation.cache.PolicyEvaluationCache;
+import org.eclipse.keti.acs.service.policy.admin.dao.PolicySetRepository;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
+
+public class PolicySetSnapshotCacheTest {
+    private static final ZoneEntity SLOW_ZONE = new ZoneEntity(1L, "slowzone");
+    private static final ZoneEntity OTHER_ZONE = new ZoneEntity(2L, "otherzone");
+
+    @InjectMocks
+    private PolicySetSnapshotCache snapshotCache;
+    @Mock
+    private PolicySetRepository policySetRepository;
+    @Mock
+    private ZoneRepository zoneRepository;
+    @Mock
+    private PolicyEvaluationCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        this.snapshotCache = new PolicySetSnapshotCache();
+        MockitoAnnotations.initMocks(this);
+        when(this.policySetRepository.findByZone(OTHER_ZONE)).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testSlowRefreshBlocksNeitherItsZoneNorOtherZones() throws Exception {
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch refreshReleased = new CountDownLatch(1);
+        when(this.policySetRepository.findByZone(SLOW_ZONE)).thenReturn(Collections.emptyList())
+                .thenAnswer(invocation -> {
+                    refreshStarted.countDown();
+                    Assert.assertTrue(refreshReleased.await(5, TimeUnit.SECONDS));
+                    return Collections.emptyList();
+                }).thenReturn(Collections.emptyList());
+        PolicySetSnapshot staleSnapshot = this.snapshotCache.get(SLOW_ZONE);
+        this.snapshotCache.setRefreshSeconds(30);
+        ReflectionTestUtils.setField(staleSnapshot, "createdMillis", 0L);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PolicySetSnapshot> refresh = executor.submit(() -> this.snapshotCache.get(SLOW_ZONE));
+            Assert.assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+            // While the zone is refreshed, its other requests use the stale snapshot, other zones are loaded and
+            // invalidated as usual, and so is the zone being refreshed.
+            Assert.assertSame(this.snapshotCache.get(SLOW_ZONE), staleSnapshot);
+            Assert.assertNotNull(this.snapshotCache.get(OTHER_ZONE));
+            this.snapshotCache.invalidate(OTHER_ZONE.getName());
+            this.snapshotCache.invalidate(SLOW_ZONE.getName());
+            refreshReleased.countDown();
+
+            PolicySetSnapshot refreshedSnapshot = refresh.get(5, TimeUnit.SECONDS);
+            Assert.assertNotSame(refreshedSnapshot, staleSnapshot);
+            // The refresh read the zone before it was invalidated, so its snapshot is not kept.
+            PolicySetSnapshot reloadedSnapshot = this.snapshotCache.get(SLOW_ZONE);
+            Assert.assertNotSame(reloadedSnapshot, refreshedSnapshot);
+            Assert.assertSame(this.snapshotCache.get(SLOW_ZONE), reloadedSnapshot);
+            verify(this.policySetRepository, times(3)).findByZone(SLOW_ZONE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
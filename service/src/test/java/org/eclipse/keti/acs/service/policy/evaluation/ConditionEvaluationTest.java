@@ -25,14 +25,11 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
-import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionCache;
 import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Condition;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
-import org.springframework.test.util.ReflectionTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -56,13 +53,9 @@ public class ConditionEvaluationTest extends AbstractTestNGSpringContextTests {
 
     private PolicyEvaluationServiceImpl evaluationService;
 
-    @Autowired
-    private GroovyConditionCache conditionCache;
-
     @BeforeMethod
     private void setupMethod() throws Exception {
         this.evaluationService = new PolicyEvaluationServiceImpl();
-        ReflectionTestUtils.setField(this.evaluationService, "conditionCache", this.conditionCache);
     }
 
     private static Set<Attribute> getAttributes(final Attribute attributeOne, final Attribute attributeTwo) {
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.service.policy.evaluation;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.model.Effect;
+import org.eclipse.keti.acs.request.context.AcsRequestContext.ACSRequestContextAttribute;
+import org.eclipse.keti.acs.request.context.AcsRequestContextHolder;
+import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
+import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.zone.management.ZoneRegistry;
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+
+public class DecisionCacheWarmerTest {
+
+    private static final String ZONE_NAME = "testzone";
+    private static final long VERIFY_TIMEOUT_MILLIS = 5000;
+
+    @InjectMocks
+    private DecisionCacheWarmer warmer;
+    @Mock
+    private PolicyEvaluationService policyEvaluationService;
+    @Mock
+    private ZoneRegistry zoneRegistry;
+
+    private final List<String> evaluatedZoneNames = new CopyOnWriteArrayList<>();
+
+    @BeforeMethod
+    public void setupMethod() {
+        this.warmer = new DecisionCacheWarmer();
+        MockitoAnnotations.initMocks(this);
+        Whitebox.setInternalState(this.warmer, "enabled", true);
+        Whitebox.setInternalState(this.warmer, "topN", 2);
+        Whitebox.setInternalState(this.warmer, "sampleRate", 1);
+        Whitebox.setInternalState(this.warmer, "concurrency", 1);
+        Whitebox.setInternalState(this.warmer, "stateFile", "");
+        this.evaluatedZoneNames.clear();
+        when(this.zoneRegistry.getByName(ZONE_NAME)).thenReturn(new ZoneEntity(0L, ZONE_NAME));
+        when(this.policyEvaluationService.evalPolicy(any(PolicyEvaluationRequestV1.class))).thenAnswer(invocation -> {
+            ZoneEntity zone = (ZoneEntity) AcsRequestContextHolder.getAcsRequestContext()
+                    .get(ACSRequestContextAttribute.ZONE_ENTITY);
+            this.evaluatedZoneNames.add(zone.getName());
+            // Evaluations done by the warmer go through the same code path as live traffic.
+            this.warmer.record(zone.getName(), (PolicyEvaluationRequestV1) invocation.getArguments()[0]);
+            return new PolicyEvaluationResult(Effect.PERMIT);
+        });
+        this.warmer.start();
+    }
+
+    @AfterMethod
+    public void cleanupMethod() {
+        this.warmer.stop();
+    }
+
+    @Test
+    public void testHotRequestsAreTheMostSampledRequestsOfTheZone() {
+        PolicyEvaluationRequestV1 coldRequest = createRequest("cold");
+        PolicyEvaluationRequestV1 warmRequest = createRequest("warm");
+        PolicyEvaluationRequestV1 hotRequest = createRequest("hot");
+        record(coldRequest, 1);
+        record(warmRequest, 2);
+        record(hotRequest, 3);
+        this.warmer.record("otherzone", coldRequest);
+
+        Assert.assertEquals(this.warmer.getHotRequests(ZONE_NAME), Arrays.asList(hotRequest, warmRequest));
+        Assert.assertEquals(this.warmer.getHotRequests("otherzone"), Arrays.asList(coldRequest));
+        Assert.assertTrue(this.warmer.getHotRequests("unknownzone").isEmpty());
+    }
+
+    @Test
+    public void testWarmUpReEvaluatesHotRequestsInTheirZone() {
+        PolicyEvaluationRequestV1 warmRequest = createRequest("warm");
+        PolicyEvaluationRequestV1 hotRequest = createRequest("hot");
+        record(warmRequest, 1);
+        record(hotRequest, 2);
+
+        this.warmer.warmUp(ZONE_NAME);
+
+        verify(this.policyEvaluationService, timeout(VERIFY_TIMEOUT_MILLIS)).evalPolicy(hotRequest);
+        verify(this.policyEvaluationService, timeout(VERIFY_TIMEOUT_MILLIS)).evalPolicy(warmRequest);
+        this.warmer.stop();
+        Assert.assertEquals(this.evaluatedZoneNames, Arrays.asList(ZONE_NAME, ZONE_NAME));
+        // The warmup itself does not make requests any hotter.
+        record(warmRequest, 2);
+        Assert.assertEquals(this.warmer.getHotRequests(ZONE_NAME), Arrays.asList(warmRequest, hotRequest));
+    }
+
+    @Test
+    public void testWarmUpOfDeletedZoneForgetsItsHotRequests() {
+        record(createRequest("hot"), 1);
+        this.warmer.record("deletedzone", createRequest("hot"));
+
+        this.warmer.warmUp("deletedzone");
+
+        verify(this.zoneRegistry, timeout(VERIFY_TIMEOUT_MILLIS)).getByName("deletedzone");
+        this.warmer.stop();
+        verify(this.policyEvaluationService, never()).evalPolicy(any(PolicyEvaluationRequestV1.class));
+        Assert.assertTrue(this.warmer.getHotRequests("deletedzone").isEmpty());
+        Assert.assertEquals(this.warmer.getHotRequests(ZONE_NAME).size(), 1);
+    }
+
+    @Test
+    public void testNothingIsRecordedOrWarmedUpWhenDisabled() {
+        this.warmer.stop();
+        this.warmer = new DecisionCacheWarmer();
+        MockitoAnnotations.initMocks(this);
+        this.warmer.start();
+        this.warmer.record(ZONE_NAME, createRequest("hot"));
+
+        this.warmer.warmUp(ZONE_NAME);
+
+        Assert.assertTrue(this.warmer.getHotRequests(ZONE_NAME).isEmpty());
+        verify(this.policyEvaluationService, never()).evalPolicy(any(PolicyEvaluationRequestV1.class));
+    }
+
+    @Test
+    public void testHotRequestsAreWarmedUpAfterRestart() throws IOException {
+        File stateFile = File.createTempFile("decision-cache-warmup", ".json");
+        stateFile.deleteOnExit();
+        Whitebox.setInternalState(this.warmer, "stateFile", stateFile.getPath());
+        PolicyEvaluationRequestV1 warmRequest = createRequest("warm");
+        PolicyEvaluationRequestV1 hotRequest = createRequest("hot");
+        record(warmRequest, 1);
+        record(hotRequest, 2);
+        this.warmer.stop();
+
+        DecisionCacheWarmer restartedWarmer = new DecisionCacheWarmer();
+        Whitebox.setInternalState(restartedWarmer, "policyEvaluationService", this.policyEvaluationService);
+        Whitebox.setInternalState(restartedWarmer, "zoneRegistry", this.zoneRegistry);
+        Whitebox.setInternalState(restartedWarmer, "enabled", true);
+        Whitebox.setInternalState(restartedWarmer, "topN", 2);
+        Whitebox.setInternalState(restartedWarmer, "concurrency", 1);
+        Whitebox.setInternalState(restartedWarmer, "stateFile", stateFile.getPath());
+        restartedWarmer.start();
+        try {
+            restartedWarmer.loadState();
+
+            Assert.assertEquals(restartedWarmer.getHotRequests(ZONE_NAME), Arrays.asList(hotRequest, warmRequest));
+            verify(this.policyEvaluationService, timeout(VERIFY_TIMEOUT_MILLIS).times(1)).evalPolicy(hotRequest);
+            verify(this.policyEvaluationService, timeout(VERIFY_TIMEOUT_MILLIS).times(1)).evalPolicy(warmRequest);
+        } finally {
+            restartedWarmer.stop();
+        }
+    }
+
+    private void record(final PolicyEvaluationRequestV1 request, final int times) {
+        for (int i = 0; i < times; i++) {
+            this.warmer.record(ZONE_NAME, request);
+        }
+    }
+
+    private static PolicyEvaluationRequestV1 createRequest(final String resource) {
+        PolicyEvaluationRequestV1 request = new PolicyEvaluationRequestV1();
+        request.setAction("GET");
+        request.setSubjectIdentifier("subject1");
+        request.setResourceIdentifier(resource);
+        return request;
+    }
+}
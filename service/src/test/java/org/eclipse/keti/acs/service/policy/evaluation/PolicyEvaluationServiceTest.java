@@ -32,11 +32,17 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.keti.acs.PolicyContextResolver;
-import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionCache;
 import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Effect;
@@ -49,6 +55,7 @@ import org.eclipse.keti.acs.rest.BaseResource;
 import org.eclipse.keti.acs.rest.BaseSubject;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.admin.PolicyManagementService;
 import org.eclipse.keti.acs.service.policy.matcher.MatchResult;
 import org.eclipse.keti.acs.service.policy.matcher.PolicyMatchCandidate;
@@ -62,7 +69,6 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -109,18 +115,16 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     private ZoneResolver zoneResolver;
     @Mock
     private PolicyEvaluationCache cache;
-    @Autowired
-    private GroovyConditionCache conditionCache;
 
     private static final Set<Attribute> EMPTY_ATTRS = Collections.emptySet();
 
     @BeforeMethod
     public void setupMethod() throws Exception {
         this.evaluationService = new PolicyEvaluationServiceImpl();
-        ReflectionTestUtils.setField(this.evaluationService, "conditionCache", this.conditionCache);
         MockitoAnnotations.initMocks(this);
         when(this.zoneResolver.getZoneEntityOrFail()).thenReturn(new ZoneEntity(0L, "testzone"));
         when(this.cache.get(any(PolicyEvaluationRequestCacheKey.class))).thenReturn(null);
+        ReflectionTestUtils.setField(this.evaluationService, "coalescingTimeoutMillis", 5000L);
     }
 
     @Test(dataProvider = "policyRequestParameterProvider",
@@ -140,9 +144,9 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     public void testEvaluateWithOnePolicySetNoPolicies() {
         List<PolicySet> policySets = new ArrayList<>();
         policySets.add(new PolicySet());
-        when(this.policyService.getAllPolicySets()).thenReturn(policySets);
+        when(this.policyService.getAllCompiledPolicySets()).thenReturn(compile(policySets));
         List<MatchedPolicy> matchedPolicies = Collections.emptyList();
-        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), anyListOf(Policy.class)))
+        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), any(CompiledPolicySet.class)))
                 .thenReturn(new MatchResult(matchedPolicies, new HashSet<String>()));
         PolicyEvaluationResult evalPolicy = this.evaluationService
                 .evalPolicy(createRequest("resource1", "subject1", "GET"));
@@ -196,7 +200,7 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     public void testFilterPolicySetsByPriorityForInvalidRequest(final List<PolicySet> allPolicySets,
             final LinkedHashSet<String> policySetsPriority) {
 
-        when(this.policyService.getAllPolicySets()).thenReturn(allPolicySets);
+        when(this.policyService.getAllCompiledPolicySets()).thenReturn(compile(allPolicySets));
         this.evaluationService.filterPolicySetsByPriority("subject1", "resource1", policySetsPriority);
     }
 
@@ -204,9 +208,10 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     public void testFilterPolicySetsByPriority(final List<PolicySet> allPolicySets,
             final LinkedHashSet<String> policySetsPriority, final LinkedHashSet<PolicySet> expectedFilteredPolicySets) {
 
-        when(this.policyService.getAllPolicySets()).thenReturn(allPolicySets);
+        when(this.policyService.getAllCompiledPolicySets()).thenReturn(compile(allPolicySets));
         LinkedHashSet<PolicySet> actualFilteredPolicySets = this.evaluationService
-                .filterPolicySetsByPriority("subject1", "resource1", policySetsPriority);
+                .filterPolicySetsByPriority("subject1", "resource1", policySetsPriority).stream()
+                .map(CompiledPolicySet::getPolicySet).collect(Collectors.toCollection(LinkedHashSet::new));
 
         Assert.assertEquals(actualFilteredPolicySets, expectedFilteredPolicySets);
     }
@@ -214,14 +219,13 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     @Test(dataProvider = "multiplePolicySetsRequestDataProvider")
     public void testEvaluateWithMultiplePolicySets(final List<PolicySet> allPolicySets,
             final LinkedHashSet<String> policySetsPriority, final Effect effect) {
-        when(this.policyService.getAllPolicySets()).thenReturn(allPolicySets);
-        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), anyListOf(Policy.class)))
+        when(this.policyService.getAllCompiledPolicySets()).thenReturn(compile(allPolicySets));
+        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), any(CompiledPolicySet.class)))
                 .thenAnswer(new Answer<MatchResult>() {
                     @Override
                     public MatchResult answer(final InvocationOnMock invocation) {
                         Object[] args = invocation.getArguments();
-                        @SuppressWarnings("unchecked")
-                        List<Policy> policyList = (List<Policy>) args[1];
+                        List<Policy> policyList = ((CompiledPolicySet) args[1]).getPolicySet().getPolicies();
                         List<MatchedPolicy> matchedPolicies = new ArrayList<>();
                         // Mocking the policyMatcher to return all policies as matched.
                         policyList.forEach(
@@ -238,8 +242,8 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     @Test
     public void testPolicyEvaluationExceptionHandling() {
         List<PolicySet> twoPolicySets = createNotApplicableAndDenyPolicySets();
-        when(this.policyService.getAllPolicySets()).thenReturn(twoPolicySets);
-        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), anyListOf(Policy.class)))
+        when(this.policyService.getAllCompiledPolicySets()).thenReturn(compile(twoPolicySets));
+        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), any(CompiledPolicySet.class)))
                 .thenThrow(new RuntimeException("This policy matcher is designed to throw an exception."));
 
         PolicyEvaluationResult result = this.evaluationService.evalPolicy(
@@ -267,6 +271,92 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
         testEvaluateWithPolicy(inputPolicy, effect);
     }
 
+    @Test
+    public void testConcurrentIdenticalCacheMissesAreEvaluatedOnce() throws Exception {
+        CountDownLatch waitingRequestJoined = new CountDownLatch(1);
+        ReflectionTestUtils.setField(this.evaluationService, "inFlightEvaluations",
+                new ConcurrentHashMap<PolicyEvaluationRequestCacheKey, CompletableFuture<PolicyEvaluationResult>>() {
+                    @Override
+                    public CompletableFuture<PolicyEvaluationResult> putIfAbsent(
+                            final PolicyEvaluationRequestCacheKey key,
+                            final CompletableFuture<PolicyEvaluationResult> value) {
+                        CompletableFuture<PolicyEvaluationResult> inFlightEvaluation = super.putIfAbsent(key, value);
+                        if (null != inFlightEvaluation) {
+                            waitingRequestJoined.countDown();
+                        }
+                        return inFlightEvaluation;
+                    }
+                });
+        CountDownLatch evaluationStarted = new CountDownLatch(1);
+        when(this.policyService.getAllCompiledPolicySets()).thenAnswer(invocation -> {
+            evaluationStarted.countDown();
+            Assert.assertTrue(waitingRequestJoined.await(5, TimeUnit.SECONDS));
+            return Collections.emptyList();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<PolicyEvaluationResult> evaluatingRequest = executor
+                    .submit(() -> this.evaluationService.evalPolicy(createRequest("resource1", "subject1", "GET")));
+            Assert.assertTrue(evaluationStarted.await(5, TimeUnit.SECONDS));
+            Future<PolicyEvaluationResult> waitingRequest = executor
+                    .submit(() -> this.evaluationService.evalPolicy(createRequest("resource1", "subject1", "GET")));
+
+            PolicyEvaluationResult result = evaluatingRequest.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(result.getEffect(), Effect.NOT_APPLICABLE);
+            Assert.assertSame(waitingRequest.get(5, TimeUnit.SECONDS), result);
+            Mockito.verify(this.policyService, Mockito.times(1)).getAllCompiledPolicySets();
+            Mockito.verify(this.cache, Mockito.times(1)).set(Mockito.any(PolicyEvaluationRequestCacheKey.class),
+                    Mockito.any(PolicyEvaluationResult.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingRequestEvaluatesOnItsOwnAfterCoalescingTimeout() throws Exception {
+        ReflectionTestUtils.setField(this.evaluationService, "coalescingTimeoutMillis", 100L);
+        CountDownLatch evaluationStarted = new CountDownLatch(1);
+        CountDownLatch waitingRequestEvaluated = new CountDownLatch(1);
+        when(this.policyService.getAllCompiledPolicySets()).thenAnswer(invocation -> {
+            evaluationStarted.countDown();
+            Assert.assertTrue(waitingRequestEvaluated.await(5, TimeUnit.SECONDS));
+            return Collections.emptyList();
+        }).thenAnswer(invocation -> {
+            waitingRequestEvaluated.countDown();
+            return Collections.emptyList();
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<PolicyEvaluationResult> evaluatingRequest = executor
+                    .submit(() -> this.evaluationService.evalPolicy(createRequest("resource1", "subject1", "GET")));
+            Assert.assertTrue(evaluationStarted.await(5, TimeUnit.SECONDS));
+
+            PolicyEvaluationResult result = this.evaluationService
+                    .evalPolicy(createRequest("resource1", "subject1", "GET"));
+            Assert.assertEquals(result.getEffect(), Effect.NOT_APPLICABLE);
+            Assert.assertEquals(evaluatingRequest.get(5, TimeUnit.SECONDS).getEffect(), Effect.NOT_APPLICABLE);
+            Mockito.verify(this.policyService, Mockito.times(2)).getAllCompiledPolicySets();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedEvaluationIsNotSharedWithLaterRequests() {
+        when(this.policyService.getAllCompiledPolicySets()).thenThrow(new IllegalStateException())
+                .thenReturn(Collections.emptyList());
+        try {
+            this.evaluationService.evalPolicy(createRequest("resource1", "subject1", "GET"));
+            Assert.fail("Expected the policy evaluation to fail.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+
+        PolicyEvaluationResult result = this.evaluationService
+                .evalPolicy(createRequest("resource1", "subject1", "GET"));
+        Assert.assertEquals(result.getEffect(), Effect.NOT_APPLICABLE);
+    }
+
     /**
      * @param inputPolicy
      * @throws IOException
@@ -287,17 +377,22 @@ public class PolicyEvaluationServiceTest extends AbstractTestNGSpringContextTest
     private void initializePolicyMock(final File inputPolicy, final Set<Attribute> resourceAttributes,
             final Set<Attribute> subjectAttributes) throws IOException, JsonParseException, JsonMappingException {
         PolicySet policySet = new ObjectMapper().readValue(inputPolicy, PolicySet.class);
-        when(this.policyService.getAllPolicySets()).thenReturn(Arrays.asList(new PolicySet[] { policySet }));
+        when(this.policyService.getAllCompiledPolicySets())
+                .thenReturn(compile(Arrays.asList(new PolicySet[] { policySet })));
         List<MatchedPolicy> matchedPolicies = new ArrayList<>();
         for (Policy policy : policySet.getPolicies()) {
             matchedPolicies.add(new MatchedPolicy(policy, resourceAttributes, subjectAttributes));
         }
         when(this.policyMatcher.match(any(PolicyMatchCandidate.class), anyListOf(Policy.class)))
                 .thenReturn(matchedPolicies);
-        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), anyListOf(Policy.class)))
+        when(this.policyMatcher.matchForResult(any(PolicyMatchCandidate.class), any(CompiledPolicySet.class)))
                 .thenReturn(new MatchResult(matchedPolicies, new HashSet<String>()));
     }
 
+    private static List<CompiledPolicySet> compile(final List<PolicySet> policySets) {
+        return policySets.stream().map(CompiledPolicySet::new).collect(Collectors.toList());
+    }
+
     private BaseSubject getSubject(final String roleValue) {
         BaseSubject subject = new BaseSubject("subject1");
         Set<Attribute> attributes = getSubjectAttributes(roleValue);
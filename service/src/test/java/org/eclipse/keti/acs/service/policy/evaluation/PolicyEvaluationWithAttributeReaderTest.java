@@ -33,7 +33,6 @@ import org.eclipse.keti.acs.attribute.readers.AttributeReaderFactory;
 import org.eclipse.keti.acs.attribute.readers.AttributeRetrievalException;
 import org.eclipse.keti.acs.attribute.readers.ExternalResourceAttributeReader;
 import org.eclipse.keti.acs.attribute.readers.ExternalSubjectAttributeReader;
-import org.eclipse.keti.acs.commons.policy.condition.groovy.GroovyConditionCache;
 import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
 import org.eclipse.keti.acs.model.Attribute;
 import org.eclipse.keti.acs.model.Effect;
@@ -44,6 +43,7 @@ import org.eclipse.keti.acs.rest.BaseResource;
 import org.eclipse.keti.acs.rest.BaseSubject;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.admin.PolicyManagementService;
 import org.eclipse.keti.acs.service.policy.matcher.PolicyMatcherImpl;
 import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
@@ -52,7 +52,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -81,8 +80,6 @@ public class PolicyEvaluationWithAttributeReaderTest extends AbstractTestNGSprin
     private ExternalResourceAttributeReader externalResourceAttributeReader;
     @Mock
     private ExternalSubjectAttributeReader externalSubjectAttributeReader;
-    @Autowired
-    private GroovyConditionCache conditionCache;
 
     private static final String RESOURCE_IDENTIFIER = "/sites/1234";
     private static final String SUBJECT_IDENTIFIER = "test-subject";
@@ -96,7 +93,6 @@ public class PolicyEvaluationWithAttributeReaderTest extends AbstractTestNGSprin
         MockitoAnnotations.initMocks(this);
         ReflectionTestUtils.setField(this.policyMatcher, "attributeReaderFactory", this.attributeReaderFactory);
         ReflectionTestUtils.setField(this.evaluationService, "policyMatcher", this.policyMatcher);
-        ReflectionTestUtils.setField(this.evaluationService, "conditionCache", this.conditionCache);
         when(this.zoneResolver.getZoneEntityOrFail()).thenReturn(new ZoneEntity(0L, "testzone"));
         when(this.cache.get(any(PolicyEvaluationRequestCacheKey.class))).thenReturn(null);
         when(this.attributeReaderFactory.getResourceAttributeReader()).thenReturn(this.externalResourceAttributeReader);
@@ -104,7 +100,8 @@ public class PolicyEvaluationWithAttributeReaderTest extends AbstractTestNGSprin
         PolicySet policySet = new ObjectMapper().readValue(
                 new File("src/test/resources/policy-set-with-one-policy-one-condition-using-res-attributes.json"),
                 PolicySet.class);
-        when(this.policyService.getAllPolicySets()).thenReturn(Collections.singletonList(policySet));
+        when(this.policyService.getAllCompiledPolicySets())
+                .thenReturn(Collections.singletonList(new CompiledPolicySet(policySet)));
     }
 
     @Test
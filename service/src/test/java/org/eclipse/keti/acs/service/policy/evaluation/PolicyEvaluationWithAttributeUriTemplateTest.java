@@ -42,6 +42,7 @@ import org.eclipse.keti.acs.rest.BaseResource;
 import org.eclipse.keti.acs.rest.BaseSubject;
 import org.eclipse.keti.acs.rest.PolicyEvaluationRequestV1;
 import org.eclipse.keti.acs.rest.PolicyEvaluationResult;
+import org.eclipse.keti.acs.service.policy.admin.CompiledPolicySet;
 import org.eclipse.keti.acs.service.policy.admin.PolicyManagementService;
 import org.eclipse.keti.acs.service.policy.admin.PolicyManagementServiceImpl;
 import org.eclipse.keti.acs.service.policy.matcher.PolicyMatcherImpl;
@@ -90,7 +91,8 @@ public class PolicyEvaluationWithAttributeUriTemplateTest {
         // set policy
         PolicySet policySet = new ObjectMapper()
                 .readValue(new File("src/test/resources/policy-set-with-attribute-uri-template.json"), PolicySet.class);
-        when(this.policyService.getAllPolicySets()).thenReturn(Arrays.asList(policySet));
+        when(this.policyService.getAllCompiledPolicySets())
+                .thenReturn(Arrays.asList(new CompiledPolicySet(policySet)));
 
         // Create 'role' attribute in resource for URI /site/1234. Used in target match for policy 1.
         BaseResource testResource = new BaseResource("/site/1234");
@@ -34,7 +34,9 @@ import java.util.Set;
 import org.eclipse.keti.acs.commons.policy.condition.groovy.NonCachingGroovyConditionCache;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.util.UriTemplate;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -284,6 +286,69 @@ public class PolicyMatcherImplTest {
         Assert.assertEquals(matchedPolicies.size(), 0);
     }
 
+    /**
+     * Tests that attributes are only resolved for policies whose action and URI template match the request.
+     *
+     * @throws IOException
+     *             on failure to load policy required for test.
+     */
+    public void testAttributesAreNotResolvedForPoliciesThatCannotMatch() throws IOException {
+        File file = getPolicyFileForTest("testMultiplePoliciesNoMatch");
+        PolicySet policySet = PolicySets.loadFromFile(file);
+        List<Policy> policies = policySet.getPolicies();
+
+        PrivilegeServiceResourceAttributeReader resourceAttributeReader = Mockito
+                .mock(PrivilegeServiceResourceAttributeReader.class);
+        PrivilegeServiceSubjectAttributeReader subjectAttributeReader = Mockito
+                .mock(PrivilegeServiceSubjectAttributeReader.class);
+        AttributeReaderFactory readerFactory = Mockito.mock(AttributeReaderFactory.class);
+        when(readerFactory.getResourceAttributeReader()).thenReturn(resourceAttributeReader);
+        when(readerFactory.getSubjectAttributeReader()).thenReturn(subjectAttributeReader);
+        when(resourceAttributeReader.getAttributes(anyString())).thenReturn(Collections.emptySet());
+        when(subjectAttributeReader.getAttributesByScope(anyString(), anySetOf(Attribute.class)))
+            .thenReturn(Collections.emptySet());
+        PolicyMatcherImpl matcher = new PolicyMatcherImpl();
+        ReflectionTestUtils.setField(matcher, "attributeReaderFactory", readerFactory);
+
+        Attribute groupAttr = new Attribute("https://acs.attributes.int", "group", "gog");
+        PolicyMatchCandidate candidate = new PolicyMatchCandidate();
+        candidate.setAction("DELETE");
+        candidate.setResourceURI("/sites/1123");
+        candidate.setSubjectIdentifier("Edward R. Murrow");
+        candidate.setSupplementalSubjectAttributes(new HashSet<>(Arrays.asList(new Attribute[] { groupAttr })));
+        Assert.assertEquals(matcher.match(candidate, policies).size(), 0);
+        Mockito.verifyZeroInteractions(resourceAttributeReader, subjectAttributeReader);
+
+        // Both "/sites" and "/sites/{site_id}" are candidates, but only the former matches the URI.
+        candidate.setAction("GET");
+        candidate.setResourceURI("/sites");
+        List<MatchedPolicy> matchedPolicies = matcher.match(candidate, policies);
+        Assert.assertEquals(matchedPolicies.size(), 1);
+        Assert.assertEquals(matchedPolicies.get(0).getPolicy(), policies.get(4));
+
+        PolicyMatchStatistics statistics = matcher.getStatistics();
+        Assert.assertEquals(statistics.getMatches(), 2);
+        Assert.assertEquals(statistics.getPolicies(), 12);
+        Assert.assertEquals(statistics.getPrunedByIndex(), 10);
+        Assert.assertEquals(statistics.getRejectedStructurally(), 1);
+        Assert.assertEquals(statistics.getAttributeResolutions(), 1);
+        Assert.assertEquals(statistics.getAttributeResolutionsAvoided(), 11);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMatchPolicyWithUnparsableResourceUri() throws IOException {
+        File file = getPolicyFileForTest("testMultiplePoliciesNoMatch");
+        PolicySet policySet = PolicySets.loadFromFile(file);
+        List<Policy> policies = policySet.getPolicies();
+
+        PolicyMatchCandidate candidate = new PolicyMatchCandidate();
+        candidate.setAction("GET");
+        candidate.setResourceURI("/sites/san ramon");
+        candidate.setSubjectIdentifier("Edward R. Murrow");
+        candidate.setSupplementalSubjectAttributes(Collections.emptySet());
+        this.policyMatcher.match(candidate, policies);
+    }
+
     public void testMultiplePoliciesMultipleMatches() throws IOException {
         File file = getPolicyFileForTest("policySetWithOverlappingURIs");
         PolicySet policySet = PolicySets.loadFromFile(file);
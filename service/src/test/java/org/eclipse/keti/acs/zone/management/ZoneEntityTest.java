@@ -45,7 +45,7 @@ import org.eclipse.keti.acs.zone.resolver.SpringSecurityZoneResolver;
 @ContextConfiguration(
         classes = { GraphBeanDefinitionRegistryPostProcessor.class, GraphConfig.class,
                 InMemoryDataSourceConfig.class, SpringSecurityPolicyContextResolver.class,
-                SpringSecurityZoneResolver.class, ZoneServiceImpl.class })
+                SpringSecurityZoneResolver.class, ZoneServiceImpl.class, ZoneRegistry.class })
 @ActiveProfiles(resolver = TestActiveProfilesResolver.class)
 @Test(singleThreaded = true)
 public class ZoneEntityTest extends AbstractTransactionalTestNGSpringContextTests {
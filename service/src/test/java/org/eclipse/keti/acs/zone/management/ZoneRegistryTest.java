@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2018 General Electric Company
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.eclipse.keti.acs.zone.management;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import org.eclipse.keti.acs.zone.management.dao.ZoneEntity;
+import org.eclipse.keti.acs.zone.management.dao.ZoneRepository;
+
+@Test
+public class ZoneRegistryTest {
+
+    @InjectMocks
+    private ZoneRegistry zoneRegistry;
+    @Mock
+    private ZoneRepository zoneRepository;
+
+    @BeforeMethod
+    public void setUp() {
+        this.zoneRegistry = new ZoneRegistry();
+        MockitoAnnotations.initMocks(this);
+        this.zoneRegistry.setRefreshSeconds(30);
+    }
+
+    public void testZonesAreLoadedOnceAndCopiedOnLookup() {
+        ZoneEntity zone = createZone(1L, "zone1", "subdomain1");
+        Mockito.doReturn(Collections.singletonList(zone)).when(this.zoneRepository).findAll();
+        this.zoneRegistry.loadAllZones();
+
+        ZoneEntity registeredZone = this.zoneRegistry.getBySubdomain("subdomain1");
+        Assert.assertEquals(registeredZone, zone);
+        Assert.assertEquals(registeredZone.getId(), 1L);
+        Assert.assertNotSame(registeredZone, zone);
+        Assert.assertNotSame(this.zoneRegistry.getBySubdomain("subdomain1"), registeredZone);
+        Assert.assertEquals(this.zoneRegistry.getByName("zone1"), zone);
+
+        Mockito.verify(this.zoneRepository, Mockito.times(1)).findAll();
+        Mockito.verify(this.zoneRepository, Mockito.never()).getBySubdomain(Mockito.anyString());
+        Mockito.verify(this.zoneRepository, Mockito.never()).getByName(Mockito.anyString());
+    }
+
+    public void testUnknownZoneIsLookedUpInRepository() {
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain1"));
+
+        // Created by another node since the last refresh.
+        Mockito.doReturn(createZone(1L, "zone1", "subdomain1")).when(this.zoneRepository).getBySubdomain("subdomain1");
+        Assert.assertEquals(this.zoneRegistry.getBySubdomain("subdomain1").getName(), "zone1");
+        Assert.assertEquals(this.zoneRegistry.getByName("zone1").getSubdomain(), "subdomain1");
+        Mockito.verify(this.zoneRepository, Mockito.times(2)).getBySubdomain("subdomain1");
+        Mockito.verify(this.zoneRepository, Mockito.never()).getByName(Mockito.anyString());
+    }
+
+    public void testUpdateAndRemove() {
+        this.zoneRegistry.update(createZone(1L, "zone1", "subdomain1"));
+        Assert.assertEquals(this.zoneRegistry.getBySubdomain("subdomain1").getName(), "zone1");
+
+        ZoneEntity updatedZone = createZone(1L, "zone1", "subdomain2");
+        this.zoneRegistry.update(updatedZone);
+        Assert.assertEquals(this.zoneRegistry.getBySubdomain("subdomain2").getName(), "zone1");
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain1"));
+
+        this.zoneRegistry.remove(updatedZone);
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain2"));
+        Assert.assertNull(this.zoneRegistry.getByName("zone1"));
+    }
+
+    public void testRefreshDropsZonesDeletedByOtherNodes() {
+        ZoneEntity zone1 = createZone(1L, "zone1", "subdomain1");
+        ZoneEntity zone2 = createZone(2L, "zone2", "subdomain2");
+        Mockito.doReturn(Arrays.asList(zone1, zone2)).when(this.zoneRepository).findAll();
+        this.zoneRegistry.loadAllZones();
+        Assert.assertNotNull(this.zoneRegistry.getBySubdomain("subdomain2"));
+
+        // Lookups never reload all zones themselves.
+        Mockito.doReturn(Collections.singletonList(zone1)).when(this.zoneRepository).findAll();
+        Assert.assertNotNull(this.zoneRegistry.getBySubdomain("subdomain2"));
+        Mockito.verify(this.zoneRepository, Mockito.times(1)).findAll();
+
+        this.zoneRegistry.refreshInBackground();
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain2"));
+        Assert.assertNotNull(this.zoneRegistry.getBySubdomain("subdomain1"));
+        Mockito.verify(this.zoneRepository, Mockito.times(2)).findAll();
+    }
+
+    public void testRefreshDoesNotRegisterZoneRemovedMeanwhile() {
+        ZoneEntity zone = createZone(1L, "zone1", "subdomain1");
+        this.zoneRegistry.update(zone);
+        Mockito.doAnswer(invocation -> {
+            // Deleted on this node after the zones were read.
+            this.zoneRegistry.remove(zone);
+            return Collections.singletonList(zone);
+        }).when(this.zoneRepository).findAll();
+
+        this.zoneRegistry.refreshInBackground();
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain1"));
+    }
+
+    public void testLookupDoesNotRegisterZoneRemovedMeanwhile() {
+        ZoneEntity zone = createZone(1L, "zone1", "subdomain1");
+        Mockito.doAnswer(invocation -> {
+            // Deleted on this node after the zone was read.
+            this.zoneRegistry.remove(zone);
+            return zone;
+        }).when(this.zoneRepository).getByName("zone1");
+
+        Assert.assertEquals(this.zoneRegistry.getByName("zone1"), zone);
+        Assert.assertNull(this.zoneRegistry.getBySubdomain("subdomain1"));
+        Mockito.verify(this.zoneRepository, Mockito.times(1)).getBySubdomain("subdomain1");
+    }
+
+    public void testRefreshRunsInBackgroundUntilStopped() {
+        Mockito.doReturn(Collections.singletonList(createZone(1L, "zone1", "subdomain1"))).when(this.zoneRepository)
+                .findAll();
+        this.zoneRegistry.setRefreshSeconds(1);
+        this.zoneRegistry.start();
+        try {
+            Mockito.verify(this.zoneRepository, Mockito.timeout(5000)).findAll();
+            Assert.assertEquals(this.zoneRegistry.getBySubdomain("subdomain1").getName(), "zone1");
+        } finally {
+            this.zoneRegistry.stop();
+        }
+        Assert.assertTrue(((ExecutorService) ReflectionTestUtils.getField(this.zoneRegistry, "refreshExecutor"))
+                .isShutdown());
+    }
+
+    private static ZoneEntity createZone(final long id, final String name, final String subdomain) {
+        ZoneEntity zone = new ZoneEntity(id, name);
+        zone.setSubdomain(subdomain);
+        zone.setDescription(name + " description");
+        return zone;
+    }
+}
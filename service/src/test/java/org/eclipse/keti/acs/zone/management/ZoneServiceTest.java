@@ -53,7 +53,7 @@ import com.ge.predix.uaa.token.lib.ZoneOAuth2Authentication;
 
 @ContextConfiguration(
         classes = { GraphConfig.class, InMemoryDataSourceConfig.class, SpringSecurityPolicyContextResolver.class,
-                SpringSecurityZoneResolver.class, ZoneServiceImpl.class })
+                SpringSecurityZoneResolver.class, ZoneServiceImpl.class, ZoneRegistry.class })
 @TestPropertySource("/application.properties")
 @ActiveProfiles(resolver = TestActiveProfilesResolver.class)
 @Test
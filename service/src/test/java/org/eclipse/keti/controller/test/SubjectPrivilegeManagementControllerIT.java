@@ -22,9 +22,12 @@ package org.eclipse.keti.controller.test;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isIn;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,7 @@ import javax.security.auth.Subject;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
@@ -40,13 +44,16 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.eclipse.keti.acs.privilege.management.PrivilegeManagementUtility;
 import org.eclipse.keti.acs.request.context.AcsRequestContext;
 import org.eclipse.keti.acs.request.context.AcsRequestContextHolder;
@@ -458,6 +465,51 @@ public class SubjectPrivilegeManagementControllerIT extends AbstractTestNGSpring
         deleteContext.getMockMvc().perform(deleteContext.getBuilder()).andExpect(status().isNoContent());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetSubjectsInPagesAndAsNdjson() throws Exception {
+        Zone pagedZone = TEST_UTILS.setupTestZone("SubjectMgmtControllerITPages", zoneService);
+        List<BaseSubject> subjects = JSON_UTILS.deserializeFromFile("controller-test/subjects-collection.json",
+                                                                    List.class);
+        MockMvcContext postContext =
+            TEST_UTILS.createWACWithCustomPOSTRequestBuilder(this.wac, pagedZone.getSubdomain(), SUBJECT_BASE_URL);
+        postContext.getMockMvc().perform(postContext.getBuilder().contentType(MediaType.APPLICATION_JSON)
+                .content(OBJECT_MAPPER.writeValueAsString(subjects))).andExpect(status().isNoContent());
+
+        // The first page links to the next one, which carries the cursor.
+        MockMvcContext getContext = TEST_UTILS.createWACWithCustomGETRequestBuilder(this.wac,
+                pagedZone.getSubdomain(), SUBJECT_BASE_URL + "?pageSize=1");
+        MvcResult firstPage = getContext.getMockMvc().perform(getContext.getBuilder())
+                .andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1))).andReturn();
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        Assert.assertTrue(link.endsWith(">; rel=\"next\""), link);
+        String nextUri = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        Assert.assertTrue(nextUri.contains("pageSize=1") && nextUri.contains("cursor="), nextUri);
+        String firstSubjectIdentifier = JsonPath.read(firstPage.getResponse().getContentAsString(),
+                "$[0].subjectIdentifier");
+        getContext.getMockMvc().perform(MockMvcRequestBuilders.get(new URI(nextUri)))
+                .andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].subjectIdentifier", not(firstSubjectIdentifier)));
+
+        // Streaming writes one subject per line.
+        getContext = TEST_UTILS.createWACWithCustomGETRequestBuilder(this.wac, pagedZone.getSubdomain(),
+                SUBJECT_BASE_URL);
+        String ndjson = getContext.getMockMvc()
+                .perform(getContext.getBuilder().accept(PrivilegeManagementUtility.NDJSON_MEDIA_TYPE))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        String[] lines = ndjson.split("\n");
+        Assert.assertEquals(lines.length, 2, ndjson);
+        for (String line : lines) {
+            Assert.assertTrue(Arrays.asList("dave", "vineet")
+                    .contains(JSON_UTILS.deserialize(line, BaseSubject.class).getSubjectIdentifier()), line);
+        }
+
+        getContext = TEST_UTILS.createWACWithCustomGETRequestBuilder(this.wac, pagedZone.getSubdomain(),
+                SUBJECT_BASE_URL + "?pageSize=0");
+        getContext.getMockMvc().perform(getContext.getBuilder()).andExpect(status().isBadRequest());
+        MockSecurityContext.mockSecurityContext(this.testZone);
+    }
+
     private void assertSubjects(final ResultActions resultActions, final int size, final String[] identifiers)
             throws Exception {
         resultActions.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(size)));